@@ -0,0 +1,135 @@
+package lectures.arrays;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The bulk operations of {@link WordKernels} written with the incubating
+ * Vector API, so that they use the widest SIMD registers of the processor
+ * whether or not the JIT compiler vectorizes the plain loops.
+ *
+ * <p>
+ * This class is compiled and run only with
+ * {@code --add-modules jdk.incubator.vector}, which is why it is kept in its
+ * own source root; {@code WordKernels} loads it reflectively when the module
+ * is present. Each operation processes whole vectors of
+ * {@code SPECIES.length()} words and then the remaining words one at a time.
+ *
+ * <p>
+ * JDK 17 has no lanewise population count, so {@link #bitCount} counts the
+ * bits of each lane with the usual shifts and masks: the counts of pairs,
+ * nibbles, and bytes are formed in place, the byte counts of up to 31
+ * vectors are added without overflowing a byte, and then the bytes of each
+ * lane are added into a vector of 64-bit totals.
+ *
+ */
+final class VectorWordKernels implements WordKernels.Backend {
+
+	/**
+	 * The widest vector shape of {@code long} lanes that the processor
+	 * supports.
+	 */
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+	/**
+	 * The number of vectors whose byte counts can be added before a byte may
+	 * overflow: each byte count is at most 8, and 31 * 8 = 248.
+	 */
+	private static final int BYTE_SUM_VECTORS = 31;
+
+	@Override
+	public void and(long[] a, long[] b, int from, int to) {
+		int i = from;
+		for (int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+			LongVector.fromArray(SPECIES, a, i).and(LongVector.fromArray(SPECIES, b, i)).intoArray(a, i);
+		}
+		for (; i < to; i++) {
+			a[i] &= b[i];
+		}
+	}
+
+	@Override
+	public void or(long[] a, long[] b, int from, int to) {
+		int i = from;
+		for (int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+			LongVector.fromArray(SPECIES, a, i).or(LongVector.fromArray(SPECIES, b, i)).intoArray(a, i);
+		}
+		for (; i < to; i++) {
+			a[i] |= b[i];
+		}
+	}
+
+	@Override
+	public void xor(long[] a, long[] b, int from, int to) {
+		int i = from;
+		for (int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+			LongVector.fromArray(SPECIES, a, i).lanewise(VectorOperators.XOR, LongVector.fromArray(SPECIES, b, i))
+					.intoArray(a, i);
+		}
+		for (; i < to; i++) {
+			a[i] ^= b[i];
+		}
+	}
+
+	@Override
+	public void andNot(long[] a, long[] b, int from, int to) {
+		int i = from;
+		for (int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+			LongVector.fromArray(SPECIES, a, i).lanewise(VectorOperators.AND_NOT, LongVector.fromArray(SPECIES, b, i))
+					.intoArray(a, i);
+		}
+		for (; i < to; i++) {
+			a[i] &= ~b[i];
+		}
+	}
+
+	@Override
+	public void not(long[] a, int from, int to) {
+		int i = from;
+		for (int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+			LongVector.fromArray(SPECIES, a, i).not().intoArray(a, i);
+		}
+		for (; i < to; i++) {
+			a[i] = ~a[i];
+		}
+	}
+
+	@Override
+	public long bitCount(long[] a, int from, int to) {
+		int step = SPECIES.length();
+		int end = from + SPECIES.loopBound(to - from);
+		LongVector total = LongVector.zero(SPECIES);
+		int i = from;
+		while (i < end) {
+			LongVector bytes = LongVector.zero(SPECIES);
+			int stop = Math.min(end, i + BYTE_SUM_VECTORS * step);
+			for (; i < stop; i += step) {
+				LongVector x = LongVector.fromArray(SPECIES, a, i);
+				x = x.sub(x.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+				x = x.and(0x3333333333333333L).add(x.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+				x = x.add(x.lanewise(VectorOperators.LSHR, 4)).and(0x0f0f0f0f0f0f0f0fL);
+				bytes = bytes.add(x);
+			}
+			// add the 8 byte counts of each lane
+			LongVector t = bytes.and(0x00ff00ff00ff00ffL)
+					.add(bytes.lanewise(VectorOperators.LSHR, 8).and(0x00ff00ff00ff00ffL));
+			t = t.add(t.lanewise(VectorOperators.LSHR, 16));
+			t = t.add(t.lanewise(VectorOperators.LSHR, 32));
+			total = total.add(t.and(0xffffL));
+		}
+		long count = total.reduceLanes(VectorOperators.ADD);
+		for (; i < to; i++) {
+			count += Long.bitCount(a[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns a description of this implementation and its vector shape.
+	 */
+	@Override
+	public String toString() {
+		return "Vector API, " + SPECIES.length() + " x 64-bit lanes";
+	}
+}
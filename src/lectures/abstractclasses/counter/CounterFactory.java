@@ -0,0 +1,181 @@
+package lectures.abstractclasses.counter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lectures.abstractclasses.counter.AbstractCounter.Direction;
+
+/**
+ * A factory for counters whose range, step, and behaviour at the limits of
+ * the range are chosen at run time.
+ *
+ * <p>
+ * A counter written to handle any configuration has to load its minimum,
+ * maximum, and step from fields and test its policy every time it is
+ * advanced. Instead, this factory generates one class for every distinct
+ * configuration using {@code MethodHandles.Lookup.defineHiddenClassWithClassData}
+ * so that the configuration is a set of constants in the generated code.
+ * Generated classes are cached; creating many counters with the same
+ * configuration defines only one class.
+ *
+ * <p>
+ * The generated counters are {@code AbstractCounter}s and can be used
+ * wherever the hand-written counters are used. Note that counters created
+ * with different configurations are instances of different classes and are
+ * therefore never equal.
+ *
+ */
+public class CounterFactory {
+
+	/**
+	 * The behaviour of a counter that is advanced past the limit of its range.
+	 */
+	public enum LimitPolicy {
+		/**
+		 * An ascending counter wraps to its minimum value and a descending
+		 * counter wraps to its maximum value.
+		 */
+		WRAP,
+
+		/**
+		 * The counter stops at the limit of its range.
+		 */
+		STOP,
+
+		/**
+		 * The counter reverses its direction.
+		 */
+		REVERSE,
+
+		/**
+		 * An {@code IllegalArgumentException} is thrown.
+		 */
+		EXCEPTION;
+	}
+
+	/**
+	 * The bytes of the template class.
+	 */
+	private static final byte[] TEMPLATE = templateBytes();
+
+	/**
+	 * The constructors of the generated classes for every configuration
+	 * created so far.
+	 */
+	private static final Map<List<Object>, MethodHandle> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private CounterFactory() {
+	}
+
+	/**
+	 * Returns the bytes of the class file of {@code SpecializedCounter}.
+	 */
+	private static byte[] templateBytes() {
+		String name = SpecializedCounter.class.getSimpleName() + ".class";
+		try (InputStream in = SpecializedCounter.class.getResourceAsStream(name)) {
+			if (in == null) {
+				throw new IllegalStateException("cannot find " + name);
+			}
+			return in.readAllBytes();
+		} catch (IOException x) {
+			throw new UncheckedIOException(x);
+		}
+	}
+
+	/**
+	 * Defines a new hidden class for the specified configuration and returns
+	 * its constructor.
+	 */
+	private static MethodHandle define(List<Object> config) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClassWithClassData(TEMPLATE, config,
+					true);
+			MethodType type = MethodType.methodType(void.class, int.class, Direction.class);
+			return lookup.findConstructor(lookup.lookupClass(), type)
+					.asType(MethodType.methodType(AbstractCounter.class, int.class, Direction.class));
+		} catch (ReflectiveOperationException x) {
+			throw new IllegalStateException(x);
+		}
+	}
+
+	/**
+	 * Returns a new counter having the specified range, step, and limit
+	 * policy. The counter starts at its minimum value if {@code direction} is
+	 * ascending and at its maximum value otherwise.
+	 * 
+	 * @param min
+	 *            the minimum value of the counter
+	 * @param max
+	 *            the maximum value of the counter
+	 * @param step
+	 *            the amount that the counter changes by when it is advanced
+	 * @param direction
+	 *            the initial direction of the counter
+	 * @param policy
+	 *            the behaviour of the counter at the limits of its range
+	 * @return a new counter
+	 * @throws IllegalArgumentException
+	 *             if min is negative, if min is greater than max, or if step
+	 *             is less than 1
+	 */
+	public static AbstractCounter create(int min, int max, int step, Direction direction, LimitPolicy policy) {
+		int value = direction == Direction.ASCENDING ? min : max;
+		return create(min, max, step, direction, policy, value);
+	}
+
+	/**
+	 * Returns a new counter having the specified range, step, limit policy,
+	 * and starting value.
+	 * 
+	 * @param min
+	 *            the minimum value of the counter
+	 * @param max
+	 *            the maximum value of the counter
+	 * @param step
+	 *            the amount that the counter changes by when it is advanced
+	 * @param direction
+	 *            the initial direction of the counter
+	 * @param policy
+	 *            the behaviour of the counter at the limits of its range
+	 * @param value
+	 *            the starting value of the counter
+	 * @return a new counter
+	 * @throws IllegalArgumentException
+	 *             if min is negative, if min is greater than max, if step is
+	 *             less than 1, or if value is not in the range min to max
+	 */
+	public static AbstractCounter create(int min, int max, int step, Direction direction, LimitPolicy policy,
+			int value) {
+		if (min < 0) {
+			throw new IllegalArgumentException("min must be non-negative");
+		}
+		if (min > max) {
+			throw new IllegalArgumentException("min must be less than or equal to max");
+		}
+		if (step < 1) {
+			throw new IllegalArgumentException("step must be positive");
+		}
+		if (value < min || value > max) {
+			throw new IllegalArgumentException("value must be in the range min to max");
+		}
+		List<Object> config = List.of(min, max, step, policy);
+		MethodHandle ctor = CONSTRUCTORS.computeIfAbsent(config, CounterFactory::define);
+		try {
+			return (AbstractCounter) ctor.invokeExact(value, direction);
+		} catch (RuntimeException | Error x) {
+			throw x;
+		} catch (Throwable x) {
+			throw new IllegalStateException(x);
+		}
+	}
+}
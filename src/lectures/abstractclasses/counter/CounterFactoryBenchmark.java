@@ -0,0 +1,151 @@
+package lectures.abstractclasses.counter;
+
+import lectures.abstractclasses.counter.AbstractCounter.Direction;
+import lectures.abstractclasses.counter.CounterFactory.LimitPolicy;
+import lectures.basics.counter.RangeCounter;
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Compares the counters generated by {@link CounterFactory} with the
+ * hand-written {@code RangeCounter}, {@code BidirectionalCounter}, and
+ * {@code OscillatingCounter} classes having the same behaviour.
+ *
+ * <p>
+ * Every counter type is advanced in its own method so that the call sites
+ * in the benchmark loops see only one counter class.
+ *
+ */
+public class CounterFactoryBenchmark {
+
+	/**
+	 * The number of advances per measurement.
+	 */
+	private static final int ADVANCES = 200_000_000;
+
+	/**
+	 * The number of times each measurement is repeated.
+	 */
+	private static final int ROUNDS = 5;
+
+	private static long runRange(RangeCounter c) {
+		long sum = 0;
+		for (int i = 0; i < ADVANCES; i++) {
+			c.advance();
+			sum += c.value();
+		}
+		return sum;
+	}
+
+	private static long runGeneratedRange(AbstractCounter c) {
+		long sum = 0;
+		for (int i = 0; i < ADVANCES; i++) {
+			c.advance();
+			sum += c.value();
+		}
+		return sum;
+	}
+
+	private static long runBidirectional(BidirectionalCounter c) {
+		long sum = 0;
+		for (int i = 0; i < ADVANCES; i++) {
+			c.advance();
+			sum += c.value();
+		}
+		return sum;
+	}
+
+	private static long runGeneratedBidirectional(AbstractCounter c) {
+		long sum = 0;
+		for (int i = 0; i < ADVANCES; i++) {
+			c.advance();
+			sum += c.value();
+		}
+		return sum;
+	}
+
+	private static long runOscillating(OscillatingCounter c) {
+		long sum = 0;
+		for (int i = 0; i < ADVANCES; i++) {
+			c.advance();
+			sum += c.value();
+		}
+		return sum;
+	}
+
+	private static long runGeneratedOscillating(AbstractCounter c) {
+		long sum = 0;
+		for (int i = 0; i < ADVANCES; i++) {
+			c.advance();
+			sum += c.value();
+		}
+		return sum;
+	}
+
+	/**
+	 * Prints the time per advance and checks that both counters produced the
+	 * same values.
+	 */
+	private static void report(String name, double handWritten, long expected, double generated, long actual) {
+		System.out.printf("%-15s hand-written %.3f ns, generated %.3f ns, same values: %b%n", name,
+				handWritten * 1e9 / ADVANCES, generated * 1e9 / ADVANCES, expected == actual);
+	}
+
+	/**
+	 * Returns the value of a generated counter after one advance.
+	 */
+	private static int advanceOnce(int min, int max, int step, Direction direction, LimitPolicy policy, int value) {
+		AbstractCounter c = CounterFactory.create(min, max, step, direction, policy, value);
+		c.advance();
+		return c.value();
+	}
+
+	/**
+	 * Checks the generated counters at the limits of the {@code int} range,
+	 * where computing the distance to a limit in {@code int} arithmetic
+	 * overflows.
+	 */
+	private static boolean checkLimits() {
+		int max = Integer.MAX_VALUE;
+		return advanceOnce(max, max, 5, Direction.DESCENDING, LimitPolicy.STOP, max) == max
+				&& advanceOnce(max, max, 5, Direction.ASCENDING, LimitPolicy.WRAP, max) == max
+				&& advanceOnce(0, max, max, Direction.ASCENDING, LimitPolicy.STOP, max - 1) == max
+				&& advanceOnce(0, max, max, Direction.ASCENDING, LimitPolicy.STOP, 0) == max
+				&& advanceOnce(max - 10, max, 7, Direction.DESCENDING, LimitPolicy.REVERSE, max - 5) == max
+				&& advanceOnce(max - 10, max, 7, Direction.ASCENDING, LimitPolicy.REVERSE, max - 5) == max - 10
+				&& advanceOnce(0, 10, max, Direction.ASCENDING, LimitPolicy.WRAP, 3) == 0
+				&& advanceOnce(0, 10, max, Direction.DESCENDING, LimitPolicy.WRAP, 3) == 10
+				&& advanceOnce(0, 10, max, Direction.DESCENDING, LimitPolicy.REVERSE, 3) == 10;
+	}
+
+	public static void main(String[] args) {
+		System.out.println("limits: " + (checkLimits() ? "ok" : "MISMATCH"));
+		int start = Integer.MAX_VALUE - 1000;
+		Stopwatch w = new Stopwatch();
+		for (int i = 0; i < ROUNDS; i++) {
+			w.start();
+			long expected = runRange(new RangeCounter(0, 999, 0));
+			double t = w.stop();
+			w.start();
+			long actual = runGeneratedRange(
+					CounterFactory.create(0, 999, 1, Direction.ASCENDING, LimitPolicy.WRAP));
+			report("range", t, expected, w.stop(), actual);
+
+			w.start();
+			expected = runBidirectional(new BidirectionalCounter(start, Direction.DESCENDING));
+			t = w.stop();
+			w.start();
+			actual = runGeneratedBidirectional(CounterFactory.create(0, Integer.MAX_VALUE, 1,
+					Direction.DESCENDING, LimitPolicy.WRAP, start));
+			report("bidirectional", t, expected, w.stop(), actual);
+
+			w.start();
+			expected = runOscillating(new OscillatingCounter(start));
+			t = w.stop();
+			w.start();
+			actual = runGeneratedOscillating(CounterFactory.create(0, Integer.MAX_VALUE, 1, Direction.ASCENDING,
+					LimitPolicy.REVERSE, start));
+			report("oscillating", t, expected, w.stop(), actual);
+			System.out.println();
+		}
+	}
+}
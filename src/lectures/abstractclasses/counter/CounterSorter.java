@@ -0,0 +1,313 @@
+package lectures.abstractclasses.counter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Utility class for sorting large collections of counters.
+ *
+ * <p>
+ * The counter classes compare themselves by their current {@code int} value
+ * (see {@link AbstractCounter#compareTo(AbstractCounter)}). Instead of using
+ * a comparison-based sort, the methods in this class extract the value of
+ * every counter into an {@code int} array, sort the positions of the counters
+ * using a least-significant-digit radix sort on the extracted values, and
+ * then reorder the counters. The radix sort is stable so the resulting order
+ * is identical to the order produced by {@link java.util.Arrays#sort(Object[])}
+ * using the natural ordering of the counters.
+ *
+ * <p>
+ * The generic methods can be used to sort any objects having an {@code int}
+ * key; for example, the counters in {@code lectures.interfaces} can be sorted
+ * using {@code CounterSorter.sort(counters, Counter::value)}.
+ *
+ */
+public class CounterSorter {
+
+	/**
+	 * The number of bits in one radix digit.
+	 */
+	private static final int DIGIT_BITS = 11;
+
+	/**
+	 * The number of distinct radix digits.
+	 */
+	private static final int RADIX = 1 << DIGIT_BITS;
+
+	/**
+	 * The number of passes needed to sort 32-bit keys.
+	 */
+	private static final int PASSES = (Integer.SIZE + DIGIT_BITS - 1) / DIGIT_BITS;
+
+	/**
+	 * Arrays smaller than this are sorted sequentially by the parallel sort
+	 * methods.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private CounterSorter() {
+	}
+
+	/**
+	 * Sorts the specified array of counters into ascending order of their
+	 * current values. Counters with equal values keep their relative order.
+	 *
+	 * @param a
+	 *            the array to sort
+	 */
+	public static void sort(AbstractCounter[] a) {
+		sort(a, AbstractCounter::value);
+	}
+
+	/**
+	 * Sorts the specified array of counters into ascending order of their
+	 * current values using multiple threads. Counters with equal values keep
+	 * their relative order.
+	 *
+	 * @param a
+	 *            the array to sort
+	 */
+	public static void parallelSort(AbstractCounter[] a) {
+		parallelSort(a, AbstractCounter::value);
+	}
+
+	/**
+	 * Sorts the specified array into ascending order of the keys returned by
+	 * {@code key}. Elements with equal keys keep their relative order.
+	 *
+	 * @param <T>
+	 *            the type of the elements being sorted
+	 * @param a
+	 *            the array to sort
+	 * @param key
+	 *            the function that returns the sort key of an element
+	 */
+	public static <T> void sort(T[] a, ToIntFunction<? super T> key) {
+		int[] keys = extractKeys(a, key, false);
+		int[] order = radixSort(keys);
+		reorder(a, order, false);
+	}
+
+	/**
+	 * Sorts the specified array into ascending order of the keys returned by
+	 * {@code key} using multiple threads. Elements with equal keys keep their
+	 * relative order.
+	 *
+	 * @param <T>
+	 *            the type of the elements being sorted
+	 * @param a
+	 *            the array to sort
+	 * @param key
+	 *            the function that returns the sort key of an element
+	 */
+	public static <T> void parallelSort(T[] a, ToIntFunction<? super T> key) {
+		if (a.length < PARALLEL_THRESHOLD) {
+			sort(a, key);
+			return;
+		}
+		int[] keys = extractKeys(a, key, true);
+		int[] order = parallelRadixSort(keys);
+		reorder(a, order, true);
+	}
+
+	/**
+	 * Sorts the specified list into ascending order of the keys returned by
+	 * {@code key}. Elements with equal keys keep their relative order.
+	 *
+	 * @param <T>
+	 *            the type of the elements being sorted
+	 * @param list
+	 *            the list to sort
+	 * @param key
+	 *            the function that returns the sort key of an element
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> void sort(List<T> list, ToIntFunction<? super T> key) {
+		Object[] a = list.toArray();
+		sort((T[]) a, key);
+		for (int i = 0; i < a.length; i++) {
+			list.set(i, (T) a[i]);
+		}
+	}
+
+	/**
+	 * Returns the keys of the elements of {@code a}. The sign bit of every key
+	 * is flipped so that the keys can be sorted as unsigned values.
+	 *
+	 * @param <T>
+	 *            the type of the elements
+	 * @param a
+	 *            the elements whose keys are returned
+	 * @param key
+	 *            the function that returns the sort key of an element
+	 * @param parallel
+	 *            true if the keys are extracted using multiple threads
+	 * @return the keys of the elements, with their sign bits flipped
+	 */
+	private static <T> int[] extractKeys(T[] a, ToIntFunction<? super T> key, boolean parallel) {
+		int[] keys = new int[a.length];
+		IntStream range = IntStream.range(0, a.length);
+		if (parallel) {
+			range = range.parallel();
+		}
+		range.forEach(i -> keys[i] = key.applyAsInt(a[i]) ^ Integer.MIN_VALUE);
+		return keys;
+	}
+
+	/**
+	 * Reorders {@code a} so that element {@code i} becomes the element that
+	 * was originally at index {@code order[i]}.
+	 *
+	 * @param <T>
+	 *            the type of the elements
+	 * @param a
+	 *            the array to reorder
+	 * @param order
+	 *            the original index of every element in the new order
+	 * @param parallel
+	 *            true if the elements are moved using multiple threads
+	 */
+	private static <T> void reorder(T[] a, int[] order, boolean parallel) {
+		T[] copy = a.clone();
+		IntStream range = IntStream.range(0, a.length);
+		if (parallel) {
+			range = range.parallel();
+		}
+		range.forEach(i -> a[i] = copy[order[i]]);
+	}
+
+	/**
+	 * Returns the digit of {@code key} for the specified radix sort pass.
+	 *
+	 * @param key
+	 *            a key whose sign bit has been flipped
+	 * @param pass
+	 *            the radix sort pass, starting at 0 for the lowest digit
+	 * @return the digit of key used by the pass
+	 */
+	private static int digit(int key, int pass) {
+		return (key >>> (pass * DIGIT_BITS)) & (RADIX - 1);
+	}
+
+	/**
+	 * Stable LSD radix sort of the indices of {@code keys}. Returns the
+	 * indices of the keys in sorted order. The contents of {@code keys} are
+	 * destroyed.
+	 *
+	 * @param keys
+	 *            the keys to sort, whose sign bits have been flipped
+	 * @return the indices of the keys in ascending order of the keys
+	 */
+	private static int[] radixSort(int[] keys) {
+		int n = keys.length;
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		int[] keysTmp = new int[n];
+		int[] orderTmp = new int[n];
+		int[] count = new int[RADIX];
+		for (int pass = 0; pass < PASSES; pass++) {
+			Arrays.fill(count, 0);
+			for (int i = 0; i < n; i++) {
+				count[digit(keys[i], pass)]++;
+			}
+			// every key has the same digit; this pass would not move anything
+			if (n == 0 || count[digit(keys[0], pass)] == n) {
+				continue;
+			}
+			int sum = 0;
+			for (int d = 0; d < RADIX; d++) {
+				int c = count[d];
+				count[d] = sum;
+				sum += c;
+			}
+			for (int i = 0; i < n; i++) {
+				int dst = count[digit(keys[i], pass)]++;
+				keysTmp[dst] = keys[i];
+				orderTmp[dst] = order[i];
+			}
+			int[] t = keys;
+			keys = keysTmp;
+			keysTmp = t;
+			t = order;
+			order = orderTmp;
+			orderTmp = t;
+		}
+		return order;
+	}
+
+	/**
+	 * Parallel version of {@link #radixSort(int[])}. The keys are split into
+	 * one block per thread; every block is counted and scattered independently
+	 * and the per-block offsets are laid out in block order so that the sort
+	 * remains stable.
+	 *
+	 * @param keys
+	 *            the keys to sort, whose sign bits have been flipped
+	 * @return the indices of the keys in ascending order of the keys
+	 */
+	private static int[] parallelRadixSort(int[] keys) {
+		int n = keys.length;
+		int blocks = Runtime.getRuntime().availableProcessors() * 4;
+		int blockSize = (n + blocks - 1) / blocks;
+		int[] order = new int[n];
+		Arrays.parallelSetAll(order, i -> i);
+		int[] keysTmp = new int[n];
+		int[] orderTmp = new int[n];
+		int[][] count = new int[blocks][RADIX];
+		for (int pass = 0; pass < PASSES; pass++) {
+			final int p = pass;
+			final int[] k = keys;
+			IntStream.range(0, blocks).parallel().forEach(b -> {
+				int[] c = count[b];
+				Arrays.fill(c, 0);
+				int to = Math.min(n, (b + 1) * blockSize);
+				for (int i = b * blockSize; i < to; i++) {
+					c[digit(k[i], p)]++;
+				}
+			});
+			int d0 = digit(keys[0], pass);
+			int total = 0;
+			for (int b = 0; b < blocks; b++) {
+				total += count[b][d0];
+			}
+			// every key has the same digit; this pass would not move anything
+			if (total == n) {
+				continue;
+			}
+			int sum = 0;
+			for (int d = 0; d < RADIX; d++) {
+				for (int b = 0; b < blocks; b++) {
+					int c = count[b][d];
+					count[b][d] = sum;
+					sum += c;
+				}
+			}
+			final int[] o = order;
+			final int[] kt = keysTmp;
+			final int[] ot = orderTmp;
+			IntStream.range(0, blocks).parallel().forEach(b -> {
+				int[] c = count[b];
+				int to = Math.min(n, (b + 1) * blockSize);
+				for (int i = b * blockSize; i < to; i++) {
+					int dst = c[digit(k[i], p)]++;
+					kt[dst] = k[i];
+					ot[dst] = o[i];
+				}
+			});
+			int[] t = keys;
+			keys = keysTmp;
+			keysTmp = t;
+			t = order;
+			order = orderTmp;
+			orderTmp = t;
+		}
+		return order;
+	}
+}
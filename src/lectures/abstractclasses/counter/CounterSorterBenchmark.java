@@ -0,0 +1,81 @@
+package lectures.abstractclasses.counter;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Compares the running time of {@link CounterSorter} against
+ * {@code Arrays.sort} and {@code Arrays.parallelSort} for large arrays of
+ * counters.
+ *
+ * <p>
+ * The array sizes can be given as command line arguments (e.g.,
+ * {@code 1000000 10000000 100000000}); sizes of 100 million counters require
+ * a large heap ({@code -Xmx16g} or more).
+ *
+ */
+public class CounterSorterBenchmark {
+
+	/**
+	 * Returns an array of {@code n} counters having random values.
+	 *
+	 * @param n
+	 *            the number of counters
+	 * @param rng
+	 *            the source of random values
+	 * @return an array of counters with random values
+	 */
+	private static AbstractCounter[] randomCounters(int n, Random rng) {
+		AbstractCounter[] a = new AbstractCounter[n];
+		for (int i = 0; i < n; i++) {
+			a[i] = new Counter(rng.nextInt(Integer.MAX_VALUE));
+		}
+		return a;
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = { 1000000, 10000000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		Random rng = new Random(2030);
+		Stopwatch w = new Stopwatch();
+		for (int n : sizes) {
+			AbstractCounter[] orig = randomCounters(n, rng);
+
+			AbstractCounter[] expected = orig.clone();
+			w.start();
+			Arrays.sort(expected);
+			double tSort = w.stop();
+
+			AbstractCounter[] a = orig.clone();
+			w.start();
+			Arrays.parallelSort(a);
+			double tParallelSort = w.stop();
+
+			a = orig.clone();
+			w.start();
+			CounterSorter.sort(a);
+			double tRadix = w.stop();
+			boolean same = Arrays.equals(a, expected, (x, y) -> x == y ? 0 : 1);
+
+			a = orig.clone();
+			w.start();
+			CounterSorter.parallelSort(a);
+			double tParallelRadix = w.stop();
+			same = same && Arrays.equals(a, expected, (x, y) -> x == y ? 0 : 1);
+
+			System.out.println("n = " + n);
+			System.out.println("  Arrays.sort                : " + tSort + " s");
+			System.out.println("  Arrays.parallelSort        : " + tParallelSort + " s");
+			System.out.println("  CounterSorter.sort         : " + tRadix + " s");
+			System.out.println("  CounterSorter.parallelSort : " + tParallelRadix + " s");
+			System.out.println("  same order as Arrays.sort  : " + same);
+		}
+	}
+}
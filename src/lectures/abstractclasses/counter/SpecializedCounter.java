@@ -0,0 +1,145 @@
+package lectures.abstractclasses.counter;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandles;
+
+import lectures.abstractclasses.counter.CounterFactory.LimitPolicy;
+
+/**
+ * The template for the counter classes generated by {@link CounterFactory}.
+ *
+ * <p>
+ * This class is never instantiated directly. {@code CounterFactory} defines a
+ * hidden class from the bytes of this class for every counter configuration;
+ * the configuration (minimum, maximum, step, and limit policy) is passed as
+ * the class data of the hidden class and stored in {@code static final}
+ * fields. The JIT compiler treats {@code static final} fields as constants, so
+ * every generated class has the configuration folded into its
+ * {@code advance} method as if it had been written by hand.
+ *
+ */
+final class SpecializedCounter extends AbstractCounter {
+
+	/**
+	 * The minimum value of this counter.
+	 */
+	private static final int MIN = constant(0);
+
+	/**
+	 * The maximum value of this counter.
+	 */
+	private static final int MAX = constant(1);
+
+	/**
+	 * The amount that this counter changes by when it is advanced.
+	 */
+	private static final int STEP = constant(2);
+
+	/**
+	 * The behaviour of this counter at the limits of its range.
+	 */
+	private static final LimitPolicy POLICY = classData(3, LimitPolicy.class);
+
+	/**
+	 * Returns the {@code int} element at the specified index of the class data
+	 * of this class, or zero if this class has no class data (i.e., if this is
+	 * the template class itself).
+	 */
+	private static int constant(int index) {
+		Integer c = classData(index, Integer.class);
+		return c == null ? 0 : c;
+	}
+
+	/**
+	 * Returns the element at the specified index of the class data of this
+	 * class, or null if this class has no class data.
+	 */
+	private static <T> T classData(int index, Class<T> type) {
+		try {
+			return MethodHandles.classDataAt(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, type, index);
+		} catch (IllegalAccessException x) {
+			throw new ExceptionInInitializerError(x);
+		}
+	}
+
+	/**
+	 * Initializes this counter to the specified value and direction. The
+	 * factory checks that the value is in the range of this counter.
+	 * 
+	 * @param value
+	 *            the starting value of this counter
+	 * @param direction
+	 *            the direction of this counter
+	 */
+	SpecializedCounter(int value, Direction direction) {
+		super(value, direction);
+	}
+
+	/**
+	 * Returns the minimum value of this counter.
+	 * 
+	 * @return the minimum value of this counter
+	 */
+	public int min() {
+		return MIN;
+	}
+
+	/**
+	 * Returns the maximum value of this counter.
+	 * 
+	 * @return the maximum value of this counter
+	 */
+	public int max() {
+		return MAX;
+	}
+
+	/**
+	 * Advances this counter by its step in its current direction. If the
+	 * step would take the value of this counter outside of its range then
+	 * the limit policy of the counter determines the new value. The distance
+	 * to the limit is computed in {@code long} arithmetic so that a range or
+	 * step near {@code Integer.MAX_VALUE} cannot overflow.
+	 */
+	@Override
+	public void advance() {
+		if (this.direction == Direction.ASCENDING) {
+			if ((long) MAX - this.value >= STEP) {
+				this.value += STEP;
+			} else if (POLICY == LimitPolicy.WRAP) {
+				this.value = MIN;
+			} else if (POLICY == LimitPolicy.STOP) {
+				this.value = MAX;
+			} else {
+				this.reverse();
+			}
+		} else {
+			if ((long) this.value - MIN >= STEP) {
+				this.value -= STEP;
+			} else if (POLICY == LimitPolicy.WRAP) {
+				this.value = MAX;
+			} else if (POLICY == LimitPolicy.STOP) {
+				this.value = MIN;
+			} else {
+				this.reverse();
+			}
+		}
+	}
+
+	/**
+	 * Reverses the direction of this counter and moves it one step in the new
+	 * direction, or throws an exception if the policy of this counter is
+	 * {@code EXCEPTION}.
+	 */
+	private void reverse() {
+		if (POLICY == LimitPolicy.EXCEPTION) {
+			throw new IllegalArgumentException("counter limit reached");
+		}
+		if (this.direction == Direction.ASCENDING) {
+			this.direction = Direction.DESCENDING;
+			this.value = (int) Math.max(MIN, (long) this.value - STEP);
+		} else {
+			this.direction = Direction.ASCENDING;
+			this.value = (int) Math.min(MAX, (long) this.value + STEP);
+		}
+	}
+}
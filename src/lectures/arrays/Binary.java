@@ -1,6 +1,18 @@
 package lectures.arrays;
 
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * A class that represents an unsigned binary (base-2) number. A binary 
@@ -28,14 +40,69 @@ import java.util.Arrays;
  * 
  * <p>
  * <img src="./binary3.png" alt="">
+ * 
+ * <p>
+ * The bits are stored packed 64 to a {@code long} word so that a binary
+ * number uses one bit of memory per bit, and so that many operations can
+ * process 64 bits at a time.
  *
  */
-public class Binary {
+public class Binary implements Comparable<Binary> {
+
+	/**
+	 * The number of bits in one word.
+	 */
+	private static final int WORD_SIZE = 64;
+
+	/**
+	 * The bits of this binary number packed into words. Counting positions
+	 * from the right-most bit (position 0), the bit at position {@code p} is
+	 * stored in bit {@code p % 64} of {@code words[p / 64]}. The bits of the
+	 * last word that are not part of the number are always 0.
+	 */
+	private long[] words;
+
+	/**
+	 * The number of bits of this binary number.
+	 */
+	private int numberOfBits;
+
+	/**
+	 * The number of words below which {@code multiply} uses schoolbook
+	 * multiplication instead of Karatsuba multiplication.
+	 */
+	private static volatile int karatsubaThreshold = 40;
+
+	/**
+	 * The largest number of words that the parallel methods process in one
+	 * task; numbers having at most this many words are processed by the
+	 * calling thread.
+	 */
+	private static volatile int parallelThreshold = 1 << 15;
+
+	/**
+	 * The rank/select directory of this binary number, or {@code null} if it
+	 * has not been built since this binary number was last changed.
+	 */
+	private RankSelectIndex rankSelectIndex;
+
+	/**
+	 * True if {@code words} may also be used by another binary number, in
+	 * which case it must be copied before any of its bits are changed.
+	 */
+	private boolean shared;
+
+	/**
+	 * The cached value of {@code hash64()}, or 0 if it has not been computed
+	 * since this binary number was last changed.
+	 */
+	private long hash;
 
 	/**
-	 * The bits of this binary number.
+	 * True if {@code hash64()} has been computed and is 0, so that a hash of
+	 * 0 is not computed again every time.
 	 */
-	private int[] bits;
+	private boolean hashIsZero;
 
 	
 	/**
@@ -64,6 +131,95 @@ public class Binary {
 		}
 	}
 	
+	/**
+	 * Returns the number of words needed to store {@code n} bits.
+	 * 
+	 * @param n a positive number of bits
+	 * @return the number of words needed to store n bits
+	 */
+	private static int wordCount(int n) {
+		return ((n - 1) >>> 6) + 1;
+	}
+
+	/**
+	 * Returns the mask of the bits of the last word that are part of this
+	 * binary number.
+	 * 
+	 * @return the mask of the used bits of the last word
+	 */
+	private long lastWordMask() {
+		return -1L >>> (-this.numberOfBits & (WORD_SIZE - 1));
+	}
+
+	/**
+	 * Returns the position, counted from the right-most bit, of the bit
+	 * having the specified index.
+	 * 
+	 * @param index an index of this binary number
+	 * @return the position of the bit counted from the right-most bit
+	 */
+	private int position(int index) {
+		return this.numberOfBits - 1 - index;
+	}
+
+	/**
+	 * Makes sure that {@code words} is used only by this binary number,
+	 * copying it if it is shared with another binary number.
+	 */
+	private void own() {
+		if (this.shared) {
+			this.words = this.words.clone();
+			this.shared = false;
+		}
+	}
+
+	/**
+	 * Marks the words of this binary number as shared, so that the next
+	 * change copies them first. Used by {@code SetBitSpliterator} when its
+	 * words start being read by other threads.
+	 */
+	void markShared() {
+		this.shared = true;
+	}
+
+	/**
+	 * Returns a copy of this binary number that does not share its words.
+	 * Used by the methods that copy this binary number only to change the
+	 * copy, and by the other classes in this package that hand out copies of
+	 * numbers they keep changing, so that this binary number is not marked
+	 * as shared and its next change does not copy its words.
+	 * 
+	 * @return an unshared copy of this binary number
+	 */
+	Binary copy() {
+		return new Binary(this.words.clone(), this.numberOfBits);
+	}
+
+	/**
+	 * Prepares this binary number for a change of its bits: takes ownership
+	 * of the words and discards the information that is derived from the
+	 * bits. Called by every method that changes the bits, except
+	 * {@code setBit}, which updates the rank/select directory instead.
+	 */
+	private void modified() {
+		this.own();
+		this.rankSelectIndex = null;
+		this.hash = 0;
+		this.hashIsZero = false;
+	}
+
+	/**
+	 * Initializes this binary number to use the specified words without
+	 * copying or checking them.
+	 * 
+	 * @param words the words of the binary number
+	 * @param numberOfBits the number of bits of the binary number
+	 */
+	private Binary(long[] words, int numberOfBits) {
+		this.words = words;
+		this.numberOfBits = numberOfBits;
+	}
+
 	/**
 	 * Initializes this binary number to have the specified bits. The
 	 * constructor copies the individual bits into this binary number.
@@ -80,24 +236,96 @@ public class Binary {
 		if (n == 0) {
 			throw new IllegalArgumentException();
 		}
-		int[] tmp = new int[n];
+		long[] tmp = new long[wordCount(n)];
 		for (int i = 0; i < n; i++) {
 			int b = bits[i];
 			this.checkValue(b);
-			tmp[i] = b;
+			int p = n - 1 - i;
+			tmp[p >>> 6] |= (long) b << p;
 		}
-		this.bits = tmp;
+		this.words = tmp;
+		this.numberOfBits = n;
 	}
 
 	/**
 	 * Initializes this binary number by copying the bits from another binary
 	 * number.
 	 * 
+	 * <p>
+	 * The copy is made lazily: the two binary numbers share their bits until
+	 * either of them is changed, at which point the one being changed makes
+	 * its own copy. Making a copy that is never changed therefore takes
+	 * constant time, but the cost is only deferred: {@code other} is marked
+	 * as shared, so the next change of {@code other} copies all of its words
+	 * even if the copy is no longer used, and so does the first change of
+	 * the copy. Code that copies a number and then keeps changing the
+	 * original pays for one full copy either way.
+	 * 
+	 * <p>
+	 * Because marking {@code other} as shared writes to it, making a copy
+	 * counts as a change of {@code other}: it must not happen while another
+	 * thread reads or changes {@code other} without synchronization.
+	 * 
 	 * @param other
 	 *            the binary number to copy
 	 */
 	public Binary(Binary other) {
-		this(other.bits);
+		this(other.words, other.numberOfBits);
+		this.shared = true;
+		other.shared = true;
+		this.hash = other.hash;
+		this.hashIsZero = other.hashIsZero;
+	}
+
+	/**
+	 * Returns a binary number that uses the specified words without copying
+	 * or checking them. The bits of the last word that are not part of the
+	 * number must be 0. Used by the other representations in this package.
+	 * 
+	 * @param words the words of the binary number
+	 * @param numberOfBits the number of bits of the binary number
+	 * @return a binary number that uses the specified words
+	 */
+	static Binary wrap(long[] words, int numberOfBits) {
+		return new Binary(words, numberOfBits);
+	}
+
+	/**
+	 * Returns the words of this binary number without copying them. Used by
+	 * the other representations in this package, which must not change the
+	 * words because they may be shared with copies of this binary number;
+	 * use {@link #mutableWords()} to change them.
+	 * 
+	 * @return the words of this binary number
+	 */
+	long[] words() {
+		return this.words;
+	}
+
+	/**
+	 * Returns the words of this binary number so that they can be changed in
+	 * place. If the words are shared with a copy they are copied first, and
+	 * the cached hash code and rank and select directory are discarded, so
+	 * the words returned belong to this binary number alone.
+	 * 
+	 * <p>
+	 * Used by the other representations in this package to fill binary
+	 * numbers that they created and never expose while they change them,
+	 * such as the rows of a matrix product or the bits of a Bloom filter.
+	 * The caller must not copy this binary number, or use its hash code or
+	 * rank and select queries, while it still changes the words, since those
+	 * would not see the later changes. The bits of the last word that are
+	 * not part of the number must stay 0.
+	 * 
+	 * @return the words of this binary number, not shared with any copy
+	 */
+	long[] mutableWords() {
+		// only write the fields when something must be discarded, so that
+		// threads filling a concurrent Bloom filter do not write to them
+		if (this.shared || this.rankSelectIndex != null || this.hash != 0 || this.hashIsZero) {
+			this.modified();
+		}
+		return this.words;
 	}
 
 	/**
@@ -106,7 +334,7 @@ public class Binary {
 	 * @return the number of bits in this binary number
 	 */
 	public int numberOfBits() {
-		return this.bits.length;
+		return this.numberOfBits;
 	}
 
 	/**
@@ -115,7 +343,8 @@ public class Binary {
 	 * @return the left-most bit of this binary number
 	 */
 	public int getLeftMostBit() {
-		return this.bits[0];
+		int p = this.numberOfBits - 1;
+		return (int) (this.words[p >>> 6] >>> p) & 1;
 	}
 
 	/**
@@ -124,7 +353,7 @@ public class Binary {
 	 * @return the right-most bit of this binary number
 	 */
 	public int getRightMostBit() {
-		return this.bits[this.numberOfBits() - 1];
+		return (int) this.words[0] & 1;
 	}
 	
 	/**
@@ -141,7 +370,8 @@ public class Binary {
 	 */
 	public int getBit(int index) {
 		this.checkIndex(index);
-		return this.bits[index]; 
+		int p = this.position(index);
+		return (int) (this.words[p >>> 6] >>> p) & 1;
 	}
 
 	/**
@@ -162,7 +392,114 @@ public class Binary {
 	public void setBit(int index, int value) {
 		this.checkIndex(index);
 		this.checkValue(value);
-		this.bits[index] = value;
+		int p = this.position(index);
+		long mask = 1L << p;
+		long old = this.words[p >>> 6];
+		if (((old & mask) != 0) == (value == 1)) {
+			// the bit already has the value; shared words need not be copied
+			return;
+		}
+		this.own();
+		this.words[p >>> 6] = old ^ mask;
+		this.hash = 0;
+		this.hashIsZero = false;
+		if (this.rankSelectIndex != null) {
+			this.rankSelectIndex.update(p, value == 1 ? 1 : -1);
+		}
+	}
+
+	/**
+	 * Returns the {@code len} bits at positions {@code q} to
+	 * {@code q + len - 1}, counted from the right-most bit, as the low bits
+	 * of a {@code long}. Reads at most two words.
+	 * 
+	 * @param q the position of the right-most bit to read
+	 * @param len the number of bits to read, from 1 to 64
+	 * @return the bits
+	 */
+	long bitsAt(int q, int len) {
+		int i = q >>> 6;
+		int shift = q & (WORD_SIZE - 1);
+		long value = this.words[i] >>> shift;
+		if (shift + len > WORD_SIZE) {
+			value |= this.words[i + 1] << (WORD_SIZE - shift);
+		}
+		return value & (-1L >>> (WORD_SIZE - len));
+	}
+
+	/**
+	 * Replaces the {@code len} bits at positions {@code q} to
+	 * {@code q + len - 1}, counted from the right-most bit, by the low bits
+	 * of {@code value}; the other bits of {@code value} are ignored. Writes
+	 * at most two words. The caller must have called {@link #mutableWords()}
+	 * before, since this method does not copy shared words or discard the
+	 * information derived from the bits.
+	 * 
+	 * @param q the position of the right-most bit to write
+	 * @param len the number of bits to write, from 1 to 64
+	 * @param value the bits to write
+	 */
+	void putBitsAt(int q, int len, long value) {
+		int i = q >>> 6;
+		int shift = q & (WORD_SIZE - 1);
+		long mask = -1L >>> (WORD_SIZE - len);
+		value &= mask;
+		this.words[i] = (this.words[i] & ~(mask << shift)) | (value << shift);
+		if (shift + len > WORD_SIZE) {
+			int rest = WORD_SIZE - shift;
+			this.words[i + 1] = (this.words[i + 1] & ~(mask >>> rest)) | (value >>> rest);
+		}
+	}
+
+	/**
+	 * Returns the {@code len} bits starting at index {@code from} as a
+	 * {@code long}. The bit at index {@code from} becomes the most
+	 * significant of the {@code len} low bits of the result and the bit at
+	 * index {@code from + len - 1} becomes its right-most bit; the other bits
+	 * of the result are 0. This takes constant time: it reads at most two
+	 * words.
+	 * 
+	 * <p>
+	 * For example, {@code extractBits(12, 16)} returns the 16-bit field at
+	 * indexes 12 to 27.
+	 * 
+	 * @param from
+	 *            the index of the first bit to extract
+	 * @param len
+	 *            the number of bits to extract, from 1 to 64
+	 * @return the extracted bits
+	 * @throws IllegalArgumentException
+	 *             if len is not between 1 and 64, or if the bits are not all
+	 *             inside this binary number
+	 */
+	public long extractBits(int from, int len) {
+		if (len < 1 || len > WORD_SIZE || from < 0 || from > this.numberOfBits - len) {
+			throw new IllegalArgumentException();
+		}
+		return this.bitsAt(this.numberOfBits - from - len, len);
+	}
+
+	/**
+	 * Returns a view of the bits of this binary number from index
+	 * {@code from} (inclusive) to index {@code to} (exclusive). The view
+	 * shares the bits of this binary number: changes made to this binary
+	 * number are seen by the view, and bits set through the view change this
+	 * binary number. Creating a view takes constant time.
+	 * 
+	 * @param from
+	 *            the index of the first bit of the view
+	 * @param to
+	 *            the index after the last bit of the view
+	 * @return a view of the specified bits
+	 * @throws IllegalArgumentException
+	 *             if from is negative, if to is greater than
+	 *             {@code numberOfBits()}, or if from is not less than to
+	 */
+	public BinarySlice slice(int from, int to) {
+		if (from < 0 || to > this.numberOfBits || from >= to) {
+			throw new IllegalArgumentException();
+		}
+		return new BinarySlice(this, from, to - from);
 	}
 
 	/**
@@ -175,42 +512,1589 @@ public class Binary {
 	 * original left-most bit is not equal to 1.
 	 */
 	public void shiftLeft() {
-		for (int i = 1; i < this.numberOfBits(); i++) {
-			this.bits[i - 1] = this.bits[i];
+		this.shiftLeft(1);
+	}
+
+	/**
+	 * Checks if the specified shift or rotation distance is non-negative.
+	 * 
+	 * @param k the distance to check
+	 * @throws IllegalArgumentException
+	 *            if k is negative
+	 */
+	private static void checkDistance(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("distance must be non-negative");
 		}
-		this.bits[this.numberOfBits() - 1] = 0;
 	}
 
 	/**
-	 * Returns the decimal (base-10) representation of this binary number
-	 * as an {@code int} value. The result will overflow if the binary
-	 * number has a decimal value that cannot be represented as an
-	 * {@code int}.
+	 * Moves the bits stored in the specified words {@code k} positions
+	 * towards the most significant end. Bits moved past the end of the array
+	 * are discarded and the vacated positions are filled with 0.
 	 * 
-	 * @return the decimal (base-10) representation of this binary number
+	 * @param w the words to shift
+	 * @param k the non-negative shift distance
 	 */
-	public int toDecimal() {
-		int sum = 0;
-		for (int i = 0; i < this.numberOfBits(); i++) {
-			sum += Math.pow(2, i) * this.bits[this.numberOfBits() - 1 - i];
+	private static void shiftUp(long[] w, int k) {
+		int words = k >>> 6;
+		int bits = k & (WORD_SIZE - 1);
+		for (int i = w.length - 1; i >= 0; i--) {
+			int src = i - words;
+			long v = 0;
+			if (src >= 0) {
+				v = w[src] << bits;
+				if (bits != 0 && src > 0) {
+					v |= w[src - 1] >>> (WORD_SIZE - bits);
+				}
+			}
+			w[i] = v;
 		}
-		return sum;
 	}
 
 	/**
-	 * Returns a string representation of this binary number. The returned
-	 * string is made up of the bit values (0 or 1) of the number from
-	 * the left-most bit to the right-most bit.
+	 * Moves the bits stored in the specified words {@code k} positions
+	 * towards the least significant end. Bits moved past the start of the
+	 * array are discarded and the vacated positions are filled with 0.
 	 * 
-	 * @return a string representation of this binary number
+	 * @param w the words to shift
+	 * @param k the non-negative shift distance
 	 */
-	@Override
-	public String toString() {
-		String s = Arrays.toString(this.bits);
-		s = s.replaceAll(", ", "");
-		s = s.replaceAll("\\[", "");
-		s = s.replaceAll("\\]", "");
-		return s;
+	private static void shiftDown(long[] w, int k) {
+		int words = k >>> 6;
+		int bits = k & (WORD_SIZE - 1);
+		for (int i = 0; i < w.length; i++) {
+			int src = i + words;
+			long v = 0;
+			if (src < w.length) {
+				v = w[src] >>> bits;
+				if (bits != 0 && src + 1 < w.length) {
+					v |= w[src + 1] << (WORD_SIZE - bits);
+				}
+			}
+			w[i] = v;
+		}
+	}
+
+	/**
+	 * Shifts all of the bits of this binary number {@code k} positions to the
+	 * left. The original {@code k} left-most bits are discarded and the
+	 * {@code k} right-most bits are set to 0. If {@code k} is greater than or
+	 * equal to the number of bits then every bit is set to 0.
+	 * 
+	 * <p>
+	 * This is equivalent to multiplying the number by 2 to the power
+	 * {@code k} and keeping only the right-most {@code numberOfBits()} bits.
+	 * The shift moves whole words, taking time proportional to
+	 * {@code numberOfBits() / 64} for any {@code k}.
+	 * 
+	 * @param k
+	 *            the shift distance
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public void shiftLeft(int k) {
+		checkDistance(k);
+		this.modified();
+		if (k >= this.numberOfBits) {
+			Arrays.fill(this.words, 0L);
+			return;
+		}
+		shiftUp(this.words, k);
+		this.words[this.words.length - 1] &= this.lastWordMask();
+	}
+
+	/**
+	 * Shifts all of the bits of this binary number {@code k} positions to the
+	 * right. The original {@code k} right-most bits are discarded and the
+	 * {@code k} left-most bits are set to 0 (a logical shift). If {@code k} is
+	 * greater than or equal to the number of bits then every bit is set to 0.
+	 * 
+	 * <p>
+	 * This is equivalent to dividing the number by 2 to the power {@code k}
+	 * and discarding the remainder. The shift moves whole words, taking time
+	 * proportional to {@code numberOfBits() / 64} for any {@code k}.
+	 * 
+	 * @param k
+	 *            the shift distance
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public void shiftRight(int k) {
+		checkDistance(k);
+		this.modified();
+		if (k >= this.numberOfBits) {
+			Arrays.fill(this.words, 0L);
+			return;
+		}
+		shiftDown(this.words, k);
+	}
+
+	/**
+	 * Rotates all of the bits of this binary number {@code k} positions to
+	 * the left. The bits shifted out on the left are shifted back in on the
+	 * right. Rotating by a multiple of {@code numberOfBits()} does not change
+	 * this binary number.
+	 * 
+	 * @param k
+	 *            the rotation distance
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public void rotateLeft(int k) {
+		checkDistance(k);
+		this.modified();
+		int r = k % this.numberOfBits;
+		if (r == 0) {
+			return;
+		}
+		long[] low = this.words.clone();
+		shiftDown(low, this.numberOfBits - r);
+		shiftUp(this.words, r);
+		for (int i = 0; i < low.length; i++) {
+			this.words[i] |= low[i];
+		}
+		this.words[this.words.length - 1] &= this.lastWordMask();
+	}
+
+	/**
+	 * Rotates all of the bits of this binary number {@code k} positions to
+	 * the right. The bits shifted out on the right are shifted back in on the
+	 * left. Rotating by a multiple of {@code numberOfBits()} does not change
+	 * this binary number.
+	 * 
+	 * @param k
+	 *            the rotation distance
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public void rotateRight(int k) {
+		checkDistance(k);
+		int r = k % this.numberOfBits;
+		if (r != 0) {
+			this.rotateLeft(this.numberOfBits - r);
+		}
+	}
+
+	/**
+	 * Returns a new binary number equal to this binary number shifted
+	 * {@code k} positions to the left. This binary number is not changed.
+	 * 
+	 * @param k
+	 *            the shift distance
+	 * @return a new binary number equal to this number shifted k positions to
+	 *         the left
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 * @see #shiftLeft(int)
+	 */
+	public Binary shiftedLeft(int k) {
+		Binary result = this.copy();
+		result.shiftLeft(k);
+		return result;
+	}
+
+	/**
+	 * Returns a new binary number equal to this binary number shifted
+	 * {@code k} positions to the right. This binary number is not changed.
+	 * 
+	 * @param k
+	 *            the shift distance
+	 * @return a new binary number equal to this number shifted k positions to
+	 *         the right
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 * @see #shiftRight(int)
+	 */
+	public Binary shiftedRight(int k) {
+		Binary result = this.copy();
+		result.shiftRight(k);
+		return result;
+	}
+
+	/**
+	 * Returns a new binary number equal to this binary number rotated
+	 * {@code k} positions to the left. This binary number is not changed.
+	 * 
+	 * @param k
+	 *            the rotation distance
+	 * @return a new binary number equal to this number rotated k positions to
+	 *         the left
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 * @see #rotateLeft(int)
+	 */
+	public Binary rotatedLeft(int k) {
+		Binary result = this.copy();
+		result.rotateLeft(k);
+		return result;
+	}
+
+	/**
+	 * Returns a new binary number equal to this binary number rotated
+	 * {@code k} positions to the right. This binary number is not changed.
+	 * 
+	 * @param k
+	 *            the rotation distance
+	 * @return a new binary number equal to this number rotated k positions to
+	 *         the right
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 * @see #rotateRight(int)
+	 */
+	public Binary rotatedRight(int k) {
+		Binary result = this.copy();
+		result.rotateRight(k);
+		return result;
+	}
+
+	/**
+	 * Checks if the specified binary number has the same number of bits as
+	 * this binary number.
+	 * 
+	 * @param other the binary number to check
+	 * @throws IllegalArgumentException
+	 *            if other does not have the same number of bits as this
+	 *            binary number
+	 */
+	private void checkSameLength(Binary other) {
+		if (this.numberOfBits != other.numberOfBits) {
+			throw new IllegalArgumentException("binary numbers must have the same number of bits");
+		}
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise AND of the bit and
+	 * the corresponding bit of {@code other}.
+	 * 
+	 * @param other
+	 *            the binary number to AND with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void and(Binary other) {
+		this.checkSameLength(other);
+		this.modified();
+		WordKernels.and(this.words, other.words, 0, this.words.length);
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise OR of the bit and
+	 * the corresponding bit of {@code other}.
+	 * 
+	 * @param other
+	 *            the binary number to OR with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void or(Binary other) {
+		this.checkSameLength(other);
+		this.modified();
+		WordKernels.or(this.words, other.words, 0, this.words.length);
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise XOR (exclusive or) of
+	 * the bit and the corresponding bit of {@code other}.
+	 * 
+	 * @param other
+	 *            the binary number to XOR with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void xor(Binary other) {
+		this.checkSameLength(other);
+		this.modified();
+		WordKernels.xor(this.words, other.words, 0, this.words.length);
+	}
+
+	/**
+	 * Sets to 0 each bit of this binary number whose corresponding bit in
+	 * {@code other} is 1.
+	 * 
+	 * @param other
+	 *            the binary number whose 1 bits are cleared from this binary
+	 *            number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void andNot(Binary other) {
+		this.checkSameLength(other);
+		this.modified();
+		WordKernels.andNot(this.words, other.words, 0, this.words.length);
+	}
+
+	/**
+	 * Inverts every bit of this binary number.
+	 */
+	public void not() {
+		this.modified();
+		WordKernels.not(this.words, 0, this.words.length);
+		this.words[this.words.length - 1] &= this.lastWordMask();
+	}
+
+	/**
+	 * Returns a new binary number equal to the bitwise AND of {@code a} and
+	 * {@code b}.
+	 * 
+	 * @param a
+	 *            a binary number
+	 * @param b
+	 *            a binary number having the same number of bits as a
+	 * @return the bitwise AND of a and b
+	 * @throws IllegalArgumentException
+	 *             if a and b do not have the same number of bits
+	 */
+	public static Binary and(Binary a, Binary b) {
+		Binary result = a.copy();
+		result.and(b);
+		return result;
+	}
+
+	/**
+	 * Returns a new binary number equal to the bitwise OR of {@code a} and
+	 * {@code b}.
+	 * 
+	 * @param a
+	 *            a binary number
+	 * @param b
+	 *            a binary number having the same number of bits as a
+	 * @return the bitwise OR of a and b
+	 * @throws IllegalArgumentException
+	 *             if a and b do not have the same number of bits
+	 */
+	public static Binary or(Binary a, Binary b) {
+		Binary result = a.copy();
+		result.or(b);
+		return result;
+	}
+
+	/**
+	 * Returns a new binary number equal to the bitwise XOR of {@code a} and
+	 * {@code b}.
+	 * 
+	 * @param a
+	 *            a binary number
+	 * @param b
+	 *            a binary number having the same number of bits as a
+	 * @return the bitwise XOR of a and b
+	 * @throws IllegalArgumentException
+	 *             if a and b do not have the same number of bits
+	 */
+	public static Binary xor(Binary a, Binary b) {
+		Binary result = a.copy();
+		result.xor(b);
+		return result;
+	}
+
+	/**
+	 * Returns a new binary number equal to {@code a} with every bit that is 1
+	 * in {@code b} set to 0.
+	 * 
+	 * @param a
+	 *            a binary number
+	 * @param b
+	 *            a binary number having the same number of bits as a
+	 * @return the bitwise AND of a and the complement of b
+	 * @throws IllegalArgumentException
+	 *             if a and b do not have the same number of bits
+	 */
+	public static Binary andNot(Binary a, Binary b) {
+		Binary result = a.copy();
+		result.andNot(b);
+		return result;
+	}
+
+	/**
+	 * Returns a new binary number equal to {@code a} with every bit inverted.
+	 * 
+	 * @param a
+	 *            a binary number
+	 * @return the bitwise complement of a
+	 */
+	public static Binary not(Binary a) {
+		Binary result = a.copy();
+		result.not();
+		return result;
+	}
+
+	/**
+	 * Returns the number of bits of this binary number that are equal to 1.
+	 * 
+	 * @return the number of 1 bits in this binary number
+	 */
+	public int bitCount() {
+		return (int) WordKernels.bitCount(this.words, 0, this.words.length);
+	}
+
+	/**
+	 * Returns the index of the first bit equal to {@code value} at or to the
+	 * right of position {@code p}, or -1 if there is no such bit. Positions are
+	 * counted from the right-most bit.
+	 * 
+	 * @param p a position of this binary number
+	 * @param value 1 to find a set bit, 0 to find a clear bit
+	 * @return the index of the bit found, or -1 if there is no such bit
+	 */
+	private int nextIndex(int p, int value) {
+		long flip = value == 1 ? 0L : -1L;
+		int i = p >>> 6;
+		// keep only the positions at or below p
+		long word = (this.words[i] ^ flip) & (-1L >>> (WORD_SIZE - 1 - (p & (WORD_SIZE - 1))));
+		while (word == 0) {
+			if (--i < 0) {
+				return -1;
+			}
+			word = this.words[i] ^ flip;
+		}
+		int found = i * WORD_SIZE + WORD_SIZE - 1 - Long.numberOfLeadingZeros(word);
+		return this.position(found);
+	}
+
+	/**
+	 * Returns the index of the first bit that is equal to 1 at or after the
+	 * specified index, or -1 if there is no such bit. Indexes increase from
+	 * the left-most bit (index 0) to the right-most bit.
+	 * 
+	 * @param fromIndex
+	 *            the index to start searching from
+	 * @return the index of the next 1 bit, or -1 if there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if fromIndex is negative
+	 */
+	public int nextSetBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (fromIndex >= this.numberOfBits) {
+			return -1;
+		}
+		return this.nextIndex(this.position(fromIndex), 1);
+	}
+
+	/**
+	 * Returns the index of the first bit that is equal to 0 at or after the
+	 * specified index, or -1 if there is no such bit. Indexes increase from
+	 * the left-most bit (index 0) to the right-most bit.
+	 * 
+	 * @param fromIndex
+	 *            the index to start searching from
+	 * @return the index of the next 0 bit, or -1 if there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if fromIndex is negative
+	 */
+	public int nextClearBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (fromIndex >= this.numberOfBits) {
+			return -1;
+		}
+		return this.nextIndex(this.position(fromIndex), 0);
+	}
+
+	/**
+	 * Returns the index of the last bit that is equal to 1 at or before the
+	 * specified index, or -1 if there is no such bit. Indexes increase from
+	 * the left-most bit (index 0) to the right-most bit.
+	 * 
+	 * @param fromIndex
+	 *            the index to start searching backwards from; indexes greater
+	 *            than the last index of this binary number start the search
+	 *            at the right-most bit
+	 * @return the index of the previous 1 bit, or -1 if there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if fromIndex is less than -1
+	 */
+	public int previousSetBit(int fromIndex) {
+		if (fromIndex < -1) {
+			throw new IllegalArgumentException();
+		}
+		if (fromIndex == -1) {
+			return -1;
+		}
+		int p = this.position(Math.min(fromIndex, this.numberOfBits - 1));
+		int i = p >>> 6;
+		// keep only the positions at or above p
+		long word = this.words[i] & (-1L << p);
+		while (word == 0) {
+			if (++i == this.words.length) {
+				return -1;
+			}
+			word = this.words[i];
+		}
+		return this.position(i * WORD_SIZE + Long.numberOfTrailingZeros(word));
+	}
+
+	/**
+	 * Calls {@code action} with the index of every bit of this binary number
+	 * that is equal to 1, in increasing order. Words that are 0 are skipped
+	 * as a whole, and the indexes are not checked one by one as with
+	 * {@link #getBit(int)}. The action must not change this binary number.
+	 * 
+	 * @param action
+	 *            the action to call with the index of each 1 bit
+	 */
+	public void forEachSetBit(IntConsumer action) {
+		long[] w = this.words;
+		// index of the highest bit of word i is base - 64 * i
+		int base = this.numberOfBits - WORD_SIZE;
+		for (int i = w.length - 1; i >= 0; i--) {
+			long word = w[i];
+			while (word != 0) {
+				int z = Long.numberOfLeadingZeros(word);
+				word &= ~(Long.MIN_VALUE >>> z);
+				action.accept(base - i * WORD_SIZE + z);
+			}
+		}
+	}
+
+	/**
+	 * Returns an iterator over the indexes of the bits of this binary number
+	 * that are equal to 1, in increasing order, without boxing them.
+	 * 
+	 * <p>
+	 * The iterator reads the words of this binary number in place, without
+	 * copying them, so it must not be used while this binary number is
+	 * changed: a change may or may not be seen by the iterator.
+	 * 
+	 * @return an iterator over the indexes of the 1 bits
+	 */
+	public PrimitiveIterator.OfInt setBitIterator() {
+		return Spliterators.iterator(this.setBitSpliterator());
+	}
+
+	/**
+	 * Returns a stream of the indexes of the bits of this binary number that
+	 * are equal to 1, in increasing order. A parallel stream splits the words
+	 * into ranges that are scanned by different threads.
+	 * 
+	 * <p>
+	 * A sequential stream reads the words in place, like
+	 * {@link #setBitIterator()}. A parallel stream marks the words as shared
+	 * when it first splits them, as {@link #Binary(Binary)} does, so that
+	 * changing this binary number while the stream runs copies the words
+	 * first and the threads keep reading the bits as they were when the
+	 * stream started.
+	 * 
+	 * @return a stream of the indexes of the 1 bits
+	 * @see #setBitIterator()
+	 */
+	public IntStream setBits() {
+		return StreamSupport.intStream(this.setBitSpliterator(), false);
+	}
+
+	/**
+	 * Returns a spliterator over the indexes of the 1 bits of this binary
+	 * number, which marks the words as shared only when it is split.
+	 * 
+	 * @return a spliterator over the indexes of the 1 bits
+	 */
+	private SetBitSpliterator setBitSpliterator() {
+		return new SetBitSpliterator(this);
+	}
+
+	/**
+	 * Returns the number of bits of this binary number that are equal to 1,
+	 * counting the words in parallel in the common {@code ForkJoinPool}.
+	 * 
+	 * <p>
+	 * The words are split into chunks of {@link #getParallelThreshold()}
+	 * words that are counted by different threads. A binary number having at
+	 * most one chunk of words, or a common pool that has only one thread,
+	 * is counted by the calling thread as in {@link #bitCount()}. The same
+	 * applies to the other parallel methods.
+	 * 
+	 * @return the number of 1 bits in this binary number
+	 */
+	public int parallelBitCount() {
+		return (int) ParallelKernels.bitCount(ForkJoinPool.commonPool(), this.words, parallelChunk());
+	}
+
+	/**
+	 * Returns the number of words per task of the parallel methods, or a
+	 * number of words greater than any array if the common pool has only one
+	 * thread.
+	 * 
+	 * @return the number of words per task
+	 */
+	private static int parallelChunk() {
+		return ForkJoinPool.getCommonPoolParallelism() > 1 ? parallelThreshold : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the index of the first bit that is equal to 1 at or after the
+	 * specified index, or -1 if there is no such bit, searching the words in
+	 * parallel. The result is the same as that of {@link #nextSetBit(int)}.
+	 * 
+	 * @param fromIndex
+	 *            the index to start searching from
+	 * @return the index of the next 1 bit, or -1 if there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if fromIndex is negative
+	 * @see #parallelBitCount()
+	 */
+	public int parallelNextSetBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (fromIndex >= this.numberOfBits) {
+			return -1;
+		}
+		int p = this.position(fromIndex);
+		int i = p >>> 6;
+		// keep only the positions at or below p
+		long word = this.words[i] & (-1L >>> (WORD_SIZE - 1 - (p & (WORD_SIZE - 1))));
+		if (word == 0) {
+			i = ParallelKernels.lastNonZero(ForkJoinPool.commonPool(), this.words, i, parallelChunk());
+			if (i < 0) {
+				return -1;
+			}
+			word = this.words[i];
+		}
+		return this.position(i * WORD_SIZE + WORD_SIZE - 1 - Long.numberOfLeadingZeros(word));
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise AND of the bit and
+	 * the corresponding bit of {@code other}, processing the words in
+	 * parallel. The result is the same as that of {@link #and(Binary)}.
+	 * 
+	 * @param other
+	 *            the binary number to AND with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 * @see #parallelBitCount()
+	 */
+	public void parallelAnd(Binary other) {
+		this.checkSameLength(other);
+		this.modified();
+		ParallelKernels.apply(ForkJoinPool.commonPool(), WordKernels::and, this.words, other.words, parallelChunk());
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise OR of the bit and
+	 * the corresponding bit of {@code other}, processing the words in
+	 * parallel. The result is the same as that of {@link #or(Binary)}.
+	 * 
+	 * @param other
+	 *            the binary number to OR with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 * @see #parallelBitCount()
+	 */
+	public void parallelOr(Binary other) {
+		this.checkSameLength(other);
+		this.modified();
+		ParallelKernels.apply(ForkJoinPool.commonPool(), WordKernels::or, this.words, other.words, parallelChunk());
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise XOR of the bit and
+	 * the corresponding bit of {@code other}, processing the words in
+	 * parallel. The result is the same as that of {@link #xor(Binary)}.
+	 * 
+	 * @param other
+	 *            the binary number to XOR with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 * @see #parallelBitCount()
+	 */
+	public void parallelXor(Binary other) {
+		this.checkSameLength(other);
+		this.modified();
+		ParallelKernels.apply(ForkJoinPool.commonPool(), WordKernels::xor, this.words, other.words, parallelChunk());
+	}
+
+	/**
+	 * Sets to 0 each bit of this binary number whose corresponding bit in
+	 * {@code other} is 1, processing the words in parallel. The result is the
+	 * same as that of {@link #andNot(Binary)}.
+	 * 
+	 * @param other
+	 *            the binary number whose 1 bits are cleared from this binary
+	 *            number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 * @see #parallelBitCount()
+	 */
+	public void parallelAndNot(Binary other) {
+		this.checkSameLength(other);
+		this.modified();
+		ParallelKernels.apply(ForkJoinPool.commonPool(), WordKernels::andNot, this.words, other.words,
+				parallelChunk());
+	}
+
+	/**
+	 * Returns true if {@code other} has the same number of bits as this
+	 * binary number and all of its bits are equal to the bits of this binary
+	 * number, comparing the words in parallel.
+	 * 
+	 * @param other
+	 *            the binary number to compare with this binary number
+	 * @return true if the two binary numbers have the same bits
+	 * @see #parallelBitCount()
+	 */
+	public boolean parallelEquals(Binary other) {
+		if (other.numberOfBits != this.numberOfBits) {
+			return false;
+		}
+		// copies share their words until one of them is changed
+		return other.words == this.words
+				|| ParallelKernels.equal(ForkJoinPool.commonPool(), this.words, other.words, parallelChunk());
+	}
+
+	/**
+	 * Returns the largest number of 64-bit words that the parallel methods
+	 * process in one task.
+	 * 
+	 * @return the parallel threshold in words
+	 */
+	public static int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Sets the largest number of 64-bit words that the parallel methods
+	 * process in one task. Numbers having at most this many words are
+	 * processed by the calling thread. The best value depends on the cache
+	 * sizes and the number of cores of the machine; see
+	 * {@code BinaryParallelBenchmark}.
+	 * 
+	 * @param words
+	 *            the parallel threshold in words
+	 * @throws IllegalArgumentException
+	 *             if words is less than 1024
+	 */
+	public static void setParallelThreshold(int words) {
+		if (words < 1024) {
+			throw new IllegalArgumentException("threshold must be at least 1024");
+		}
+		parallelThreshold = words;
+	}
+
+	/**
+	 * Returns the rank/select directory of this binary number, building it if
+	 * this binary number has changed since it was last built.
+	 * 
+	 * @return the rank/select directory of this binary number
+	 */
+	private RankSelectIndex rankSelectIndex() {
+		RankSelectIndex index = this.rankSelectIndex;
+		if (index == null) {
+			index = new RankSelectIndex(this.words);
+			this.rankSelectIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the number of bits equal to 1 having an index less than
+	 * {@code index}; in other words, the number of 1 bits to the left of the
+	 * bit at {@code index}.
+	 * 
+	 * <p>
+	 * The first call builds a directory of bit counts that uses about 3% of
+	 * the memory of this binary number; after that every call takes constant
+	 * time. {@code setBit} keeps the directory up to date, except for the
+	 * counts before the later groups of 65536 bits, which the next call adds
+	 * up again in one pass; the other methods that change this binary number
+	 * discard it, and it is built again by the next call.
+	 * 
+	 * @param index
+	 *            an index of this binary number, or {@code numberOfBits()}
+	 *            to count every 1 bit
+	 * @return the number of 1 bits having an index less than index
+	 * @throws IllegalArgumentException
+	 *             if index is negative or greater than numberOfBits()
+	 */
+	public int rank1(int index) {
+		if (index < 0 || index > this.numberOfBits) {
+			throw new IllegalArgumentException();
+		}
+		RankSelectIndex rs = this.rankSelectIndex();
+		return rs.total() - rs.rank(this.words, this.numberOfBits - index);
+	}
+
+	/**
+	 * Returns the index of the bit equal to 1 that has exactly {@code k} 1
+	 * bits to its left, or -1 if this binary number has {@code k} or fewer 1
+	 * bits. {@code select1(0)} is the index of the left-most 1 bit.
+	 * 
+	 * <p>
+	 * This method uses the same directory as {@link #rank1(int)}; after the
+	 * directory is built a call takes time proportional to the logarithm of
+	 * the number of bits.
+	 * 
+	 * @param k
+	 *            the number of 1 bits to the left of the bit to find
+	 * @return the index of the 1 bit having k 1 bits to its left, or -1 if
+	 *         there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public int select1(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException();
+		}
+		RankSelectIndex rs = this.rankSelectIndex();
+		if (k >= rs.total()) {
+			return -1;
+		}
+		return this.position(rs.select(this.words, rs.total() - 1 - k));
+	}
+
+	/**
+	 * Adds one to this binary number. If every bit of this binary number is
+	 * 1 then the number wraps around to zero (every bit becomes 0).
+	 * 
+	 * <p>
+	 * Only the trailing 1 bits and the right-most 0 bit are changed, so the
+	 * amortized cost of incrementing is constant.
+	 * 
+	 * @return true if the number wrapped around to zero, false otherwise
+	 */
+	public boolean increment() {
+		this.modified();
+		long[] w = this.words;
+		int last = w.length - 1;
+		for (int i = 0; i < last; i++) {
+			if (++w[i] != 0) {
+				return false;
+			}
+		}
+		w[last] = (w[last] + 1) & this.lastWordMask();
+		return w[last] == 0;
+	}
+
+	/**
+	 * Subtracts one from this binary number. If every bit of this binary
+	 * number is 0 then the number wraps around to its maximum value (every bit
+	 * becomes 1).
+	 * 
+	 * <p>
+	 * Only the trailing 0 bits and the right-most 1 bit are changed, so the
+	 * amortized cost of decrementing is constant.
+	 * 
+	 * @return true if the number wrapped around to its maximum value, false
+	 *         otherwise
+	 */
+	public boolean decrement() {
+		this.modified();
+		long[] w = this.words;
+		int last = w.length - 1;
+		for (int i = 0; i < last; i++) {
+			if (w[i]-- != 0) {
+				return false;
+			}
+		}
+		boolean wrapped = w[last] == 0;
+		w[last] = (w[last] - 1) & this.lastWordMask();
+		return wrapped;
+	}
+
+	/**
+	 * Adds a non-negative value to this binary number. The number of bits of
+	 * this binary number does not change; if the sum cannot be represented
+	 * using {@code numberOfBits()} bits then the sum wraps around (i.e., the
+	 * bits that do not fit are discarded).
+	 * 
+	 * <p>
+	 * The value is added to the right-most word and the carry is propagated
+	 * one word at a time; the addition stops as soon as there is no carry
+	 * left to add.
+	 * 
+	 * @param value
+	 *            the value to add
+	 * @return true if the sum wrapped around, false otherwise
+	 * @throws IllegalArgumentException
+	 *             if value is negative
+	 */
+	public boolean add(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("value must be non-negative");
+		}
+		this.modified();
+		long[] w = this.words;
+		int last = w.length - 1;
+		long carry = value;
+		for (int i = 0; i < last && carry != 0; i++) {
+			long sum = w[i] + carry;
+			carry = Long.compareUnsigned(sum, w[i]) < 0 ? 1 : 0;
+			w[i] = sum;
+		}
+		if (carry == 0) {
+			return false;
+		}
+		long sum = w[last] + carry;
+		long mask = this.lastWordMask();
+		boolean wrapped = Long.compareUnsigned(sum, w[last]) < 0 || (sum & ~mask) != 0;
+		w[last] = sum & mask;
+		return wrapped;
+	}
+
+	/**
+	 * Adds {@code other} to this binary number. The number of bits of this
+	 * binary number does not change; if the sum cannot be represented using
+	 * {@code numberOfBits()} bits then the sum wraps around (i.e., the bits
+	 * that do not fit are discarded).
+	 * 
+	 * @param other
+	 *            the binary number to add
+	 * @return true if the sum wrapped around, false otherwise
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public boolean add(Binary other) {
+		this.checkSameLength(other);
+		this.modified();
+		long carry = WordArithmetic.addInto(this.words, 0, other.words, other.words.length);
+		int last = this.words.length - 1;
+		long mask = this.lastWordMask();
+		boolean wrapped = carry != 0 || (this.words[last] & ~mask) != 0;
+		this.words[last] &= mask;
+		return wrapped;
+	}
+
+	/**
+	 * Subtracts {@code other} from this binary number. If {@code other} is
+	 * greater than this binary number then the difference wraps around (i.e.,
+	 * the result is the difference plus 2 to the power
+	 * {@code numberOfBits()}) and a borrow is reported.
+	 * 
+	 * @param other
+	 *            the binary number to subtract
+	 * @return true if the subtraction needed a borrow (the difference wrapped
+	 *         around), false otherwise
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public boolean subtract(Binary other) {
+		this.checkSameLength(other);
+		this.modified();
+		long borrow = WordArithmetic.subtractFrom(this.words, other.words, other.words.length);
+		this.words[this.words.length - 1] &= this.lastWordMask();
+		return borrow != 0;
+	}
+
+	/**
+	 * Subtracts {@code other} from this binary number, throwing an exception
+	 * instead of wrapping around if {@code other} is greater than this binary
+	 * number. This binary number is not changed if an exception is thrown.
+	 * 
+	 * @param other
+	 *            the binary number to subtract
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 * @throws ArithmeticException
+	 *             if other is greater than this binary number
+	 */
+	public void subtractExact(Binary other) {
+		this.checkSameLength(other);
+		if (this.compareTo(other) < 0) {
+			throw new ArithmeticException("subtraction underflow");
+		}
+		this.subtract(other);
+	}
+
+	/**
+	 * Returns the product of {@code a} and {@code b}. The product has
+	 * {@code a.numberOfBits() + b.numberOfBits()} bits so it never overflows.
+	 * 
+	 * <p>
+	 * Small numbers are multiplied using the schoolbook method. When both
+	 * numbers have at least {@link #getKaratsubaThreshold()} words of 64 bits
+	 * the Karatsuba method is used, which needs about
+	 * {@code n^1.585} word multiplications instead of {@code n^2}.
+	 * 
+	 * @param a
+	 *            a binary number
+	 * @param b
+	 *            a binary number
+	 * @return the product of a and b
+	 * @throws ArithmeticException
+	 *             if the product would have more than
+	 *             {@code Integer.MAX_VALUE} bits
+	 */
+	public static Binary multiply(Binary a, Binary b) {
+		int n = Math.addExact(a.numberOfBits, b.numberOfBits);
+		int alen = WordArithmetic.length(a.words, a.words.length);
+		int blen = WordArithmetic.length(b.words, b.words.length);
+		long[] product = WordArithmetic.multiply(a.words, alen, b.words, blen, karatsubaThreshold);
+		return new Binary(Arrays.copyOf(product, wordCount(n)), n);
+	}
+
+	/**
+	 * Returns the number of 64-bit words that both operands of
+	 * {@code multiply} must have for Karatsuba multiplication to be used.
+	 * 
+	 * @return the Karatsuba threshold in words
+	 */
+	public static int getKaratsubaThreshold() {
+		return karatsubaThreshold;
+	}
+
+	/**
+	 * Sets the number of 64-bit words that both operands of {@code multiply}
+	 * must have for Karatsuba multiplication to be used. The best value
+	 * depends on the machine; see {@code BinaryArithmeticBenchmark}.
+	 * 
+	 * @param words
+	 *            the Karatsuba threshold in words
+	 * @throws IllegalArgumentException
+	 *             if words is less than 4
+	 */
+	public static void setKaratsubaThreshold(int words) {
+		if (words < 4) {
+			throw new IllegalArgumentException("threshold must be at least 4");
+		}
+		karatsubaThreshold = words;
+	}
+
+	/**
+	 * Returns the decimal (base-10) representation of this binary number
+	 * as an {@code int} value. The result will overflow if the binary
+	 * number has a decimal value that cannot be represented as an
+	 * {@code int}.
+	 * 
+	 * @return the decimal (base-10) representation of this binary number
+	 */
+	public int toDecimal() {
+		// values that do not fit in an int produce Integer.MAX_VALUE
+		for (int i = this.words.length - 1; i > 0; i--) {
+			if (this.words[i] != 0) {
+				return Integer.MAX_VALUE;
+			}
+		}
+		long low = this.words[0];
+		if (low < 0 || low > Integer.MAX_VALUE) {
+			return Integer.MAX_VALUE;
+		}
+		return (int) low;
+	}
+
+	/**
+	 * Returns the value of the right-most 64 bits of this binary number as a
+	 * {@code long}. If this binary number has more than 64 bits then the
+	 * other bits are ignored; if the 64th bit from the right is 1 then the
+	 * returned value is negative (in the same way as
+	 * {@code BigInteger.longValue}).
+	 * 
+	 * @return the value of the right-most 64 bits of this binary number
+	 */
+	public long toLong() {
+		return this.words[0];
+	}
+
+	/**
+	 * Returns the value of this binary number as a {@code long}.
+	 * 
+	 * @return the value of this binary number
+	 * @throws ArithmeticException
+	 *             if the value of this binary number is greater than
+	 *             {@code Long.MAX_VALUE}
+	 */
+	public long toLongExact() {
+		for (int i = this.words.length - 1; i > 0; i--) {
+			if (this.words[i] != 0) {
+				throw new ArithmeticException("value does not fit in a long");
+			}
+		}
+		long value = this.words[0];
+		if (value < 0) {
+			throw new ArithmeticException("value does not fit in a long");
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the value of this binary number as a {@code BigInteger}.
+	 * 
+	 * @return the value of this binary number
+	 */
+	public BigInteger toBigInteger() {
+		long[] w = this.words;
+		byte[] magnitude = new byte[w.length * Long.BYTES];
+		int j = magnitude.length;
+		for (long word : w) {
+			for (int b = 0; b < Long.BYTES; b++) {
+				magnitude[--j] = (byte) word;
+				word >>>= Byte.SIZE;
+			}
+		}
+		return new BigInteger(1, magnitude);
+	}
+
+	/**
+	 * Returns a binary number equal to the specified non-negative value. The
+	 * returned number has the fewest bits needed to represent the value (and
+	 * one bit if the value is zero).
+	 * 
+	 * @param value
+	 *            the value of the binary number
+	 * @return a binary number equal to value
+	 * @throws IllegalArgumentException
+	 *             if value is negative
+	 */
+	public static Binary valueOf(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("value must be non-negative");
+		}
+		int n = Math.max(1, Long.SIZE - Long.numberOfLeadingZeros(value));
+		return new Binary(new long[] { value }, n);
+	}
+
+	/**
+	 * Returns a binary number equal to the specified non-negative value. The
+	 * returned number has the fewest bits needed to represent the value (and
+	 * one bit if the value is zero).
+	 * 
+	 * @param value
+	 *            the value of the binary number
+	 * @return a binary number equal to value
+	 * @throws IllegalArgumentException
+	 *             if value is negative
+	 */
+	public static Binary valueOf(BigInteger value) {
+		if (value.signum() < 0) {
+			throw new IllegalArgumentException("value must be non-negative");
+		}
+		int n = Math.max(1, value.bitLength());
+		long[] w = new long[wordCount(n)];
+		byte[] bytes = value.toByteArray();
+		int p = 0;
+		for (int j = bytes.length - 1; j >= 0 && p < n; j--) {
+			w[p >>> 6] |= (bytes[j] & 0xFFL) << p;
+			p += Byte.SIZE;
+		}
+		return new Binary(w, n);
+	}
+
+	/**
+	 * Returns a string representation of this binary number. The returned
+	 * string is made up of the bit values (0 or 1) of the number from
+	 * the left-most bit to the right-most bit.
+	 * 
+	 * @return a string representation of this binary number
+	 */
+	@Override
+	public String toString() {
+		char[] c = new char[this.numberOfBits];
+		for (int i = 0; i < c.length; i++) {
+			int p = this.position(i);
+			c[i] = (char) ('0' + ((this.words[p >>> 6] >>> p) & 1));
+		}
+		return new String(c);
+	}
+
+	/**
+	 * Checks if the specified radix is one of the radixes supported by the
+	 * text methods.
+	 * 
+	 * @param radix the radix to check
+	 * @throws IllegalArgumentException
+	 *            if radix is not 2, 10, or 16
+	 */
+	private static void checkRadix(int radix) {
+		if (radix != 2 && radix != 10 && radix != 16) {
+			throw new IllegalArgumentException("radix must be 2, 10, or 16");
+		}
+	}
+
+	/**
+	 * Appends the bits of this binary number to {@code sb}, from the
+	 * left-most bit to the right-most bit. The appended text is the same as
+	 * {@link #toString()}, but no temporary string or array is created.
+	 * 
+	 * @param sb
+	 *            the string builder to append to
+	 * @return sb
+	 */
+	public StringBuilder appendTo(StringBuilder sb) {
+		sb.ensureCapacity(sb.length() + this.numberOfBits);
+		try {
+			BinaryText.appendBinary(this.words, this.numberOfBits, sb);
+		} catch (IOException x) {
+			// a StringBuilder does not throw IOException
+			throw new AssertionError(x);
+		}
+		return sb;
+	}
+
+	/**
+	 * Appends the bits of this binary number to {@code out}, from the
+	 * left-most bit to the right-most bit. The appended text is the same as
+	 * {@link #toString()}.
+	 * 
+	 * @param out
+	 *            the destination of the text
+	 * @throws IOException
+	 *             if out throws IOException
+	 */
+	public void appendTo(Appendable out) throws IOException {
+		BinaryText.appendBinary(this.words, this.numberOfBits, out);
+	}
+
+	/**
+	 * Appends this binary number to {@code out} in the specified radix:
+	 * 
+	 * <ul>
+	 * <li>radix 2 appends {@code numberOfBits()} binary digits, as
+	 * {@link #toString()},</li>
+	 * <li>radix 16 appends one lowercase hexadecimal digit for every 4 bits
+	 * (rounded up), including leading zeros,</li>
+	 * <li>radix 10 appends the decimal value without leading zeros.</li>
+	 * </ul>
+	 * 
+	 * <p>
+	 * Radix 2 and 16 do not create any objects. Radix 10 uses a scratch
+	 * array, 134 words longer than the number, for values of more than 64
+	 * bits; each thread keeps that array for later calls, so values of up to
+	 * 15360 bits are formatted without allocating once it has grown. Values
+	 * of more than 4096 bits are split in two by division by powers of ten,
+	 * and above 15360 bits the divisions use cached reciprocals and
+	 * Karatsuba multiplication, which take less than quadratic time but
+	 * allocate temporary arrays.
+	 * 
+	 * @param out
+	 *            the destination of the text
+	 * @param radix
+	 *            the radix (2, 10, or 16)
+	 * @throws IllegalArgumentException
+	 *             if radix is not 2, 10, or 16
+	 * @throws IOException
+	 *             if out throws IOException
+	 */
+	public void appendTo(Appendable out, int radix) throws IOException {
+		checkRadix(radix);
+		if (radix == 2) {
+			BinaryText.appendBinary(this.words, this.numberOfBits, out);
+		} else if (radix == 16) {
+			BinaryText.appendHex(this.words, this.numberOfBits, out);
+		} else {
+			BinaryText.appendDecimal(this.words, out);
+		}
+	}
+
+	/**
+	 * Returns a string representation of this binary number in the specified
+	 * radix, as described in {@link #appendTo(Appendable, int)}.
+	 * 
+	 * @param radix
+	 *            the radix (2, 10, or 16)
+	 * @return a string representation of this binary number in the radix
+	 * @throws IllegalArgumentException
+	 *             if radix is not 2, 10, or 16
+	 */
+	public String toString(int radix) {
+		StringBuilder sb = new StringBuilder(radix == 2 ? this.numberOfBits : this.numberOfBits / 3 + 1);
+		try {
+			this.appendTo(sb, radix);
+		} catch (IOException x) {
+			// a StringBuilder does not throw IOException
+			throw new AssertionError(x);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the binary number written as binary digits in {@code s}, for
+	 * example a string returned by {@link #toString()}. The binary number has
+	 * one bit for every digit.
+	 * 
+	 * @param s
+	 *            the binary digits
+	 * @return the binary number written in s
+	 * @throws NumberFormatException
+	 *             if s is empty or contains a character other than 0 or 1
+	 */
+	public static Binary parse(CharSequence s) {
+		return parse(s, 2);
+	}
+
+	/**
+	 * Returns the binary number written in {@code s} in the specified radix.
+	 * The number of bits of the returned binary number is
+	 * 
+	 * <ul>
+	 * <li>the number of digits for radix 2,</li>
+	 * <li>4 times the number of digits for radix 16,</li>
+	 * <li>the fewest bits needed to represent the value (and one bit if the
+	 * value is zero) for radix 10.</li>
+	 * </ul>
+	 * 
+	 * <p>
+	 * Long decimal strings are parsed by splitting them in halves and
+	 * combining the halves with one multiplication, which takes less than
+	 * quadratic time.
+	 * 
+	 * @param s
+	 *            the digits of the number
+	 * @param radix
+	 *            the radix (2, 10, or 16)
+	 * @return the binary number written in s
+	 * @throws IllegalArgumentException
+	 *             if radix is not 2, 10, or 16
+	 * @throws NumberFormatException
+	 *             if s is empty or contains a character that is not a digit
+	 *             in the radix
+	 */
+	public static Binary parse(CharSequence s, int radix) {
+		checkRadix(radix);
+		int len = s.length();
+		if (len == 0) {
+			throw new NumberFormatException("empty string");
+		}
+		if (radix == 10) {
+			long[] w = BinaryText.parseDecimal(s, 0, len);
+			int wlen = Math.max(1, WordArithmetic.length(w, w.length));
+			int n = Math.max(1, (wlen - 1) * WORD_SIZE + WORD_SIZE - Long.numberOfLeadingZeros(w[wlen - 1]));
+			return new Binary(Arrays.copyOf(w, wordCount(n)), n);
+		}
+		int bitsPerDigit = radix == 2 ? 1 : 4;
+		if (len > Integer.MAX_VALUE / bitsPerDigit) {
+			throw new NumberFormatException("too many digits");
+		}
+		int n = len * bitsPerDigit;
+		long[] w = new long[wordCount(n)];
+		for (int i = 0; i < len; i++) {
+			int p = (len - 1 - i) * bitsPerDigit;
+			w[p >>> 6] |= (long) BinaryText.digit(s, i, radix) << p;
+		}
+		return new Binary(w, n);
+	}
+
+	/**
+	 * Returns the number of bytes written by {@link #writeTo(ByteBuffer)}.
+	 * 
+	 * @return the serialized size of this binary number in bytes
+	 */
+	public int serializedSize() {
+		return Integer.BYTES + (int) ((this.numberOfBits + 7L) >>> 3);
+	}
+
+	/**
+	 * Writes this binary number to {@code buffer} at its current position and
+	 * advances the position past the written bytes. The layout is the number
+	 * of bits as a 4-byte little-endian {@code int}, followed by the bits in
+	 * {@code (numberOfBits() + 7) / 8} bytes, starting with the byte that
+	 * holds the right-most 8 bits; within each byte the right-most bit of the
+	 * number is the least significant bit. The unused bits of the last byte
+	 * are 0. The layout does not depend on the byte order of the buffer.
+	 * 
+	 * <p>
+	 * The layout is the same as the packed words of this binary number written
+	 * in little-endian order, so most of the bytes are written 8 at a time.
+	 * 
+	 * @param buffer
+	 *            the buffer to write to
+	 * @throws BufferOverflowException
+	 *             if the buffer has fewer than {@code serializedSize()} bytes
+	 *             remaining; nothing is written in that case
+	 * @see #readFrom(ByteBuffer)
+	 * @see BinaryView
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		int bytes = this.serializedSize() - Integer.BYTES;
+		if (buffer.remaining() < Integer.BYTES + bytes) {
+			throw new BufferOverflowException();
+		}
+		boolean swap = buffer.order() != ByteOrder.LITTLE_ENDIAN;
+		buffer.putInt(swap ? Integer.reverseBytes(this.numberOfBits) : this.numberOfBits);
+		int full = bytes >>> 3;
+		for (int i = 0; i < full; i++) {
+			long w = this.words[i];
+			buffer.putLong(swap ? Long.reverseBytes(w) : w);
+		}
+		if (full < this.words.length) {
+			long w = this.words[full];
+			for (int b = 0; b < (bytes & 7); b++) {
+				buffer.put((byte) (w >>> (8 * b)));
+			}
+		}
+	}
+
+	/**
+	 * Reads a binary number written by {@link #writeTo(ByteBuffer)} from
+	 * {@code buffer} at its current position and advances the position past
+	 * the read bytes. To read many binary numbers without creating objects,
+	 * use a {@link BinaryView} instead.
+	 * 
+	 * @param buffer
+	 *            the buffer to read from
+	 * @return the binary number read from the buffer
+	 * @throws BufferUnderflowException
+	 *             if the buffer does not hold a complete binary number; the
+	 *             position does not change in that case
+	 * @throws IllegalArgumentException
+	 *             if the number of bits read from the buffer is less than 1
+	 */
+	public static Binary readFrom(ByteBuffer buffer) {
+		if (buffer.remaining() < Integer.BYTES) {
+			throw new BufferUnderflowException();
+		}
+		boolean swap = buffer.order() != ByteOrder.LITTLE_ENDIAN;
+		int start = buffer.position();
+		int n = buffer.getInt(start);
+		if (swap) {
+			n = Integer.reverseBytes(n);
+		}
+		if (n < 1) {
+			throw new IllegalArgumentException("invalid number of bits: " + n);
+		}
+		int bytes = (int) ((n + 7L) >>> 3);
+		if (buffer.remaining() - Integer.BYTES < bytes) {
+			throw new BufferUnderflowException();
+		}
+		buffer.position(start + Integer.BYTES);
+		long[] w = new long[wordCount(n)];
+		int full = bytes >>> 3;
+		for (int i = 0; i < full; i++) {
+			long x = buffer.getLong();
+			w[i] = swap ? Long.reverseBytes(x) : x;
+		}
+		for (int b = 0; b < (bytes & 7); b++) {
+			w[full] |= (buffer.get() & 0xFFL) << (8 * b);
+		}
+		Binary result = new Binary(w, n);
+		w[w.length - 1] &= result.lastWordMask();
+		return result;
+	}
+
+	/**
+	 * Compares the value of this binary number to the value of another binary
+	 * number. The numbers are compared as unsigned values; the numbers of bits
+	 * do not need to be equal.
+	 * 
+	 * <p>
+	 * If the numbers have different numbers of words, the numbers of words
+	 * that remain after removing the most significant zero words are compared
+	 * first; the number having more of them is greater. Otherwise the words
+	 * are compared starting from the most significant word, and the first
+	 * pair of words that differ decides the result.
+	 * 
+	 * <p>
+	 * Note: this ordering is inconsistent with {@link #equals(Object)}, which
+	 * also compares the numbers of bits. For example, {@code 0001} and
+	 * {@code 1} compare as equal but are not equal.
+	 * 
+	 * @param other
+	 *            the other binary number to compare to
+	 * @return a positive value if the value of this number is greater than
+	 *         the value of the other number; zero if the values are equal; a
+	 *         negative value if the value of this number is less than the
+	 *         value of the other number
+	 * @see java.lang.Comparable#compareTo(java.lang.Object)
+	 */
+	@Override
+	public int compareTo(Binary other) {
+		long[] a = this.words;
+		long[] b = other.words;
+		if (a == b) {
+			return 0;
+		}
+		int len = a.length;
+		if (len != b.length) {
+			len = WordArithmetic.length(a, a.length);
+			int blen = WordArithmetic.length(b, b.length);
+			if (len != blen) {
+				return len < blen ? -1 : 1;
+			}
+		}
+		for (int i = len - 1; i >= 0; i--) {
+			if (a[i] != b[i]) {
+				return Long.compareUnsigned(a[i], b[i]);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns true if {@code obj} is a binary number having the same number
+	 * of bits as this binary number and the same bits. The words of the two
+	 * numbers are compared 64 bits at a time.
+	 * 
+	 * @param obj
+	 *            the object to compare with this binary number
+	 * @return true if obj is a binary number equal to this binary number
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Binary)) {
+			return false;
+		}
+		Binary other = (Binary) obj;
+		if (this.numberOfBits != other.numberOfBits) {
+			return false;
+		}
+		if (this.words == other.words) {
+			return true;
+		}
+		if (this.hash != 0 && other.hash != 0 && this.hash != other.hash) {
+			return false;
+		}
+		return Arrays.equals(this.words, other.words);
+	}
+
+	/**
+	 * Returns a 64-bit hash of this binary number, which depends on every
+	 * bit and on the number of bits. Binary numbers that are equal have the
+	 * same hash.
+	 * 
+	 * <p>
+	 * Each word is multiplied by a large odd constant and folded into a
+	 * running value that is rotated and multiplied again, and the result is
+	 * mixed with the finalizer of MurmurHash3 so that every bit of the hash
+	 * depends on every bit of the number. The hash is computed once and
+	 * cached until this binary number is changed.
+	 * 
+	 * @return a 64-bit hash of this binary number
+	 */
+	public long hash64() {
+		long h = this.hash;
+		if (h == 0 && !this.hashIsZero) {
+			h = this.numberOfBits * 0x9e3779b97f4a7c15L;
+			for (long w : this.words) {
+				h = Long.rotateLeft(h + w * 0xc2b2ae3d27d4eb4fL, 31) * 0x9e3779b97f4a7c15L;
+			}
+			h ^= h >>> 33;
+			h *= 0xff51afd7ed558ccdL;
+			h ^= h >>> 33;
+			h *= 0xc4ceb9fe1a85ec53L;
+			h ^= h >>> 33;
+			if (h == 0) {
+				this.hashIsZero = true;
+			} else {
+				this.hash = h;
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Returns a hash code for this binary number, made from the 64-bit hash
+	 * returned by {@link #hash64()}.
+	 * 
+	 * @return a hash code for this binary number
+	 */
+	@Override
+	public int hashCode() {
+		long h = this.hash64();
+		return (int) (h ^ (h >>> 32));
 	}
 
 	/**
@@ -0,0 +1,98 @@
+package lectures.arrays;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Checks the arithmetic methods of {@link Binary} against {@code BigInteger}
+ * on random values, and measures multiplication time for schoolbook and
+ * Karatsuba multiplication at several thresholds to find the crossover point
+ * on this machine.
+ *
+ */
+public class BinaryArithmeticBenchmark {
+
+	/**
+	 * Returns a random binary number having {@code n} bits.
+	 */
+	private static Binary random(int n, Random rng) {
+		return Binary.valueOf(new BigInteger(n, rng).setBit(n - 1));
+	}
+
+	/**
+	 * Compares add, subtract, multiply, and compareTo with the equivalent
+	 * {@code BigInteger} operations for random values and returns the number
+	 * of mismatches.
+	 */
+	private static int check(int trials, Random rng) {
+		int errors = 0;
+		for (int t = 0; t < trials; t++) {
+			int n = 1 + rng.nextInt(6000);
+			Binary x = random(n, rng);
+			Binary y = random(n, rng);
+			Binary z = random(1 + rng.nextInt(6000), rng);
+			BigInteger bx = x.toBigInteger();
+			BigInteger by = y.toBigInteger();
+			BigInteger bz = z.toBigInteger();
+			BigInteger mod = BigInteger.ONE.shiftLeft(n);
+
+			Binary sum = new Binary(x);
+			sum.add(y);
+			Binary diff = new Binary(x);
+			diff.subtract(y);
+			if (!sum.toBigInteger().equals(bx.add(by).mod(mod))) {
+				errors++;
+			}
+			if (!diff.toBigInteger().equals(bx.subtract(by).mod(mod))) {
+				errors++;
+			}
+			if (!Binary.multiply(x, z).toBigInteger().equals(bx.multiply(bz))) {
+				errors++;
+			}
+			if (Integer.signum(x.compareTo(z)) != bx.compareTo(bz)) {
+				errors++;
+			}
+		}
+		return errors;
+	}
+
+	public static void main(String[] args) {
+		Random rng = new Random(2030);
+		int defaultThreshold = Binary.getKaratsubaThreshold();
+		System.out.println("mismatches against BigInteger: " + check(2000, rng));
+		System.out.println();
+
+		int[] words = { 8, 16, 32, 64, 128, 256, 1024, 4096 };
+		int[] thresholds = { Integer.MAX_VALUE, 16, 32, 64 };
+		Stopwatch w = new Stopwatch();
+		for (int round = 0; round < 3; round++) {
+			System.out.printf("%6s %12s %12s %12s %12s %12s%n", "words", "schoolbook", "k=16", "k=32", "k=64",
+					"BigInteger");
+			for (int n : words) {
+				Binary x = random(n * 64, rng);
+				Binary y = random(n * 64, rng);
+				int reps = Math.max(1, 20_000_000 / (n * n));
+				System.out.printf("%6d", n);
+				for (int k : thresholds) {
+					Binary.setKaratsubaThreshold(k);
+					w.start();
+					for (int i = 0; i < reps; i++) {
+						Binary.multiply(x, y);
+					}
+					System.out.printf(" %10.1fus", w.stop() * 1e6 / reps);
+				}
+				BigInteger bx = x.toBigInteger();
+				BigInteger by = y.toBigInteger();
+				w.start();
+				for (int i = 0; i < reps; i++) {
+					bx.multiply(by);
+				}
+				System.out.printf(" %10.1fus%n", w.stop() * 1e6 / reps);
+			}
+			System.out.println();
+		}
+		Binary.setKaratsubaThreshold(defaultThreshold);
+	}
+}
@@ -0,0 +1,133 @@
+package lectures.arrays;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Measures the throughput of the bulk operations of {@link Binary} (and, or,
+ * xor, not, and bitCount) for 1024, 65536, and 16777216-bit values, using
+ * the implementation that {@link WordKernels} chose at startup. Run it once
+ * as usual and once with {@code --add-modules jdk.incubator.vector} (after
+ * compiling {@code src-vector}) to compare the scalar loops with the Vector
+ * API.
+ *
+ * <p>
+ * Before measuring, the kernels are checked against plain loops on word
+ * ranges of every length up to 100 at every offset up to 8.
+ *
+ */
+public class BinaryBulkBenchmark {
+
+	/**
+	 * Returns a random binary number having {@code n} bits.
+	 */
+	private static Binary random(int n, Random rng) {
+		Binary b = new Binary(new int[n]);
+		for (int i = 0; i < n; i++) {
+			if (rng.nextBoolean()) {
+				b.setBit(i, 1);
+			}
+		}
+		return b;
+	}
+
+	/**
+	 * Prints the throughput of an operation in gigabits per second.
+	 */
+	private static void report(String op, int n, long reps, double seconds) {
+		System.out.printf("  %-8s %8.2f Gbit/s%n", op, (double) n * reps / seconds / 1e9);
+	}
+
+	/**
+	 * Checks the kernels against plain loops.
+	 */
+	private static boolean check(Random rng) {
+		for (int from = 0; from < 8; from++) {
+			for (int to = from; to < from + 100; to++) {
+				long[] a = new long[to + 3];
+				long[] b = new long[to + 3];
+				for (int i = 0; i < a.length; i++) {
+					a[i] = rng.nextLong();
+					b[i] = rng.nextLong();
+				}
+				long[][] expected = new long[5][];
+				long[][] actual = new long[5][];
+				for (int k = 0; k < 5; k++) {
+					expected[k] = a.clone();
+					actual[k] = a.clone();
+				}
+				long count = 0;
+				for (int i = from; i < to; i++) {
+					expected[0][i] &= b[i];
+					expected[1][i] |= b[i];
+					expected[2][i] ^= b[i];
+					expected[3][i] &= ~b[i];
+					expected[4][i] = ~a[i];
+					count += Long.bitCount(a[i]);
+				}
+				WordKernels.and(actual[0], b, from, to);
+				WordKernels.or(actual[1], b, from, to);
+				WordKernels.xor(actual[2], b, from, to);
+				WordKernels.andNot(actual[3], b, from, to);
+				WordKernels.not(actual[4], from, to);
+				if (!Arrays.deepEquals(expected, actual) || WordKernels.bitCount(a, from, to) != count) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	public static void main(String[] args) {
+		Random rng0 = new Random(2029);
+		System.out.println("kernels: " + WordKernels.backend() + ", " + (check(rng0) ? "ok" : "MISMATCH"));
+		int[] sizes = { 1 << 10, 1 << 16, 1 << 24 };
+		Random rng = new Random(2030);
+		Stopwatch w = new Stopwatch();
+		for (int round = 0; round < 3; round++) {
+			for (int n : sizes) {
+				Binary a = random(n, rng);
+				Binary b = random(n, rng);
+				long reps = Math.max(1, (1L << 34) / n);
+				System.out.println(n + " bits");
+
+				w.start();
+				for (long i = 0; i < reps; i++) {
+					a.and(b);
+				}
+				report("and", n, reps, w.stop());
+
+				w.start();
+				for (long i = 0; i < reps; i++) {
+					a.or(b);
+				}
+				report("or", n, reps, w.stop());
+
+				w.start();
+				for (long i = 0; i < reps; i++) {
+					a.xor(b);
+				}
+				report("xor", n, reps, w.stop());
+
+				w.start();
+				for (long i = 0; i < reps; i++) {
+					a.not();
+				}
+				report("not", n, reps, w.stop());
+
+				long count = 0;
+				w.start();
+				for (long i = 0; i < reps; i++) {
+					count += a.bitCount();
+				}
+				report("bitCount", n, reps, w.stop());
+				if (count == 42) {
+					System.out.println();
+				}
+			}
+			System.out.println();
+		}
+	}
+}
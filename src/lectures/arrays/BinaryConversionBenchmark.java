@@ -0,0 +1,70 @@
+package lectures.arrays;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Compares {@link Binary#toDecimal()} with the exact conversions
+ * {@link Binary#toLong()} and {@link Binary#toBigInteger()}, and with
+ * converting through the string representation, for 8, 64, 4096, and
+ * 1048576-bit values.
+ *
+ */
+public class BinaryConversionBenchmark {
+
+	/**
+	 * Returns a random binary number having {@code n} bits.
+	 */
+	private static Binary random(int n, Random rng) {
+		int[] bits = new int[n];
+		for (int i = 0; i < n; i++) {
+			bits[i] = rng.nextInt(2);
+		}
+		return new Binary(bits);
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = { 8, 64, 4096, 1 << 20 };
+		int[] reps = { 10_000_000, 10_000_000, 100_000, 5 };
+		Random rng = new Random(2030);
+		Stopwatch w = new Stopwatch();
+		for (int round = 0; round < 3; round++) {
+			for (int k = 0; k < sizes.length; k++) {
+				Binary b = random(sizes[k], rng);
+				int m = reps[k];
+				long sink = 0;
+
+				w.start();
+				for (int i = 0; i < m; i++) {
+					sink += b.toDecimal();
+				}
+				double tDecimal = w.stop();
+
+				w.start();
+				for (int i = 0; i < m; i++) {
+					sink += b.toLong();
+				}
+				double tLong = w.stop();
+
+				w.start();
+				for (int i = 0; i < m; i++) {
+					sink += b.toBigInteger().bitLength();
+				}
+				double tBig = w.stop();
+
+				w.start();
+				for (int i = 0; i < m; i++) {
+					sink += new BigInteger(b.toString(), 2).bitLength();
+				}
+				double tString = w.stop();
+
+				System.out.printf(
+						"%8d bits: toDecimal %10.1f ns, toLong %6.1f ns, toBigInteger %10.1f ns, via toString %12.1f ns (%d)%n",
+						sizes[k], tDecimal * 1e9 / m, tLong * 1e9 / m, tBig * 1e9 / m, tString * 1e9 / m, sink & 1);
+			}
+			System.out.println();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package lectures.arrays;
+
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Checks that copies made with {@link Binary#Binary(Binary)} are independent
+ * of the original, then measures copy-heavy workloads on numbers of 64 to
+ * 2^20 bits: copies that are only read, copies that have one bit changed,
+ * and copies whose {@code setBit} calls do not change any bit. Each workload
+ * is timed with the copy-on-write constructor and with an eager copy of the
+ * words, which is what the constructor did before.
+ *
+ */
+public class BinaryCopyBenchmark {
+
+	/**
+	 * Returns an eager copy of {@code b}.
+	 */
+	private static Binary eagerCopy(Binary b) {
+		return Binary.wrap(b.words().clone(), b.numberOfBits());
+	}
+
+	/**
+	 * Changes copies and originals in random order and returns true if every
+	 * change is seen only by the number that was changed.
+	 */
+	private static boolean check(Random rng) {
+		boolean ok = true;
+		for (int t = 0; t < 1000; t++) {
+			int n = 1 + rng.nextInt(300);
+			Binary a = new Binary(new int[n]);
+			Binary[] copies = { a, new Binary(a), new Binary(a), null };
+			copies[3] = new Binary(copies[1]);
+			String[] expected = new String[copies.length];
+			for (int i = 0; i < copies.length; i++) {
+				expected[i] = copies[i].toString();
+			}
+			for (int k = 0; k < 8; k++) {
+				int i = rng.nextInt(copies.length);
+				int index = rng.nextInt(n);
+				switch (rng.nextInt(3)) {
+				case 0:
+					copies[i].setBit(index, 1);
+					break;
+				case 1:
+					copies[i].not();
+					break;
+				default:
+					copies[i].shiftLeft(1 + rng.nextInt(3));
+				}
+				expected[i] = copies[i].toString();
+				for (int j = 0; j < copies.length; j++) {
+					ok &= copies[j].toString().equals(expected[j]);
+				}
+			}
+		}
+		return ok;
+	}
+
+	public static void main(String[] args) {
+		Random rng = new Random(2030);
+		System.out.println("copies are independent: " + check(rng));
+
+		int[] sizes = { 64, 1 << 12, 1 << 16, 1 << 20 };
+		Stopwatch w = new Stopwatch();
+		System.out.printf("%8s %22s %22s %22s%n", "bits", "read only (cow/eager)", "one change", "no-op setBit");
+		for (int round = 0; round < 2; round++) {
+			for (int n : sizes) {
+				int[] bits = new int[n];
+				for (int i = 0; i < n; i++) {
+					bits[i] = rng.nextInt(2);
+				}
+				Binary b = new Binary(bits);
+				int reps = (int) Math.max(100, (1L << 30) / n);
+				double[] t = new double[6];
+				long sink = 0;
+				for (int mode = 0; mode < 6; mode++) {
+					boolean eager = mode % 2 == 1;
+					int kind = mode / 2;
+					w.start();
+					for (int i = 0; i < reps; i++) {
+						Binary c = eager ? eagerCopy(b) : new Binary(b);
+						int index = i & (n - 1);
+						if (kind == 1) {
+							c.setBit(index, 1 - c.getBit(index));
+						} else if (kind == 2) {
+							c.setBit(index, c.getBit(index));
+						}
+						sink += c.getRightMostBit();
+					}
+					t[mode] = w.stop() / reps;
+				}
+				if (round == 1) {
+					System.out.printf("%8d %9.1f/%9.1f ns %9.1f/%9.1f ns %9.1f/%9.1f ns%s%n", n, t[0] * 1e9,
+							t[1] * 1e9, t[2] * 1e9, t[3] * 1e9, t[4] * 1e9, t[5] * 1e9, sink < 0 ? "!" : "");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package lectures.arrays;
+
+import lectures.abstractclasses.counter.AbstractCounter.Direction;
+
+/**
+ * A counter whose value is a {@link Binary} number having a fixed number of
+ * bits. Unlike the {@code int}-valued counters, the range of a
+ * {@code BinaryCounter} is zero to {@code 2^n - 1} where {@code n} can be any
+ * positive number of bits.
+ *
+ * <p>
+ * Like the counters in {@code lectures.abstractclasses.counter}, a binary
+ * counter counts in a direction (ascending or descending). Its
+ * {@link Policy} determines what happens when the counter is advanced past
+ * the limits of its range. Advancing the counter takes constant amortized
+ * time.
+ *
+ */
+public class BinaryCounter {
+
+	/**
+	 * The behaviour of a binary counter at the limits of its range.
+	 */
+	public enum Policy {
+		/**
+		 * The counter wraps around to the other limit of its range.
+		 */
+		WRAP,
+
+		/**
+		 * The counter stops at the limit of its range.
+		 */
+		STOP;
+	}
+
+	/**
+	 * The current value of this counter.
+	 */
+	private Binary value;
+
+	/**
+	 * The current direction of this counter.
+	 */
+	private Direction direction;
+
+	/**
+	 * The behaviour of this counter at the limits of its range.
+	 */
+	private Policy policy;
+
+	/**
+	 * True if this counter is stopped at the limit of its range in its
+	 * current direction.
+	 */
+	private boolean stopped;
+
+	/**
+	 * Initializes this counter to have the specified number of bits, a value
+	 * of zero, and the specified direction and policy.
+	 * 
+	 * @param numberOfBits
+	 *            the number of bits of the value of this counter
+	 * @param direction
+	 *            the direction of this counter
+	 * @param policy
+	 *            the behaviour of this counter at the limits of its range
+	 * @throws IllegalArgumentException
+	 *             if numberOfBits is less than 1
+	 */
+	public BinaryCounter(int numberOfBits, Direction direction, Policy policy) {
+		if (numberOfBits < 1) {
+			throw new IllegalArgumentException("numberOfBits must be positive");
+		}
+		this.value = new Binary(new int[numberOfBits]);
+		this.direction = direction;
+		this.policy = policy;
+		this.stopped = false;
+	}
+
+	/**
+	 * Initializes this counter to have a copy of the specified value, and the
+	 * specified direction and policy. The number of bits of this counter is
+	 * equal to the number of bits of {@code value}.
+	 * 
+	 * @param value
+	 *            the starting value of this counter
+	 * @param direction
+	 *            the direction of this counter
+	 * @param policy
+	 *            the behaviour of this counter at the limits of its range
+	 */
+	public BinaryCounter(Binary value, Direction direction, Policy policy) {
+		this.value = new Binary(value);
+		this.direction = direction;
+		this.policy = policy;
+		this.stopped = false;
+	}
+
+	/**
+	 * Initializes this counter so that its value, direction, and policy are
+	 * equal to those of {@code other}.
+	 * 
+	 * @param other
+	 *            the counter to copy
+	 */
+	public BinaryCounter(BinaryCounter other) {
+		this.value = other.value.copy();
+		this.direction = other.direction;
+		this.policy = other.policy;
+		this.stopped = other.stopped;
+	}
+
+	/**
+	 * Returns a copy of the current value of this counter. The bits are
+	 * copied, so the counter keeps its own bits and the next call to
+	 * {@code advance} does not have to copy them.
+	 * 
+	 * @return a copy of the current value of this counter
+	 */
+	public Binary value() {
+		return this.value.copy();
+	}
+
+	/**
+	 * Returns the number of bits of the value of this counter.
+	 * 
+	 * @return the number of bits of the value of this counter
+	 */
+	public int numberOfBits() {
+		return this.value.numberOfBits();
+	}
+
+	/**
+	 * Returns the current direction that this counter is counting in.
+	 * 
+	 * @return the current direction that this counter is counting in
+	 */
+	public Direction dir() {
+		return this.direction;
+	}
+
+	/**
+	 * Returns the behaviour of this counter at the limits of its range.
+	 * 
+	 * @return the behaviour of this counter at the limits of its range
+	 */
+	public Policy policy() {
+		return this.policy;
+	}
+
+	/**
+	 * Advance the counter by one in the current direction of travel. At the
+	 * limits of its range the counter either wraps around or stops depending
+	 * on its policy.
+	 */
+	public void advance() {
+		this.step(this.direction == Direction.ASCENDING);
+	}
+
+	/**
+	 * Moves the counter by one in the direction opposite to its current
+	 * direction of travel. At the limits of its range the counter either
+	 * wraps around or stops depending on its policy.
+	 */
+	public void back() {
+		this.step(this.direction != Direction.ASCENDING);
+	}
+
+	/**
+	 * Moves the counter up or down by one.
+	 */
+	private void step(boolean up) {
+		if (this.stopped) {
+			// a stopped counter can only move away from its limit
+			if (up == (this.direction == Direction.ASCENDING)) {
+				return;
+			}
+			this.stopped = false;
+		}
+		boolean wrapped = up ? this.value.increment() : this.value.decrement();
+		if (wrapped && this.policy == Policy.STOP) {
+			// undo the wrap; the counter stays at its limit
+			if (up) {
+				this.value.decrement();
+			} else {
+				this.value.increment();
+			}
+			this.stopped = up == (this.direction == Direction.ASCENDING);
+		}
+	}
+
+	/**
+	 * Returns a string representation of this counter. The string
+	 * representation is the string {@code "count: "} followed by the bits of
+	 * the current value of this counter.
+	 * 
+	 * @return a string representation of this counter
+	 */
+	@Override
+	public String toString() {
+		return "count: " + this.value;
+	}
+}
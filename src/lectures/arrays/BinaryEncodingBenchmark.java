@@ -0,0 +1,193 @@
+package lectures.arrays;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Compares the size and decoding speed of {@link EliasFanoBinary} and
+ * {@link RunLengthBinary} on 2^26-bit numbers with sparse, clustered, and
+ * dense bit patterns. For each pattern it prints the size of each encoding
+ * as a fraction of the plain {@link Binary} (and of a
+ * {@link CompressedBinary} for reference), the time per 1 bit to decode the
+ * indexes of the 1 bits with an iterator (compared with
+ * {@link Binary#nextSetBit(int)} on the plain number), the time to decode
+ * the whole number, and the time of a random access
+ * {@link EliasFanoBinary#get(int)}. Every decoded number must equal the
+ * original, and invalid records of both encodings must be rejected.
+ *
+ */
+public class BinaryEncodingBenchmark {
+
+	/**
+	 * The number of bits of the numbers.
+	 */
+	private static final int N = 1 << 26;
+
+	/**
+	 * Returns a number whose bits are 1 with probability {@code p}.
+	 */
+	private static Binary sparse(double p, Random rng) {
+		long[] w = new long[N / 64];
+		for (int i = 0; i < N; i++) {
+			if (rng.nextDouble() < p) {
+				w[i >>> 6] |= 1L << i;
+			}
+		}
+		return Binary.wrap(w, N);
+	}
+
+	/**
+	 * Returns a number made of runs of 1 bits whose lengths are uniform up to
+	 * {@code 2 * run} separated by runs of 0 bits whose lengths are uniform
+	 * up to {@code 2 * gap}.
+	 */
+	private static Binary clustered(int run, int gap, Random rng) {
+		long[] w = new long[N / 64];
+		int i = rng.nextInt(2 * gap);
+		while (i < N) {
+			int end = Math.min(N, i + 1 + rng.nextInt(2 * run));
+			for (; i < end; i++) {
+				w[i >>> 6] |= 1L << i;
+			}
+			i += 1 + rng.nextInt(2 * gap);
+		}
+		return Binary.wrap(w, N);
+	}
+
+	/**
+	 * Returns true if {@link RunLengthBinary#readFrom(ByteBuffer)} rejects
+	 * the encoding of {@code n} bits having {@code m} 1 bits and the
+	 * specified bytes of run lengths.
+	 */
+	private static boolean rejects(int n, int m, int... lengths) {
+		ByteBuffer buffer = ByteBuffer.allocate(3 * Integer.BYTES + lengths.length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(n).putInt(m).putInt(lengths.length);
+		for (int b : lengths) {
+			buffer.put((byte) b);
+		}
+		buffer.flip();
+		try {
+			RunLengthBinary.readFrom(buffer);
+			return false;
+		} catch (IllegalArgumentException x) {
+			return true;
+		}
+	}
+
+	/**
+	 * Returns true if {@link EliasFanoBinary#readFrom(ByteBuffer)} rejects
+	 * the encoding of {@code n} bits having {@code m} 1 bits and the
+	 * specified words of low and upper bits.
+	 */
+	private static boolean rejectsEliasFano(int n, int m, long... words) {
+		ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + words.length * Long.BYTES)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(n).putInt(m);
+		for (long w : words) {
+			buffer.putLong(w);
+		}
+		buffer.flip();
+		try {
+			EliasFanoBinary.readFrom(buffer);
+			return false;
+		} catch (IllegalArgumentException x) {
+			return true;
+		}
+	}
+
+	/**
+	 * Returns true if {@link EliasFanoBinary#readFrom(ByteBuffer)} throws
+	 * {@code BufferUnderflowException} for a header announcing 2^31 - 1 bits
+	 * and no words, without allocating them first.
+	 */
+	private static boolean underflowsEliasFano() {
+		ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(Integer.MAX_VALUE).putInt(0).flip();
+		try {
+			EliasFanoBinary.readFrom(buffer);
+			return false;
+		} catch (BufferUnderflowException x) {
+			return buffer.position() == 0;
+		}
+	}
+
+	public static void main(String[] args) {
+		// 8 bits, two indexes in the first bucket of 4 with 2 low bits each:
+		// 1 and 2 are valid, 3 and 1 decrease, 2 and 2 repeat
+		boolean eliasFano = !rejectsEliasFano(8, 2, 1 | 2 << 2, 0b11) && rejectsEliasFano(8, 2, 3 | 1 << 2, 0b11)
+				&& rejectsEliasFano(8, 2, 2 | 2 << 2, 0b11) && underflowsEliasFano();
+		System.out.println("invalid Elias-Fano records rejected: " + (eliasFano ? "ok" : "MISMATCH"));
+		// a run of 1 bits of length 0, a run of 0 bits of length 0 after
+		// the first, and lengths that do not fit in an int
+		boolean rejected = rejects(6, 1, 3, 0, 2, 1) && rejects(6, 0, 6, 0)
+				&& rejects(5, 5, 0x80, 0x80, 0x80, 0x80, 0x10, 5) && rejects(10, 10, 0xff, 0xff, 0xff, 0xff, 0x0f);
+		System.out.println("invalid run lengths rejected: " + (rejected ? "ok" : "MISMATCH"));
+		Random rng = new Random(2030);
+		String[] names = { "sparse 0.1%", "sparse 1%", "clustered 64/4096", "clustered 1000/1000", "random 50%" };
+		Binary[] numbers = { sparse(0.001, rng), sparse(0.01, rng), clustered(64, 4096, rng),
+				clustered(1000, 1000, rng), sparse(0.5, rng) };
+		Stopwatch w = new Stopwatch();
+		System.out.printf("%-20s %9s %8s %8s %8s | %-29s | %-23s | %s%n", "", "1 bits", "EF", "RLE", "Roaring",
+				"iterate ns/bit (EF/RLE/Binary)", "toBinary ms (EF/RLE)", "EF get ns");
+		for (int round = 0; round < 2; round++) {
+			for (int k = 0; k < numbers.length; k++) {
+				Binary b = numbers[k];
+				int ones = b.bitCount();
+				w.start();
+				EliasFanoBinary ef = new EliasFanoBinary(b);
+				RunLengthBinary rle = new RunLengthBinary(b);
+				w.stop();
+				double raw = N / 8.0;
+
+				w.start();
+				long sumEf = 0;
+				for (PrimitiveIterator.OfInt it = ef.iterator(); it.hasNext();) {
+					sumEf += it.nextInt();
+				}
+				double tIterEf = w.stop();
+				w.start();
+				long sumRle = 0;
+				for (PrimitiveIterator.OfInt it = rle.iterator(); it.hasNext();) {
+					sumRle += it.nextInt();
+				}
+				double tIterRle = w.stop();
+				w.start();
+				long sumBinary = 0;
+				for (int i = b.nextSetBit(0); i >= 0; i = b.nextSetBit(i + 1)) {
+					sumBinary += i;
+				}
+				double tIterBinary = w.stop();
+
+				w.start();
+				Binary fromEf = ef.toBinary();
+				double tDecodeEf = w.stop();
+				w.start();
+				Binary fromRle = rle.toBinary();
+				double tDecodeRle = w.stop();
+
+				int gets = 1 << 20;
+				w.start();
+				long sumGet = 0;
+				for (int i = 0; i < gets; i++) {
+					sumGet += ef.get((int) ((i * 0x9e3779b9L & 0xffffffffL) * ones >>> 32));
+				}
+				double tGet = w.stop();
+
+				boolean same = sumEf == sumBinary && sumRle == sumBinary && fromEf.equals(b) && fromRle.equals(b)
+						&& sumGet >= 0;
+				if (round == 1) {
+					System.out.printf("%-20s %9d %7.2f%% %7.2f%% %7.2f%% | %8.2f %8.2f %8.2f    | %8.1f %8.1f     | %6.1f%s%n",
+							names[k], ones, 100.0 * ef.serializedSize() / raw, 100.0 * rle.serializedSize() / raw,
+							100.0 * new CompressedBinary(b).sizeInBytes() / raw, tIterEf / ones * 1e9,
+							tIterRle / ones * 1e9, tIterBinary / ones * 1e9, tDecodeEf * 1e3, tDecodeRle * 1e3,
+							tGet / gets * 1e9, same ? "" : "  MISMATCH");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package lectures.arrays;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Compares a {@code HashMap} that uses {@link Binary} keys with one that
+ * uses the {@code String} form of the same numbers as keys, which was the
+ * way to use binary numbers as keys before {@code Binary} had
+ * {@code equals} and {@code hashCode}. For each key size the maps are
+ * filled and then queried with separate, equal key objects, half of which
+ * are in the map; the {@code String} queries are timed both with and
+ * without the conversion from {@code Binary} to {@code String}.
+ *
+ */
+public class BinaryHashMapBenchmark {
+
+	public static void main(String[] args) {
+		int[] sizes = { 64, 128, 1024 };
+		int[] counts = { 1 << 20, 1 << 20, 1 << 17 };
+		Random rng = new Random(2030);
+		Stopwatch w = new Stopwatch();
+		for (int round = 0; round < 2; round++) {
+			for (int s = 0; s < sizes.length; s++) {
+				int n = sizes[s];
+				int count = counts[s];
+				int words = ((n - 1) >>> 6) + 1;
+				Binary[] keys = new Binary[count];
+				Binary[] queries = new Binary[count];
+				for (int i = 0; i < count; i++) {
+					long[] k = new long[words];
+					for (int j = 0; j < words; j++) {
+						k[j] = rng.nextLong();
+					}
+					keys[i] = Binary.wrap(k, n);
+					// every other query is a copy of a key, the others are new
+					long[] q = k.clone();
+					if (i % 2 == 1) {
+						q[0] ^= 1;
+					}
+					queries[i] = Binary.wrap(q, n);
+				}
+				String[] stringQueries = new String[count];
+				for (int i = 0; i < count; i++) {
+					stringQueries[i] = queries[i].toString();
+				}
+
+				w.start();
+				HashMap<Binary, Integer> binaryMap = new HashMap<>();
+				for (int i = 0; i < count; i++) {
+					binaryMap.put(keys[i], i);
+				}
+				double tBinaryPut = w.stop();
+				w.start();
+				long binaryFound = 0;
+				for (Binary q : queries) {
+					Integer v = binaryMap.get(q);
+					binaryFound += v == null ? 0 : v;
+				}
+				double tBinaryGet = w.stop();
+
+				w.start();
+				HashMap<String, Integer> stringMap = new HashMap<>();
+				for (int i = 0; i < count; i++) {
+					stringMap.put(keys[i].toString(), i);
+				}
+				double tStringPut = w.stop();
+				w.start();
+				long stringFound = 0;
+				for (Binary q : queries) {
+					Integer v = stringMap.get(q.toString());
+					stringFound += v == null ? 0 : v;
+				}
+				double tStringGet = w.stop();
+				w.start();
+				long preconvertedFound = 0;
+				for (String q : stringQueries) {
+					Integer v = stringMap.get(q);
+					preconvertedFound += v == null ? 0 : v;
+				}
+				double tPreconvertedGet = w.stop();
+
+				if (round == 1) {
+					boolean same = binaryFound == stringFound && stringFound == preconvertedFound;
+					System.out.printf(
+							"%5d bits, %7d keys: Binary put %6.1f ns get %6.1f ns | String put %7.1f ns get %7.1f ns (%6.1f ns without conversion)%s%n",
+							n, count, tBinaryPut / count * 1e9, tBinaryGet / count * 1e9, tStringPut / count * 1e9,
+							tStringGet / count * 1e9, tPreconvertedGet / count * 1e9, same ? "" : "  MISMATCH");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package lectures.arrays;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Compares the cost of incrementing a {@link Binary} number in place with
+ * {@code BigInteger.add(BigInteger.ONE)} for 64, 1024, and 1048576-bit
+ * values.
+ *
+ */
+public class BinaryIncrementBenchmark {
+
+	/**
+	 * Returns a random binary number having {@code n} bits.
+	 */
+	private static Binary random(int n, Random rng) {
+		int[] bits = new int[n];
+		for (int i = 0; i < n; i++) {
+			bits[i] = rng.nextInt(2);
+		}
+		return new Binary(bits);
+	}
+
+	/**
+	 * Returns the {@code BigInteger} having the same value as {@code b}.
+	 */
+	private static BigInteger toBigInteger(Binary b) {
+		return new BigInteger(b.toString(), 2);
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = { 64, 1024, 1 << 20 };
+		int[] increments = { 20_000_000, 20_000_000, 20_000 };
+		Random rng = new Random(2030);
+		Stopwatch w = new Stopwatch();
+		for (int round = 0; round < 3; round++) {
+			for (int k = 0; k < sizes.length; k++) {
+				int n = sizes[k];
+				int m = increments[k];
+				Binary b = random(n, rng);
+				BigInteger big = toBigInteger(b);
+
+				w.start();
+				for (int i = 0; i < m; i++) {
+					b.increment();
+				}
+				double tBinary = w.stop();
+
+				w.start();
+				for (int i = 0; i < m; i++) {
+					big = big.add(BigInteger.ONE);
+				}
+				double tBig = w.stop();
+
+				boolean same = big.equals(toBigInteger(b)) || big.bitLength() > n;
+				System.out.printf("%8d bits: Binary.increment %8.2f ns, BigInteger.add %10.2f ns, same: %b%n", n,
+						tBinary * 1e9 / m, tBig * 1e9 / m, same);
+			}
+			System.out.println();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package lectures.arrays;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Measures how the parallel operations of {@link Binary} scale with the
+ * number of threads on 1 Gbit numbers: population count, AND, XOR, the
+ * search for the next 1 bit when the only 1 bit is the right-most bit, and
+ * equality of two equal numbers. Each operation is timed sequentially and
+ * in {@code ForkJoinPool}s of 1, 2, 4, ... threads up to the number of
+ * available processors (or the number given as a command line argument),
+ * then the time per chunk size is measured with the most threads to help
+ * choose {@link Binary#setParallelThreshold(int)}.
+ *
+ */
+public class BinaryParallelBenchmark {
+
+	/**
+	 * The number of bits of the numbers.
+	 */
+	private static final int N = 1 << 30;
+
+	/**
+	 * Runs the five operations with the specified pool and chunk size, or
+	 * sequentially if {@code pool} is null, and returns their times in
+	 * seconds. Returns null if a result differs from the sequential result.
+	 */
+	private static double[] run(ForkJoinPool pool, int chunk, long[] a, long[] b, long[] copy, long[] single) {
+		Stopwatch w = new Stopwatch();
+		double[] t = new double[5];
+		long count;
+		int last;
+		boolean equal;
+		w.start();
+		if (pool == null) {
+			count = WordKernels.bitCount(a, 0, a.length);
+		} else {
+			count = ParallelKernels.bitCount(pool, a, chunk);
+		}
+		t[0] = w.stop();
+		w.start();
+		if (pool == null) {
+			WordKernels.and(copy, b, 0, copy.length);
+		} else {
+			ParallelKernels.apply(pool, WordKernels::and, copy, b, chunk);
+		}
+		t[1] = w.stop();
+		w.start();
+		if (pool == null) {
+			WordKernels.xor(copy, b, 0, copy.length);
+		} else {
+			ParallelKernels.apply(pool, WordKernels::xor, copy, b, chunk);
+		}
+		t[2] = w.stop();
+		w.start();
+		if (pool == null) {
+			last = WordKernels.lastNonZero(single, 0, single.length);
+		} else {
+			last = ParallelKernels.lastNonZero(pool, single, single.length, chunk);
+		}
+		t[3] = w.stop();
+		// copy is now a & b ^ b, which is b & ~a; undo it to compare with a
+		System.arraycopy(a, 0, copy, 0, a.length);
+		w.start();
+		if (pool == null) {
+			equal = WordKernels.equal(a, copy, 0, a.length);
+		} else {
+			equal = ParallelKernels.equal(pool, a, copy, chunk);
+		}
+		t[4] = w.stop();
+		boolean ok = count == WordKernels.bitCount(a, 0, a.length) && last == 0 && equal;
+		return ok ? t : null;
+	}
+
+	/**
+	 * Prints the times of one run.
+	 */
+	private static void print(String label, double[] t) {
+		if (t == null) {
+			System.out.printf("%-14s MISMATCH%n", label);
+			return;
+		}
+		System.out.printf("%-14s %9.1f %9.1f %9.1f %9.1f %9.1f%n", label, t[0] * 1e3, t[1] * 1e3, t[2] * 1e3,
+				t[3] * 1e3, t[4] * 1e3);
+	}
+
+	public static void main(String[] args) {
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		if (args.length > 0) {
+			maxThreads = Integer.parseInt(args[0]);
+		}
+		Random rng = new Random(2030);
+		int words = N / 64;
+		long[] a = new long[words];
+		long[] b = new long[words];
+		for (int i = 0; i < words; i++) {
+			a[i] = rng.nextLong();
+			b[i] = rng.nextLong();
+		}
+		long[] copy = a.clone();
+		long[] single = new long[words];
+		single[0] = 1;
+
+		System.out.printf("%d bits, times in ms%n", N);
+		System.out.printf("%-14s %9s %9s %9s %9s %9s%n", "", "bitCount", "and", "xor", "nextSet", "equals");
+		for (int round = 0; round < 2; round++) {
+			double[] t = run(null, 0, a, b, copy, single);
+			if (round == 1) {
+				print("sequential", t);
+			}
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				t = run(pool, Binary.getParallelThreshold(), a, b, copy, single);
+				pool.shutdown();
+				if (round == 1) {
+					print(threads + " threads", t);
+				}
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(maxThreads);
+		System.out.printf("%nchunk sizes with %d threads%n", maxThreads);
+		for (int round = 0; round < 2; round++) {
+			for (int chunk = 1 << 10; chunk <= 1 << 20; chunk <<= 2) {
+				double[] t = run(pool, chunk, a, b, copy, single);
+				if (round == 1) {
+					print(chunk + " words", t);
+				}
+			}
+		}
+		pool.shutdown();
+	}
+}
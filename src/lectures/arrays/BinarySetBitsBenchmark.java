@@ -0,0 +1,173 @@
+package lectures.arrays;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Compares the ways to visit the 1 bits of a 2^26-bit {@link Binary} having
+ * 0.1%, 10% and 50% of its bits set: calling {@link Binary#getBit(int)} for
+ * every index, calling {@link Binary#nextSetBit(int)} repeatedly,
+ * {@link Binary#forEachSetBit(java.util.function.IntConsumer)},
+ * {@link Binary#setBitIterator()}, and {@link Binary#setBits()} as a
+ * sequential and as a parallel stream. Each way sums the indexes, and all
+ * the sums must be equal. The time is per bit of the number.
+ *
+ * <p>
+ * Before measuring, the indexes returned by every way are checked on
+ * numbers of every length up to 300 bits, including a stream split into
+ * ranges of one word, and the parts of a split stream are checked to ignore
+ * changes made after the split.
+ *
+ */
+public class BinarySetBitsBenchmark {
+
+	/**
+	 * The number of bits of the numbers.
+	 */
+	private static final int N = 1 << 26;
+
+	/**
+	 * Returns a number of n bits whose bits are 1 with probability
+	 * {@code p}.
+	 */
+	private static Binary random(int n, double p, Random rng) {
+		long[] w = new long[((n - 1) >>> 6) + 1];
+		for (int i = 0; i < n; i++) {
+			if (rng.nextDouble() < p) {
+				w[i >>> 6] |= 1L << i;
+			}
+		}
+		return Binary.wrap(w, n);
+	}
+
+	/**
+	 * Checks every way to visit the 1 bits on small numbers.
+	 */
+	private static boolean check(Random rng) {
+		for (int n = 1; n <= 300; n++) {
+			Binary b = random(n, rng.nextDouble(), rng);
+			int[] expected = new int[b.bitCount()];
+			int k = 0;
+			for (int i = 0; i < n; i++) {
+				if (b.getBit(i) == 1) {
+					expected[k++] = i;
+				}
+			}
+			int[] visited = new int[expected.length];
+			int[] count = { 0 };
+			b.forEachSetBit(i -> visited[count[0]++] = i);
+			if (count[0] != expected.length || !Arrays.equals(visited, expected)) {
+				return false;
+			}
+			if (!Arrays.equals(b.setBits().toArray(), expected)
+					|| !Arrays.equals(b.setBits().parallel().toArray(), expected)) {
+				return false;
+			}
+			// split into ranges of one word, kept in order
+			IntStream.Builder parts = IntStream.builder();
+			splitAll(new SetBitSpliterator(b.words(), n, 0, b.words().length, 0), parts);
+			if (!Arrays.equals(parts.build().toArray(), expected)) {
+				return false;
+			}
+			// once split, the parts keep the bits as they were
+			Spliterator.OfInt whole = b.setBits().parallel().spliterator();
+			Spliterator.OfInt prefix = whole.trySplit();
+			if (prefix != null) {
+				for (int i = 0; i < n; i += 2) {
+					b.setBit(i, 1 - b.getBit(i));
+				}
+				IntStream.Builder split = IntStream.builder();
+				prefix.forEachRemaining((int i) -> split.add(i));
+				whole.forEachRemaining((int i) -> split.add(i));
+				if (!Arrays.equals(split.build().toArray(), expected)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Splits a spliterator as far as it goes, the first half of the first
+	 * part before its second half, and adds the indexes of every part.
+	 */
+	private static void splitAll(Spliterator.OfInt s, IntStream.Builder out) {
+		Spliterator.OfInt prefix = s.trySplit();
+		if (prefix != null) {
+			splitAll(prefix, out);
+			splitAll(s, out);
+			return;
+		}
+		if (s.tryAdvance((int i) -> out.add(i))) {
+			s.forEachRemaining((int i) -> out.add(i));
+		}
+	}
+
+	public static void main(String[] args) {
+		Random rng = new Random(2032);
+		System.out.println("small numbers: " + (check(rng) ? "ok" : "MISMATCH"));
+		double[] densities = { 0.001, 0.1, 0.5 };
+		Stopwatch w = new Stopwatch();
+		System.out.printf("%8s | %8s %8s %8s %8s %8s %8s  (ns per bit)%n", "density", "getBit", "nextSet", "forEach",
+				"iterator", "stream", "parallel");
+		for (double p : densities) {
+			Binary b = random(N, p, rng);
+			double[] best = new double[6];
+			Arrays.fill(best, Double.MAX_VALUE);
+			long[] sums = new long[6];
+			for (int round = 0; round < 5; round++) {
+				w.start();
+				long s0 = 0;
+				for (int i = 0; i < N; i++) {
+					if (b.getBit(i) == 1) {
+						s0 += i;
+					}
+				}
+				best[0] = Math.min(best[0], w.stop());
+				sums[0] = s0;
+
+				w.start();
+				long s1 = 0;
+				for (int i = b.nextSetBit(0); i >= 0; i = b.nextSetBit(i + 1)) {
+					s1 += i;
+				}
+				best[1] = Math.min(best[1], w.stop());
+				sums[1] = s1;
+
+				w.start();
+				long[] s2 = { 0 };
+				b.forEachSetBit(i -> s2[0] += i);
+				best[2] = Math.min(best[2], w.stop());
+				sums[2] = s2[0];
+
+				w.start();
+				long s3 = 0;
+				for (PrimitiveIterator.OfInt it = b.setBitIterator(); it.hasNext();) {
+					s3 += it.nextInt();
+				}
+				best[3] = Math.min(best[3], w.stop());
+				sums[3] = s3;
+
+				w.start();
+				sums[4] = b.setBits().asLongStream().sum();
+				best[4] = Math.min(best[4], w.stop());
+
+				w.start();
+				sums[5] = b.setBits().parallel().asLongStream().sum();
+				best[5] = Math.min(best[5], w.stop());
+			}
+			boolean same = true;
+			for (long s : sums) {
+				same &= s == sums[0];
+			}
+			System.out.printf("%7.1f%% | %8.2f %8.2f %8.2f %8.2f %8.2f %8.2f%s%n", 100 * p, best[0] / N * 1e9,
+					best[1] / N * 1e9, best[2] / N * 1e9, best[3] / N * 1e9, best[4] / N * 1e9, best[5] / N * 1e9,
+					same ? "" : "  MISMATCH");
+		}
+	}
+}
@@ -0,0 +1,472 @@
+package lectures.arrays;
+
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A view of a range of consecutive bits of a {@link Binary}, created by
+ * {@link Binary#slice(int, int)}. The view does not copy any bits: every
+ * method reads or changes the bits of the binary number it was created
+ * from, so changes made to that number are seen by the view, and bits set
+ * through the view change the number.
+ *
+ * <p>
+ * As in {@code Binary}, index 0 is the index of the left-most bit of the
+ * view, and the right-most bit of the view is its least significant bit.
+ * Methods that process many bits read them 64 at a time, using at most two
+ * word reads for every 64 bits of the view wherever the view starts. The
+ * bitwise operations {@code and}, {@code or}, {@code xor} and
+ * {@code andNot} also write them 64 at a time, using at most two word
+ * writes, with another view or a whole binary number of the same length.
+ *
+ */
+public final class BinarySlice {
+
+	/**
+	 * The binary number whose bits this view shows.
+	 */
+	private final Binary parent;
+
+	/**
+	 * The index in {@code parent} of the left-most bit of this view.
+	 */
+	private final int from;
+
+	/**
+	 * The number of bits of this view.
+	 */
+	private final int length;
+
+	/**
+	 * Initializes this view to show {@code length} bits of {@code parent}
+	 * starting at index {@code from}. The caller checks the range.
+	 * 
+	 * @param parent the binary number whose bits the view shows
+	 * @param from the index in parent of the left-most bit of the view
+	 * @param length the number of bits of the view
+	 */
+	BinarySlice(Binary parent, int from, int length) {
+		this.parent = parent;
+		this.from = from;
+		this.length = length;
+	}
+
+	/**
+	 * Returns the position in {@code parent}, counted from its right-most
+	 * bit, of the right-most bit of this view.
+	 * 
+	 * @return the position of the right-most bit of this view
+	 */
+	private int offset() {
+		return this.parent.numberOfBits() - this.from - this.length;
+	}
+
+	/**
+	 * Returns the bits of this view at positions {@code 64 * k} to
+	 * {@code 64 * k + 63}, counted from the right-most bit of this view; the
+	 * bits after the left-most bit of this view are 0.
+	 * 
+	 * @param k the index of the 64-bit block
+	 * @return the bits of the block
+	 */
+	private long word(int k) {
+		int q = k << 6;
+		return this.parent.bitsAt(this.offset() + q, Math.min(64, this.length - q));
+	}
+
+	/**
+	 * Returns the number of 64-bit blocks needed to hold the bits of this
+	 * view.
+	 * 
+	 * @return the number of blocks
+	 */
+	private int wordCount() {
+		return ((this.length - 1) >>> 6) + 1;
+	}
+
+	/**
+	 * Checks if the specified index is a valid index for this view.
+	 * 
+	 * @param index the index to check
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this view
+	 */
+	private void checkIndex(int index) {
+		if (index < 0 || index >= this.length) {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * Returns the number of bits of this view.
+	 * 
+	 * @return the number of bits of this view
+	 */
+	public int numberOfBits() {
+		return this.length;
+	}
+
+	/**
+	 * Returns the bit of this view at the specified index.
+	 * 
+	 * @param index
+	 *            the index of the bit to get
+	 * @return the bit at the specified index
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this view
+	 */
+	public int getBit(int index) {
+		this.checkIndex(index);
+		return this.parent.getBit(this.from + index);
+	}
+
+	/**
+	 * Sets the bit of this view at the specified index, which sets the
+	 * corresponding bit of the binary number this view was created from.
+	 * 
+	 * @param index
+	 *            the index of the bit to set
+	 * @param value
+	 *            the value of the bit to set
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this view
+	 * @throws IllegalArgumentException
+	 *            if value is not a 0 or 1
+	 */
+	public void setBit(int index, int value) {
+		this.checkIndex(index);
+		this.parent.setBit(this.from + index, value);
+	}
+
+	/**
+	 * Returns the {@code len} bits of this view starting at index
+	 * {@code from} as a {@code long}, in the same way as
+	 * {@link Binary#extractBits(int, int)}.
+	 * 
+	 * @param from
+	 *            the index of the first bit to extract
+	 * @param len
+	 *            the number of bits to extract, from 1 to 64
+	 * @return the extracted bits
+	 * @throws IllegalArgumentException
+	 *             if len is not between 1 and 64, or if the bits are not all
+	 *             inside this view
+	 */
+	public long extractBits(int from, int len) {
+		if (len < 1 || len > 64 || from < 0 || from > this.length - len) {
+			throw new IllegalArgumentException();
+		}
+		return this.parent.bitsAt(this.offset() + this.length - from - len, len);
+	}
+
+	/**
+	 * Returns the value of the right-most 64 bits of this view as a
+	 * {@code long}, in the same way as {@link Binary#toLong()}.
+	 * 
+	 * @return the value of the right-most 64 bits of this view
+	 */
+	public long toLong() {
+		return this.word(0);
+	}
+
+	/**
+	 * Returns the value of the bits of this view as a {@code long}.
+	 * 
+	 * @return the value of the bits of this view
+	 * @throws ArithmeticException
+	 *             if the value of the bits is greater than
+	 *             {@code Long.MAX_VALUE}
+	 */
+	public long toLongExact() {
+		for (int k = this.wordCount() - 1; k > 0; k--) {
+			if (this.word(k) != 0) {
+				throw new ArithmeticException("value does not fit in a long");
+			}
+		}
+		long value = this.word(0);
+		if (value < 0) {
+			throw new ArithmeticException("value does not fit in a long");
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the number of bits of this view that are equal to 1.
+	 * 
+	 * @return the number of 1 bits of this view
+	 */
+	public int bitCount() {
+		int count = 0;
+		for (int k = this.wordCount() - 1; k >= 0; k--) {
+			count += Long.bitCount(this.word(k));
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the index of the first bit equal to {@code value} at or after
+	 * {@code fromIndex}, or -1 if there is no such bit.
+	 * 
+	 * @param fromIndex an index of this view
+	 * @param value the value of the bit to find
+	 * @return the index of the bit, or -1
+	 */
+	private int nextIndex(int fromIndex, int value) {
+		long flip = value == 1 ? 0L : -1L;
+		int p = this.length - 1 - fromIndex;
+		int k = p >>> 6;
+		// keep only the positions at or below p
+		long word = (this.word(k) ^ flip) & (-1L >>> (63 - (p & 63)));
+		while (word == 0) {
+			if (--k < 0) {
+				return -1;
+			}
+			word = this.word(k) ^ flip;
+		}
+		return this.length - 1 - ((k << 6) + 63 - Long.numberOfLeadingZeros(word));
+	}
+
+	/**
+	 * Returns the index of the first bit of this view that is equal to 1 at
+	 * or after the specified index, or -1 if there is no such bit.
+	 * 
+	 * @param fromIndex
+	 *            the index to start searching from
+	 * @return the index of the next 1 bit, or -1 if there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if fromIndex is negative
+	 */
+	public int nextSetBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IllegalArgumentException();
+		}
+		return fromIndex >= this.length ? -1 : this.nextIndex(fromIndex, 1);
+	}
+
+	/**
+	 * Returns the index of the first bit of this view that is equal to 0 at
+	 * or after the specified index, or -1 if there is no such bit.
+	 * 
+	 * @param fromIndex
+	 *            the index to start searching from
+	 * @return the index of the next 0 bit, or -1 if there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if fromIndex is negative
+	 */
+	public int nextClearBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IllegalArgumentException();
+		}
+		return fromIndex >= this.length ? -1 : this.nextIndex(fromIndex, 0);
+	}
+
+	/**
+	 * Replaces every bit of this view by {@code op} applied to the bit and
+	 * the corresponding bit of {@code other}, 64 bits at a time. The bits
+	 * are processed in the order in which no bit of {@code other} is read
+	 * after it has been written, as in {@code System.arraycopy}, so the two
+	 * views may overlap.
+	 * 
+	 * @param other a view having the same number of bits as this view
+	 * @param op the operation applied to 64 bits of each view at a time
+	 * @throws IllegalArgumentException
+	 *            if other does not have the same number of bits as this view
+	 */
+	private void apply(BinarySlice other, LongBinaryOperator op) {
+		if (other.length != this.length) {
+			throw new IllegalArgumentException("views must have the same number of bits");
+		}
+		// takes ownership of the words of parent and discards its hash code
+		// and rank/select directory
+		this.parent.mutableWords();
+		int t = this.offset();
+		int s = other.offset();
+		int blocks = this.wordCount();
+		// going down when other lies below this view in the same number
+		// reads every block of other before it is overwritten
+		boolean down = other.parent == this.parent && s < t;
+		for (int j = 0; j < blocks; j++) {
+			int k = down ? blocks - 1 - j : j;
+			int q = k << 6;
+			int len = Math.min(64, this.length - q);
+			long x = this.parent.bitsAt(t + q, len);
+			long y = other.parent.bitsAt(s + q, len);
+			this.parent.putBitsAt(t + q, len, op.applyAsLong(x, y));
+		}
+	}
+
+	/**
+	 * Returns a view of all of the bits of the specified binary number.
+	 * 
+	 * @param b a binary number
+	 * @return a view of every bit of b
+	 */
+	private static BinarySlice whole(Binary b) {
+		return new BinarySlice(b, 0, b.numberOfBits());
+	}
+
+	/**
+	 * Sets each bit of this view to the bitwise AND of the bit and the
+	 * corresponding bit of {@code other}, which changes the corresponding
+	 * bits of the binary number this view was created from.
+	 * 
+	 * @param other
+	 *            the view to AND with this view
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             view
+	 */
+	public void and(BinarySlice other) {
+		this.apply(other, (x, y) -> x & y);
+	}
+
+	/**
+	 * Sets each bit of this view to the bitwise AND of the bit and the
+	 * corresponding bit of {@code other}, which changes the corresponding
+	 * bits of the binary number this view was created from.
+	 * 
+	 * @param other
+	 *            the binary number to AND with this view
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             view
+	 */
+	public void and(Binary other) {
+		this.apply(whole(other), (x, y) -> x & y);
+	}
+
+	/**
+	 * Sets each bit of this view to the bitwise OR of the bit and the
+	 * corresponding bit of {@code other}, which changes the corresponding
+	 * bits of the binary number this view was created from.
+	 * 
+	 * @param other
+	 *            the view to OR with this view
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             view
+	 */
+	public void or(BinarySlice other) {
+		this.apply(other, (x, y) -> x | y);
+	}
+
+	/**
+	 * Sets each bit of this view to the bitwise OR of the bit and the
+	 * corresponding bit of {@code other}, which changes the corresponding
+	 * bits of the binary number this view was created from.
+	 * 
+	 * @param other
+	 *            the binary number to OR with this view
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             view
+	 */
+	public void or(Binary other) {
+		this.apply(whole(other), (x, y) -> x | y);
+	}
+
+	/**
+	 * Sets each bit of this view to the bitwise XOR (exclusive or) of the
+	 * bit and the corresponding bit of {@code other}, which changes the
+	 * corresponding bits of the binary number this view was created from.
+	 * 
+	 * @param other
+	 *            the view to XOR with this view
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             view
+	 */
+	public void xor(BinarySlice other) {
+		this.apply(other, (x, y) -> x ^ y);
+	}
+
+	/**
+	 * Sets each bit of this view to the bitwise XOR (exclusive or) of the
+	 * bit and the corresponding bit of {@code other}, which changes the
+	 * corresponding bits of the binary number this view was created from.
+	 * 
+	 * @param other
+	 *            the binary number to XOR with this view
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             view
+	 */
+	public void xor(Binary other) {
+		this.apply(whole(other), (x, y) -> x ^ y);
+	}
+
+	/**
+	 * Sets to 0 each bit of this view whose corresponding bit in
+	 * {@code other} is 1, which changes the corresponding bits of the binary
+	 * number this view was created from.
+	 * 
+	 * @param other
+	 *            the view whose 1 bits are cleared from this view
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             view
+	 */
+	public void andNot(BinarySlice other) {
+		this.apply(other, (x, y) -> x & ~y);
+	}
+
+	/**
+	 * Sets to 0 each bit of this view whose corresponding bit in
+	 * {@code other} is 1, which changes the corresponding bits of the binary
+	 * number this view was created from.
+	 * 
+	 * @param other
+	 *            the binary number whose 1 bits are cleared from this view
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             view
+	 */
+	public void andNot(Binary other) {
+		this.apply(whole(other), (x, y) -> x & ~y);
+	}
+
+	/**
+	 * Returns a view of the bits of this view from index {@code from}
+	 * (inclusive) to index {@code to} (exclusive). The new view shows the
+	 * bits of the same binary number as this view.
+	 * 
+	 * @param from
+	 *            the index of the first bit of the view
+	 * @param to
+	 *            the index after the last bit of the view
+	 * @return a view of the specified bits
+	 * @throws IllegalArgumentException
+	 *             if from is negative, if to is greater than
+	 *             {@code numberOfBits()}, or if from is not less than to
+	 */
+	public BinarySlice slice(int from, int to) {
+		if (from < 0 || to > this.length || from >= to) {
+			throw new IllegalArgumentException();
+		}
+		return new BinarySlice(this.parent, this.from + from, to - from);
+	}
+
+	/**
+	 * Returns a new binary number having the bits of this view. The bits are
+	 * copied, 64 at a time.
+	 * 
+	 * @return a copy of the bits of this view
+	 */
+	public Binary toBinary() {
+		long[] w = new long[this.wordCount()];
+		for (int k = 0; k < w.length; k++) {
+			w[k] = this.word(k);
+		}
+		return Binary.wrap(w, this.length);
+	}
+
+	/**
+	 * Returns a string representation of the bits of this view, in the same
+	 * format as {@link Binary#toString()}.
+	 * 
+	 * @return a string representation of the bits of this view
+	 */
+	@Override
+	public String toString() {
+		return this.toBinary().toString();
+	}
+}
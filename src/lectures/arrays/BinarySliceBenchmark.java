@@ -0,0 +1,128 @@
+package lectures.arrays;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Measures the extraction of fixed-width fields from a large binary number
+ * holding packed records. Every field is read in three ways: with
+ * {@link Binary#extractBits(int, int)}, through a {@link BinarySlice}, and
+ * by copying its bits one at a time into a new {@link Binary}, which is what
+ * had to be done before slices existed. The sums of the fields must match.
+ * The bitwise operations between views, which may overlap, are first checked
+ * against the same operations done one bit at a time.
+ *
+ */
+public class BinarySliceBenchmark {
+
+	/**
+	 * Applies one of the bitwise operations, chosen by {@code op}, to two
+	 * views and to copies of their bits taken one bit at a time, and returns
+	 * true if the view changed its binary number in the same way, leaving a
+	 * copy of the number taken before unchanged and discarding its hash code.
+	 */
+	private static boolean checkBulk(Binary b, int from, int otherFrom, int len, int op, boolean whole) {
+		int n = b.numberOfBits();
+		int[] expected = new int[n];
+		int[] other = new int[len];
+		for (int i = 0; i < n; i++) {
+			expected[i] = b.getBit(i);
+		}
+		for (int i = 0; i < len; i++) {
+			other[i] = b.getBit(otherFrom + i);
+		}
+		Binary original = new Binary(expected);
+		for (int i = 0; i < len; i++) {
+			int x = expected[from + i];
+			int y = other[i];
+			expected[from + i] = op == 0 ? x & y : op == 1 ? x | y : op == 2 ? x ^ y : x & (1 - y);
+		}
+		Binary before = new Binary(b);
+		int hash = b.hashCode();
+		BinarySlice view = b.slice(from, from + len);
+		if (whole) {
+			Binary o = b.slice(otherFrom, otherFrom + len).toBinary();
+			switch (op) {
+			case 0: view.and(o); break;
+			case 1: view.or(o); break;
+			case 2: view.xor(o); break;
+			default: view.andNot(o);
+			}
+		} else {
+			BinarySlice o = b.slice(otherFrom, otherFrom + len);
+			switch (op) {
+			case 0: view.and(o); break;
+			case 1: view.or(o); break;
+			case 2: view.xor(o); break;
+			default: view.andNot(o);
+			}
+		}
+		Binary after = new Binary(expected);
+		return b.equals(after) && b.hashCode() == after.hashCode() && before.equals(original);
+	}
+
+	public static void main(String[] args) {
+		int n = 1 << 24;
+		int[] widths = { 8, 16, 33, 64 };
+		Random rng = new Random(2030);
+		int[] bits = new int[n];
+		for (int i = 0; i < n; i++) {
+			bits[i] = rng.nextInt(2);
+		}
+		Binary b = new Binary(bits);
+
+		Binary small = new Binary(Arrays.copyOf(bits, 700));
+		boolean bulk = true;
+		for (int t = 0; t < 20000; t++) {
+			int len = 1 + rng.nextInt(300);
+			int from = rng.nextInt(700 - len + 1);
+			int otherFrom = rng.nextInt(700 - len + 1);
+			bulk &= checkBulk(small, from, otherFrom, len, rng.nextInt(4), rng.nextBoolean());
+		}
+		System.out.println("bitwise operations between views: " + (bulk ? "ok" : "MISMATCH"));
+
+		int fields = 1 << 20;
+		int[] from = new int[fields];
+		Stopwatch w = new Stopwatch();
+		for (int round = 0; round < 2; round++) {
+			for (int width : widths) {
+				for (int i = 0; i < fields; i++) {
+					from[i] = rng.nextInt(n - width + 1);
+				}
+				w.start();
+				long sumExtract = 0;
+				for (int i = 0; i < fields; i++) {
+					sumExtract += b.extractBits(from[i], width);
+				}
+				double tExtract = w.stop();
+
+				w.start();
+				long sumSlice = 0;
+				for (int i = 0; i < fields; i++) {
+					sumSlice += b.slice(from[i], from[i] + width).toLong();
+				}
+				double tSlice = w.stop();
+
+				w.start();
+				long sumCopy = 0;
+				int[] field = new int[width];
+				for (int i = 0; i < fields; i++) {
+					for (int j = 0; j < width; j++) {
+						field[j] = b.getBit(from[i] + j);
+					}
+					sumCopy += new Binary(field).toLong();
+				}
+				double tCopy = w.stop();
+
+				if (round == 1) {
+					boolean same = sumExtract == sumSlice && sumSlice == sumCopy;
+					System.out.printf("%2d-bit fields: extractBits %6.1f ns, slice %6.1f ns, copy %7.1f ns%s%n", width,
+							tExtract / fields * 1e9, tSlice / fields * 1e9, tCopy / fields * 1e9,
+							same ? "" : "  MISMATCH");
+				}
+			}
+		}
+	}
+}
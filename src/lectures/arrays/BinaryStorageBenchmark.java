@@ -0,0 +1,126 @@
+package lectures.arrays;
+
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Compares the memory footprint and bit access throughput of {@link Binary}
+ * (which packs 64 bits into each {@code long}) with the previous layout that
+ * stored one bit per {@code int}.
+ *
+ * <p>
+ * The number of bits can be given as a command line argument; the default is
+ * 2^26 bits, which needs about 256 MB for the one-bit-per-int layout.
+ *
+ */
+public class BinaryStorageBenchmark {
+
+	/**
+	 * The previous layout: one bit per {@code int}.
+	 */
+	private static class IntPerBit {
+		private int[] bits;
+
+		IntPerBit(int[] bits) {
+			this.bits = bits.clone();
+		}
+
+		int numberOfBits() {
+			return this.bits.length;
+		}
+
+		int getBit(int index) {
+			if (index < 0 || index >= this.numberOfBits()) {
+				throw new IllegalArgumentException();
+			}
+			return this.bits[index];
+		}
+
+		void setBit(int index, int value) {
+			if (index < 0 || index >= this.numberOfBits()) {
+				throw new IllegalArgumentException();
+			}
+			this.bits[index] = value;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes of heap in use after garbage collection.
+	 */
+	private static long usedMemory() {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	private static long scan(Binary b) {
+		long sum = 0;
+		for (int i = 0; i < b.numberOfBits(); i++) {
+			sum += b.getBit(i);
+		}
+		return sum;
+	}
+
+	private static long scan(IntPerBit b) {
+		long sum = 0;
+		for (int i = 0; i < b.numberOfBits(); i++) {
+			sum += b.getBit(i);
+		}
+		return sum;
+	}
+
+	private static void fill(Binary b, Random rng) {
+		for (int i = 0; i < b.numberOfBits(); i++) {
+			b.setBit(i, rng.nextInt(2));
+		}
+	}
+
+	private static void fill(IntPerBit b, Random rng) {
+		for (int i = 0; i < b.numberOfBits(); i++) {
+			b.setBit(i, rng.nextInt(2));
+		}
+	}
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 26;
+		int[] bits = new int[n];
+
+		long before = usedMemory();
+		IntPerBit ints = new IntPerBit(bits);
+		long intBytes = usedMemory() - before;
+
+		before = usedMemory();
+		Binary packed = new Binary(bits);
+		long packedBytes = usedMemory() - before;
+		bits = null;
+
+		System.out.printf("%d bits%n", n);
+		System.out.printf("  int per bit : %,d bytes%n", intBytes);
+		System.out.printf("  packed      : %,d bytes%n", packedBytes);
+
+		Stopwatch w = new Stopwatch();
+		for (int round = 0; round < 5; round++) {
+			w.start();
+			fill(ints, new Random(round));
+			double tSetInts = w.stop();
+			w.start();
+			fill(packed, new Random(round));
+			double tSetPacked = w.stop();
+
+			w.start();
+			long countInts = scan(ints);
+			double tGetInts = w.stop();
+			w.start();
+			long countPacked = scan(packed);
+			double tGetPacked = w.stop();
+
+			System.out.printf("  setBit: int per bit %.2f ns, packed %.2f ns; ", tSetInts * 1e9 / n,
+					tSetPacked * 1e9 / n);
+			System.out.printf("getBit: int per bit %.2f ns, packed %.2f ns; same: %b%n", tGetInts * 1e9 / n,
+					tGetPacked * 1e9 / n, countInts == countPacked);
+		}
+	}
+}
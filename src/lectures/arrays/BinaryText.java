@@ -0,0 +1,423 @@
+package lectures.arrays;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Formatting and parsing of the words of a {@link Binary} in base 2, 10, and
+ * 16.
+ *
+ * <p>
+ * Base 2 and base 16 text is written one digit at a time directly from the
+ * words, without creating any temporary objects. Base 10 needs division:
+ * values of up to 64 bits are formatted using {@code long} arithmetic, and
+ * larger values are copied into a scratch array, slightly longer than the
+ * value, in which the divisions are done. Each thread keeps its scratch
+ * array if it has at most {@value #CACHED_SCRATCH_WORDS} words. Values of
+ * more than {@value #DECIMAL_SPLIT_WORDS} words are split in two by
+ * division by 10^(18 * 2^j) until the parts are small, and the parts are
+ * divided repeatedly by 10^9.
+ *
+ * <p>
+ * Powers of fewer than {@value #BARRETT_WORDS} words divide by long
+ * division in place. Larger ones use their reciprocal, computed once with
+ * Newton's iteration and cached like the powers, so that each division
+ * costs two Karatsuba multiplications and the whole conversion takes less
+ * than quadratic time. These divisions allocate their intermediate
+ * results. Values of up to 240 words (15360 bits) only need powers of up to
+ * 120 words, so formatting them allocates nothing once the scratch array
+ * of the thread has grown; larger values do allocate temporary arrays.
+ *
+ * <p>
+ * Parsing base 10 text uses the same powers in reverse: the two halves of a
+ * long digit string are parsed separately and combined with one Karatsuba
+ * multiplication, so huge values are parsed in less than quadratic time.
+ *
+ */
+final class BinaryText {
+
+	/**
+	 * The hexadecimal digits.
+	 */
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * The number of decimal digits in one chunk handled with {@code long}
+	 * arithmetic; 10^18 is less than 2^63.
+	 */
+	private static final int CHUNK_DIGITS = 18;
+
+	/**
+	 * 10 to the power {@link #CHUNK_DIGITS}.
+	 */
+	private static final long CHUNK = 1_000_000_000_000_000_000L;
+
+	/**
+	 * Values having more words than this are formatted in base 10 by dividing
+	 * them into halves.
+	 */
+	static final int DECIMAL_SPLIT_WORDS = 64;
+
+	/**
+	 * Values are split in base 10 by Barrett division when the power of ten
+	 * has at least this many words, and by long division otherwise.
+	 */
+	static final int BARRETT_WORDS = 128;
+
+	/**
+	 * The largest scratch array, in words, that a thread keeps for
+	 * formatting in base 10.
+	 */
+	static final int CACHED_SCRATCH_WORDS = 1024;
+
+	/**
+	 * The number of words past the end of a number that the base 10
+	 * formatting may use: one for each level of splitting. Every split
+	 * leaves a quotient of at most about half the words, so a number of 2^25
+	 * words is split fewer than 64 times.
+	 */
+	private static final int SPLIT_SPACE = 64;
+
+	/**
+	 * The number of words at the end of the scratch array of the base 10
+	 * formatting that hold the remainders of division by 10^18; a number of
+	 * {@value #DECIMAL_SPLIT_WORDS} words has at most 1234 digits, or 69
+	 * chunks.
+	 */
+	private static final int CHUNK_SPACE = 70;
+
+	/**
+	 * Digit strings having more chunks than this are parsed by splitting them
+	 * into halves.
+	 */
+	private static final int PARSE_SPLIT_CHUNKS = 64;
+
+	/**
+	 * The powers 10^(18 * 2^j) as words, least significant word first.
+	 */
+	private static volatile long[][] powers = { { CHUNK } };
+
+	/**
+	 * The reciprocals of the powers used by Barrett division, computed when
+	 * first needed; entry {@code j} is null until then.
+	 */
+	private static volatile long[][] reciprocals = {};
+
+	/**
+	 * The scratch array of each thread for formatting in base 10, or null
+	 * while the thread is using it.
+	 */
+	private static final ThreadLocal<long[]> SCRATCH = new ThreadLocal<>();
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private BinaryText() {
+	}
+
+	/**
+	 * Returns 10^(18 * 2^j) as words with no leading zero words.
+	 */
+	private static long[] power(int j) {
+		long[][] p = powers;
+		if (j < p.length) {
+			return p[j];
+		}
+		synchronized (BinaryText.class) {
+			p = powers;
+			int n = p.length;
+			if (j >= n) {
+				p = Arrays.copyOf(p, j + 1);
+				for (int i = n; i <= j; i++) {
+					long[] x = p[i - 1];
+					long[] sq = WordArithmetic.multiply(x, x.length, x, x.length, Binary.getKaratsubaThreshold());
+					p[i] = Arrays.copyOf(sq, WordArithmetic.length(sq, sq.length));
+				}
+				powers = p;
+			}
+			return p[j];
+		}
+	}
+
+	/**
+	 * Returns the reciprocal of 10^(18 * 2^j) used by
+	 * {@link WordArithmetic#divide(long[], int, int, long[], int, long[], int)}.
+	 */
+	private static long[] reciprocal(int j) {
+		long[][] r = reciprocals;
+		if (j < r.length && r[j] != null) {
+			return r[j];
+		}
+		long[] p = power(j);
+		synchronized (BinaryText.class) {
+			r = reciprocals;
+			if (j >= r.length) {
+				r = Arrays.copyOf(r, j + 1);
+			}
+			if (r[j] == null) {
+				r[j] = WordArithmetic.reciprocal(p, p.length, Binary.getKaratsubaThreshold());
+				reciprocals = r;
+			}
+			return r[j];
+		}
+	}
+
+	/**
+	 * Appends the bits of a number having {@code n} bits to {@code out}, from
+	 * the left-most bit to the right-most bit.
+	 */
+	static void appendBinary(long[] words, int n, Appendable out) throws IOException {
+		for (int p = n - 1; p >= 0; p--) {
+			out.append((char) ('0' + ((words[p >>> 6] >>> p) & 1)));
+		}
+	}
+
+	/**
+	 * Appends a number having {@code n} bits to {@code out} in base 16, using
+	 * one digit for every 4 bits (rounded up) so that leading zeros are kept.
+	 */
+	static void appendHex(long[] words, int n, Appendable out) throws IOException {
+		for (int p = (n - 1) & -4; p >= 0; p -= 4) {
+			out.append(HEX[(int) (words[p >>> 6] >>> p) & 0xF]);
+		}
+	}
+
+	/**
+	 * Appends a number to {@code out} in base 10, without leading zeros.
+	 */
+	static void appendDecimal(long[] words, Appendable out) throws IOException {
+		int len = WordArithmetic.length(words, words.length);
+		if (len <= 1) {
+			appendUnsigned(len == 0 ? 0 : words[0], 0, out);
+			return;
+		}
+		int size = len + SPLIT_SPACE + CHUNK_SPACE;
+		long[] scratch = SCRATCH.get();
+		if (scratch == null || scratch.length < size) {
+			scratch = new long[size];
+		} else {
+			// taken while in use, in case out formats another number
+			SCRATCH.set(null);
+		}
+		System.arraycopy(words, 0, scratch, 0, len);
+		try {
+			appendDecimal(scratch, 0, len, 0, out);
+		} finally {
+			if (scratch.length <= CACHED_SCRATCH_WORDS) {
+				SCRATCH.set(scratch);
+			}
+		}
+	}
+
+	/**
+	 * Appends the unsigned value {@code v} in base 10, padded with leading
+	 * zeros to {@code width} digits.
+	 */
+	private static void appendUnsigned(long v, int width, Appendable out) throws IOException {
+		if (v < 0) {
+			// values of 2^63 or more: write the last digit separately so that
+			// the rest can use signed arithmetic
+			long q = Long.divideUnsigned(v, 10);
+			appendUnsigned(q, width - 1, out);
+			out.append((char) ('0' + (v - q * 10)));
+			return;
+		}
+		// the digits are found from the right but must be written from the
+		// left, so the largest power of ten not greater than v is found first
+		int digits = 1;
+		long pow = 1;
+		while (pow <= v / 10) {
+			pow *= 10;
+			digits++;
+		}
+		for (int i = digits; i < width; i++) {
+			out.append('0');
+		}
+		for (; pow != 0; pow /= 10) {
+			long d = v / pow;
+			out.append((char) ('0' + d));
+			v -= d * pow;
+		}
+	}
+
+	/**
+	 * Appends the number held in words {@code off} to {@code off + len - 1}
+	 * of the scratch array {@code w} in base 10, padded with leading zeros to
+	 * {@code width} digits. The words are destroyed.
+	 *
+	 * <p>
+	 * A number of more than {@value #DECIMAL_SPLIT_WORDS} words is divided by
+	 * the smallest power of ten having at least half as many words, which
+	 * leaves the remainder in the low words and the quotient in the high
+	 * words and in word {@code off + len}; the quotient is appended first, so
+	 * the word above the remainder can then be cleared for the division of
+	 * the remainder. Each level of splitting therefore uses one more word
+	 * past the end of the number, and the last {@link #CHUNK_SPACE} words of
+	 * {@code w} hold the chunks of the numbers that are not split.
+	 */
+	private static void appendDecimal(long[] w, int off, int len, int width, Appendable out) throws IOException {
+		len = WordArithmetic.length(w, off, len);
+		if (len <= DECIMAL_SPLIT_WORDS) {
+			appendSmallDecimal(w, off, len, width, out);
+			return;
+		}
+		// the smallest power having at least half as many words, so that
+		// the number is less than the square of the power as Barrett
+		// division requires; it has fewer words than the number because the
+		// previous power has fewer than half as many
+		int j = 1;
+		while (2 * power(j).length < len) {
+			j++;
+		}
+		long[] p = power(j);
+		w[off + len] = 0;
+		if (p.length >= BARRETT_WORDS) {
+			WordArithmetic.divide(w, off, len, p, p.length, reciprocal(j), Binary.getKaratsubaThreshold());
+		} else {
+			WordArithmetic.divide(w, off, len, p, p.length);
+		}
+		int lowDigits = CHUNK_DIGITS << j;
+		appendDecimal(w, off + p.length, len - p.length + 1, width - lowDigits, out);
+		appendDecimal(w, off, p.length, lowDigits, out);
+	}
+
+	/**
+	 * Appends a number of up to {@link #DECIMAL_SPLIT_WORDS} words held in
+	 * words {@code off} to {@code off + len - 1} of {@code w} in base 10,
+	 * padded with leading zeros to {@code width} digits, by dividing it
+	 * repeatedly by 10^18. The remainders are kept in the last
+	 * {@link #CHUNK_SPACE} words of {@code w}. The words are destroyed.
+	 */
+	private static void appendSmallDecimal(long[] w, int off, int len, int width, Appendable out)
+			throws IOException {
+		if (len <= 1) {
+			appendUnsigned(len == 0 ? 0 : w[off], width, out);
+			return;
+		}
+		// remainders of division by 10^18, least significant chunk first
+		int chunks = w.length - CHUNK_SPACE;
+		int n = 0;
+		while (len > 1) {
+			w[chunks + n++] = divideByChunk(w, off, len);
+			len = WordArithmetic.length(w, off, len);
+		}
+		int digits = n * CHUNK_DIGITS;
+		appendUnsigned(w[off], width - digits, out);
+		while (n > 0) {
+			appendUnsigned(w[chunks + --n], CHUNK_DIGITS, out);
+		}
+	}
+
+	/**
+	 * Divides the {@code len} words of {@code w} starting at word {@code off}
+	 * by 10^18 and returns the remainder.
+	 */
+	private static long divideByChunk(long[] w, int off, int len) {
+		// the partial dividends of a division by 10^18 would not fit in a
+		// long, so divide by 10^9 twice
+		long lo = divide32(w, off, len, 1_000_000_000L);
+		long hi = divide32(w, off, len, 1_000_000_000L);
+		return hi * 1_000_000_000L + lo;
+	}
+
+	/**
+	 * Divides the {@code len} words of {@code w} starting at word {@code off}
+	 * by {@code d}, which must be less than 2^31, and returns the remainder.
+	 */
+	private static long divide32(long[] w, int off, int len, long d) {
+		long r = 0;
+		for (int i = off + len - 1; i >= off; i--) {
+			long x = w[i];
+			long hi = (r << 32) | (x >>> 32);
+			long qh = hi / d;
+			r = hi - qh * d;
+			long lo = (r << 32) | (x & 0xFFFFFFFFL);
+			long ql = lo / d;
+			r = lo - ql * d;
+			w[i] = (qh << 32) | ql;
+		}
+		return r;
+	}
+
+	/**
+	 * Returns the words of the number written in base 10 in characters
+	 * {@code from} (inclusive) to {@code to} (exclusive) of {@code s}. The
+	 * characters must be decimal digits. The returned array may have leading
+	 * zero words.
+	 */
+	static long[] parseDecimal(CharSequence s, int from, int to) {
+		int chunks = (to - from + CHUNK_DIGITS - 1) / CHUNK_DIGITS;
+		if (chunks <= PARSE_SPLIT_CHUNKS) {
+			return parseSmallDecimal(s, from, to);
+		}
+		// the low half has 18 * 2^j digits
+		int j = 0;
+		while (2 * (CHUNK_DIGITS << (j + 1)) < to - from) {
+			j++;
+		}
+		int mid = to - (CHUNK_DIGITS << j);
+		long[] high = parseDecimal(s, from, mid);
+		long[] low = parseDecimal(s, mid, to);
+		long[] p = power(j);
+		int hlen = WordArithmetic.length(high, high.length);
+		if (hlen == 0) {
+			return low;
+		}
+		long[] r = WordArithmetic.multiply(high, hlen, p, p.length, Binary.getKaratsubaThreshold());
+		r = Arrays.copyOf(r, Math.max(r.length, low.length) + 1);
+		WordArithmetic.addInto(r, 0, low, WordArithmetic.length(low, low.length));
+		return r;
+	}
+
+	/**
+	 * Parses a short decimal digit string one chunk of 18 digits at a time.
+	 */
+	private static long[] parseSmallDecimal(CharSequence s, int from, int to) {
+		// every 18 digits need less than 60 bits
+		long[] w = new long[((to - from) * 60 / CHUNK_DIGITS + 63) / 64 + 1];
+		int len = 0;
+		int first = from + (to - from) % CHUNK_DIGITS;
+		if (first == from) {
+			first += CHUNK_DIGITS;
+		}
+		for (int start = from, end = first; start < to; start = end, end += CHUNK_DIGITS) {
+			long chunk = 0;
+			long scale = 1;
+			for (int i = start; i < end; i++) {
+				chunk = chunk * 10 + digit(s, i, 10);
+				scale *= 10;
+			}
+			// w = w * scale + chunk
+			long carry = chunk;
+			for (int i = 0; i < len; i++) {
+				long lo = w[i] * scale;
+				long hi = WordArithmetic.unsignedMultiplyHigh(w[i], scale);
+				lo += carry;
+				if (Long.compareUnsigned(lo, carry) < 0) {
+					hi++;
+				}
+				w[i] = lo;
+				carry = hi;
+			}
+			if (carry != 0) {
+				w[len++] = carry;
+			}
+		}
+		return w;
+	}
+
+	/**
+	 * Returns the value of the digit at index {@code i} of {@code s} in the
+	 * specified radix.
+	 *
+	 * @throws NumberFormatException
+	 *             if the character is not a digit in the radix
+	 */
+	static int digit(CharSequence s, int i, int radix) {
+		int d = Character.digit(s.charAt(i), radix);
+		if (d < 0) {
+			throw new NumberFormatException("invalid digit '" + s.charAt(i) + "' at index " + i);
+		}
+		return d;
+	}
+}
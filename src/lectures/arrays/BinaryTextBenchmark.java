@@ -0,0 +1,65 @@
+package lectures.arrays;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Measures formatting with {@link Binary#appendTo(Appendable, int)} and
+ * parsing with {@link Binary#parse(CharSequence, int)} in base 2, 16, and 10
+ * for numbers of 64 to 2^20 bits, and compares them with the equivalent
+ * {@code BigInteger} methods. Formatting appends to one reused
+ * {@code StringBuilder}, which is how many values are serialized in a loop.
+ *
+ */
+public class BinaryTextBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int[] sizes = { 64, 1 << 10, 1 << 16, 1 << 20 };
+		int[] radixes = { 2, 16, 10 };
+		Random rng = new Random(2030);
+		Stopwatch w = new Stopwatch();
+		StringBuilder sb = new StringBuilder();
+		for (int round = 0; round < 2; round++) {
+			for (int n : sizes) {
+				BigInteger v = new BigInteger(n, rng).setBit(n - 1);
+				Binary b = Binary.valueOf(v);
+				for (int radix : radixes) {
+					int reps = (int) Math.max(2, (radix == 10 ? 1L << 22 : 1L << 28) / ((long) n * n / 64 + n));
+					String s = b.toString(radix);
+					boolean same = radix == 16 || s.equals(v.toString(radix));
+					same &= Binary.parse(s, radix).compareTo(b) == 0;
+
+					w.start();
+					for (int i = 0; i < reps; i++) {
+						sb.setLength(0);
+						b.appendTo(sb, radix);
+					}
+					double tFormat = w.stop() / reps;
+					w.start();
+					for (int i = 0; i < reps; i++) {
+						Binary.parse(s, radix);
+					}
+					double tParse = w.stop() / reps;
+					w.start();
+					for (int i = 0; i < reps; i++) {
+						v.toString(radix);
+					}
+					double tBigFormat = w.stop() / reps;
+					w.start();
+					for (int i = 0; i < reps; i++) {
+						new BigInteger(s, radix);
+					}
+					double tBigParse = w.stop() / reps;
+					if (round == 1) {
+						System.out.printf(
+								"%8d bits, radix %2d: format %12.1f ns (BigInteger %12.1f ns), parse %12.1f ns (BigInteger %12.1f ns)%s%n",
+								n, radix, tFormat * 1e9, tBigFormat * 1e9, tParse * 1e9, tBigParse * 1e9,
+								same ? "" : "  MISMATCH");
+					}
+				}
+			}
+		}
+	}
+}
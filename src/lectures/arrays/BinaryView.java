@@ -0,0 +1,258 @@
+package lectures.arrays;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A read-only view of a binary number stored in a {@code ByteBuffer} in the
+ * layout written by {@link Binary#writeTo(ByteBuffer)}. The bits are read
+ * directly from the buffer, which may be a heap buffer, a direct buffer, or
+ * a {@code MappedByteBuffer} of a file; nothing is copied.
+ *
+ * <p>
+ * A view can be moved to another record with {@link #moveTo(int)}, so a
+ * buffer holding many binary numbers one after another can be scanned using
+ * one view and no other objects:
+ *
+ * <pre>
+ * BinaryView v = new BinaryView(buffer, 0);
+ * for (int offset = 0; offset &lt; buffer.limit(); offset = v.end()) {
+ *     v.moveTo(offset);
+ *     total += v.bitCount();
+ * }
+ * </pre>
+ *
+ * <p>
+ * The view reads the buffer using absolute positions, so it does not change
+ * the position of the buffer. Changes made to the bytes of the buffer are
+ * visible through the view. As in {@code Binary}, index 0 is the index of
+ * the left-most bit.
+ *
+ */
+public final class BinaryView {
+
+	/**
+	 * The buffer that holds the binary number.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * True if the buffer is not in little-endian order and every value read
+	 * from it must have its bytes reversed.
+	 */
+	private final boolean swap;
+
+	/**
+	 * The index in the buffer of the first byte of the bits.
+	 */
+	private int base;
+
+	/**
+	 * The number of bits of the binary number.
+	 */
+	private int numberOfBits;
+
+	/**
+	 * Initializes this view to show the binary number that starts at the
+	 * specified index of the buffer.
+	 *
+	 * @param buffer
+	 *            the buffer that holds the binary number
+	 * @param offset
+	 *            the index in the buffer of the first byte of the binary
+	 *            number
+	 * @throws BufferUnderflowException
+	 *             if the buffer does not hold a complete binary number at
+	 *             offset
+	 * @throws IllegalArgumentException
+	 *             if the number of bits read from the buffer is less than 1
+	 */
+	public BinaryView(ByteBuffer buffer, int offset) {
+		this.buffer = buffer;
+		this.swap = buffer.order() != ByteOrder.LITTLE_ENDIAN;
+		this.moveTo(offset);
+	}
+
+	/**
+	 * Moves this view to the binary number that starts at the specified index
+	 * of the buffer.
+	 *
+	 * @param offset
+	 *            the index in the buffer of the first byte of the binary
+	 *            number
+	 * @throws BufferUnderflowException
+	 *             if the buffer does not hold a complete binary number at
+	 *             offset
+	 * @throws IllegalArgumentException
+	 *             if the number of bits read from the buffer is less than 1
+	 */
+	public void moveTo(int offset) {
+		if (offset < 0 || this.buffer.limit() - offset < Integer.BYTES) {
+			throw new BufferUnderflowException();
+		}
+		int n = this.buffer.getInt(offset);
+		if (this.swap) {
+			n = Integer.reverseBytes(n);
+		}
+		if (n < 1) {
+			throw new IllegalArgumentException("invalid number of bits: " + n);
+		}
+		if (this.buffer.limit() - offset - Integer.BYTES < (n + 7L) >>> 3) {
+			throw new BufferUnderflowException();
+		}
+		this.base = offset + Integer.BYTES;
+		this.numberOfBits = n;
+	}
+
+	/**
+	 * Returns the index in the buffer of the first byte after the binary
+	 * number shown by this view, which is where the next binary number of a
+	 * sequence starts.
+	 *
+	 * @return the index of the byte after the binary number
+	 */
+	public int end() {
+		return this.base + (int) ((this.numberOfBits + 7L) >>> 3);
+	}
+
+	/**
+	 * Returns the word of the binary number having the specified index, in
+	 * the layout of the words of {@code Binary}.
+	 *
+	 * @param i the index of the word
+	 * @return the word
+	 */
+	private long word(int i) {
+		int bytes = (int) ((this.numberOfBits + 7L) >>> 3);
+		int at = this.base + 8 * i;
+		if (8 * i + 8 <= bytes) {
+			long w = this.buffer.getLong(at);
+			return this.swap ? Long.reverseBytes(w) : w;
+		}
+		long w = 0;
+		for (int b = 0; 8 * i + b < bytes; b++) {
+			w |= (this.buffer.get(at + b) & 0xFFL) << (8 * b);
+		}
+		// ignore any bits after the number in the last byte
+		return w & (-1L >>> (-this.numberOfBits & 63));
+	}
+
+	/**
+	 * Returns the number of bits in the binary number.
+	 *
+	 * @return the number of bits in the binary number
+	 */
+	public int numberOfBits() {
+		return this.numberOfBits;
+	}
+
+	/**
+	 * Returns the bit at the specified index.
+	 *
+	 * @param index
+	 *            the index of the bit to get
+	 * @return the bit at the specified index
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for the binary number
+	 */
+	public int getBit(int index) {
+		if (index < 0 || index >= this.numberOfBits) {
+			throw new IllegalArgumentException();
+		}
+		int p = this.numberOfBits - 1 - index;
+		return (this.buffer.get(this.base + (p >>> 3)) >>> (p & 7)) & 1;
+	}
+
+	/**
+	 * Returns the left-most bit of the binary number.
+	 *
+	 * @return the left-most bit of the binary number
+	 */
+	public int getLeftMostBit() {
+		return this.getBit(0);
+	}
+
+	/**
+	 * Returns the right-most bit of the binary number.
+	 *
+	 * @return the right-most bit of the binary number
+	 */
+	public int getRightMostBit() {
+		return this.buffer.get(this.base) & 1;
+	}
+
+	/**
+	 * Returns the number of bits of the binary number that are equal to 1.
+	 *
+	 * @return the number of 1 bits in the binary number
+	 */
+	public int bitCount() {
+		int count = 0;
+		int words = ((this.numberOfBits - 1) >>> 6) + 1;
+		for (int i = 0; i < words; i++) {
+			count += Long.bitCount(this.word(i));
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the index of the first bit that is equal to 1 at or after the
+	 * specified index, or -1 if there is no such bit.
+	 *
+	 * @param fromIndex
+	 *            the index to start searching from
+	 * @return the index of the next 1 bit, or -1 if there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if fromIndex is negative
+	 * @see Binary#nextSetBit(int)
+	 */
+	public int nextSetBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (fromIndex >= this.numberOfBits) {
+			return -1;
+		}
+		int p = this.numberOfBits - 1 - fromIndex;
+		int i = p >>> 6;
+		// keep only the positions at or below p
+		long word = this.word(i) & (-1L >>> (63 - (p & 63)));
+		while (word == 0) {
+			if (--i < 0) {
+				return -1;
+			}
+			word = this.word(i);
+		}
+		return this.numberOfBits - 1 - (i * 64 + 63 - Long.numberOfLeadingZeros(word));
+	}
+
+	/**
+	 * Returns a binary number having the bits shown by this view. The bits
+	 * are copied.
+	 *
+	 * @return a copy of the binary number
+	 */
+	public Binary toBinary() {
+		long[] w = new long[((this.numberOfBits - 1) >>> 6) + 1];
+		for (int i = 0; i < w.length; i++) {
+			w[i] = this.word(i);
+		}
+		return Binary.wrap(w, this.numberOfBits);
+	}
+
+	/**
+	 * Returns a string representation of the binary number, in the same
+	 * format as {@link Binary#toString()}.
+	 *
+	 * @return a string representation of the binary number
+	 */
+	@Override
+	public String toString() {
+		char[] c = new char[this.numberOfBits];
+		for (int i = 0; i < c.length; i++) {
+			c[i] = (char) ('0' + this.getBit(i));
+		}
+		return new String(c);
+	}
+}
@@ -0,0 +1,81 @@
+package lectures.arrays;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Writes about a million binary numbers of random lengths one after another
+ * into a direct {@code ByteBuffer} with {@link Binary#writeTo(ByteBuffer)},
+ * then reads them back in three ways and compares the time taken to sum
+ * their bit counts: with {@link Binary#readFrom(ByteBuffer)}, which copies
+ * every number into a new {@code Binary}; with one reused {@link BinaryView},
+ * which copies nothing; and, for comparison, by parsing their base 2 strings.
+ *
+ */
+public class BinaryViewBenchmark {
+
+	public static void main(String[] args) {
+		int records = 1 << 20;
+		Random rng = new Random(2030);
+		Binary[] values = new Binary[records];
+		String[] strings = new String[records];
+		int bytes = 0;
+		long expected = 0;
+		for (int i = 0; i < records; i++) {
+			int n = 1 + rng.nextInt(rng.nextInt(8) == 0 ? 4096 : 256);
+			int[] bits = new int[n];
+			for (int j = 0; j < n; j++) {
+				bits[j] = rng.nextInt(2);
+			}
+			values[i] = new Binary(bits);
+			strings[i] = values[i].toString();
+			bytes += values[i].serializedSize();
+			expected += values[i].bitCount();
+		}
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes);
+		Stopwatch w = new Stopwatch();
+		for (int round = 0; round < 2; round++) {
+			buffer.clear();
+			w.start();
+			for (Binary b : values) {
+				b.writeTo(buffer);
+			}
+			double tWrite = w.stop();
+			buffer.flip();
+
+			w.start();
+			long sumRead = 0;
+			while (buffer.hasRemaining()) {
+				sumRead += Binary.readFrom(buffer).bitCount();
+			}
+			double tRead = w.stop();
+
+			w.start();
+			long sumView = 0;
+			BinaryView v = new BinaryView(buffer, 0);
+			for (int offset = 0; offset < buffer.limit(); offset = v.end()) {
+				v.moveTo(offset);
+				sumView += v.bitCount();
+			}
+			double tView = w.stop();
+
+			w.start();
+			long sumParse = 0;
+			for (String s : strings) {
+				sumParse += Binary.parse(s).bitCount();
+			}
+			double tParse = w.stop();
+
+			if (round == 1) {
+				boolean same = sumRead == expected && sumView == expected && sumParse == expected;
+				System.out.printf("%d records, %d bytes%s%n", records, bytes, same ? "" : "  MISMATCH");
+				System.out.printf("writeTo    %8.1f ms%n", tWrite * 1e3);
+				System.out.printf("readFrom   %8.1f ms%n", tRead * 1e3);
+				System.out.printf("BinaryView %8.1f ms%n", tView * 1e3);
+				System.out.printf("parse      %8.1f ms%n", tParse * 1e3);
+			}
+		}
+	}
+}
@@ -0,0 +1,541 @@
+package lectures.arrays;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A matrix of bits whose rows are {@link Binary} numbers, with fast
+ * transposition and multiplication both over GF(2) (where addition is XOR)
+ * and over the boolean semiring (where addition is OR).
+ *
+ * <p>
+ * Element {@code (i, j)} is bit {@code j} of row {@code i}, so each row is
+ * packed 64 elements to a word in the layout of {@code Binary}.
+ *
+ * <ul>
+ * <li>{@link #transpose()} splits the matrix into blocks of 64 by 64 bits,
+ * gathers the 64 words of a block, transposes them in place with six rounds
+ * of masked swaps, and scatters them into the result. Each block is read and
+ * written exactly once.</li>
+ * <li>{@link #multiply(BitMatrix)} and {@link #booleanMultiply(BitMatrix)}
+ * use the Method of Four Russians. The columns of the left matrix are taken
+ * 8 at a time; for each group a table of all 256 sums of the corresponding 8
+ * rows of the right matrix is built, and then every row of the result adds
+ * the one entry of the table selected by its 8 bits, instead of up to 8
+ * rows. The right matrix is processed in slabs of {@value #SLAB} words so
+ * that the tables of one word of columns (8 tables) stay in the cache while
+ * all the rows of the result are updated.</li>
+ * </ul>
+ *
+ * <p>
+ * Transposition and multiplication process independent parts of the result
+ * (blocks of rows, or ranges of rows within slabs of columns) as separate
+ * tasks in the common {@code ForkJoinPool}.
+ *
+ */
+public class BitMatrix {
+
+	/**
+	 * The number of words of a row of the right matrix in one slab of
+	 * {@code multiply}. The 8 tables of a slab use {@code 8 * 256 * SLAB}
+	 * words (512 KB).
+	 */
+	private static final int SLAB = 32;
+
+	/**
+	 * The smallest number of rows of the product that {@code multiply}
+	 * updates in one task.
+	 */
+	private static final int MIN_ROWS = 256;
+
+	/**
+	 * The number of columns of the matrix, which is the number of bits of
+	 * every row.
+	 */
+	private final int columns;
+
+	/**
+	 * The rows of the matrix.
+	 */
+	private final Binary[] rows;
+
+	/**
+	 * Initializes a matrix having the specified number of rows and columns
+	 * whose elements are all 0.
+	 *
+	 * @param rows
+	 *            the number of rows
+	 * @param columns
+	 *            the number of columns
+	 * @throws IllegalArgumentException
+	 *             if rows or columns is less than 1
+	 */
+	public BitMatrix(int rows, int columns) {
+		if (rows < 1 || columns < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.columns = columns;
+		this.rows = new Binary[rows];
+		int words = ((columns - 1) >>> 6) + 1;
+		for (int i = 0; i < rows; i++) {
+			this.rows[i] = Binary.wrap(new long[words], columns);
+		}
+	}
+
+	/**
+	 * Initializes a matrix whose rows are copies of the specified binary
+	 * numbers.
+	 *
+	 * @param rows
+	 *            the rows of the matrix
+	 * @throws IllegalArgumentException
+	 *             if rows is empty or the rows do not all have the same
+	 *             number of bits
+	 */
+	public BitMatrix(Binary[] rows) {
+		if (rows.length == 0) {
+			throw new IllegalArgumentException();
+		}
+		this.columns = rows[0].numberOfBits();
+		this.rows = new Binary[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			if (rows[i].numberOfBits() != this.columns) {
+				throw new IllegalArgumentException("rows must have the same number of bits");
+			}
+			this.rows[i] = new Binary(rows[i]);
+		}
+	}
+
+	/**
+	 * Returns the identity matrix having {@code n} rows and columns.
+	 *
+	 * @param n
+	 *            the number of rows and columns
+	 * @return the identity matrix
+	 * @throws IllegalArgumentException
+	 *             if n is less than 1
+	 */
+	public static BitMatrix identity(int n) {
+		BitMatrix m = new BitMatrix(n, n);
+		for (int i = 0; i < n; i++) {
+			m.rows[i].setBit(i, 1);
+		}
+		return m;
+	}
+
+	/**
+	 * Returns the number of rows of this matrix.
+	 *
+	 * @return the number of rows
+	 */
+	public int numberOfRows() {
+		return this.rows.length;
+	}
+
+	/**
+	 * Returns the number of columns of this matrix.
+	 *
+	 * @return the number of columns
+	 */
+	public int numberOfColumns() {
+		return this.columns;
+	}
+
+	/**
+	 * Returns the row of this matrix having the specified index. The row is
+	 * not copied: changing it changes this matrix.
+	 *
+	 * @param i
+	 *            the index of the row
+	 * @return the row
+	 * @throws IllegalArgumentException
+	 *             if i is out of bounds
+	 */
+	public Binary row(int i) {
+		if (i < 0 || i >= this.rows.length) {
+			throw new IllegalArgumentException();
+		}
+		return this.rows[i];
+	}
+
+	/**
+	 * Returns the element of this matrix at the specified row and column.
+	 *
+	 * @param i
+	 *            the index of the row
+	 * @param j
+	 *            the index of the column
+	 * @return the element, 0 or 1
+	 * @throws IllegalArgumentException
+	 *             if i or j is out of bounds
+	 */
+	public int get(int i, int j) {
+		return this.row(i).getBit(j);
+	}
+
+	/**
+	 * Sets the element of this matrix at the specified row and column.
+	 *
+	 * @param i
+	 *            the index of the row
+	 * @param j
+	 *            the index of the column
+	 * @param value
+	 *            the value of the element
+	 * @throws IllegalArgumentException
+	 *             if i or j is out of bounds, or if value is not 0 or 1
+	 */
+	public void set(int i, int j, int value) {
+		this.row(i).setBit(j, value);
+	}
+
+	/**
+	 * Transposes the 64 by 64 matrix of bits held in {@code a}, in which bit
+	 * {@code t} of {@code a[s]} is element {@code (s, t)}, so that bit
+	 * {@code s} of {@code a[t]} becomes that element. Each of the six rounds
+	 * swaps the off-diagonal quarters of blocks half the size of the blocks
+	 * of the previous round.
+	 *
+	 * @param a an array of 64 words
+	 */
+	static void transpose64(long[] a) {
+		long m = 0x00000000ffffffffL;
+		for (int j = 32; j != 0; j >>>= 1, m ^= m << j) {
+			for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+				long t = ((a[k] >>> j) ^ a[k | j]) & m;
+				a[k] ^= t << j;
+				a[k | j] ^= t;
+			}
+		}
+	}
+
+	/**
+	 * Returns the transpose of this matrix.
+	 *
+	 * @return the transpose of this matrix
+	 */
+	public BitMatrix transpose() {
+		int n = this.rows.length;
+		BitMatrix result = new BitMatrix(this.columns, n);
+		// blocks of 64 rows of this matrix, which are 64-bit columns of the
+		// result, counted from the last row
+		int blocks = ((n - 1) >>> 6) + 1;
+		List<RecursiveAction> tasks = new ArrayList<>();
+		int perTask = Math.max(1, blocks / (4 * Runtime.getRuntime().availableProcessors()));
+		for (int from = 0; from < blocks; from += perTask) {
+			int first = from;
+			int last = Math.min(blocks, from + perTask);
+			tasks.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					BitMatrix.this.transposeBlocks(result, first, last);
+				}
+			});
+		}
+		ForkJoinTask.invokeAll(tasks);
+		return result;
+	}
+
+	/**
+	 * Writes the blocks of 64 rows having indexes {@code from} to
+	 * {@code to - 1}, counted from the last row, into the transpose.
+	 *
+	 * @param result the transpose of this matrix
+	 * @param from the first block of rows
+	 * @param to the block after the last block of rows
+	 */
+	private void transposeBlocks(BitMatrix result, int from, int to) {
+		int n = this.rows.length;
+		int words = ((this.columns - 1) >>> 6) + 1;
+		long[] block = new long[64];
+		for (int v = from; v < to; v++) {
+			for (int w = 0; w < words; w++) {
+				// row n - 1 - (64v + s) of this matrix is bit 64v + s of a
+				// column, counted from the right-most bit
+				for (int s = 0; s < 64; s++) {
+					int i = n - 1 - (v * 64 + s);
+					block[s] = i >= 0 ? this.rows[i].words()[w] : 0;
+				}
+				transpose64(block);
+				for (int t = 0; t < 64; t++) {
+					int j = this.columns - 1 - (w * 64 + t);
+					if (j < 0) {
+						break;
+					}
+					result.rows[j].mutableWords()[v] = block[t];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks that this matrix can be multiplied by {@code other}.
+	 *
+	 * @param other the right operand
+	 * @throws IllegalArgumentException
+	 *             if the number of columns of this matrix is not the number
+	 *             of rows of other
+	 */
+	private void checkMultiply(BitMatrix other) {
+		if (this.columns != other.rows.length) {
+			throw new IllegalArgumentException("matrix sizes do not match");
+		}
+	}
+
+	/**
+	 * Returns the product of this matrix and {@code other} over GF(2): an
+	 * element of the product is the XOR of the ANDs of the elements of a row
+	 * of this matrix and a column of other.
+	 *
+	 * @param other
+	 *            the right operand
+	 * @return the product of this matrix and other
+	 * @throws IllegalArgumentException
+	 *             if the number of columns of this matrix is not the number
+	 *             of rows of other
+	 */
+	public BitMatrix multiply(BitMatrix other) {
+		this.checkMultiply(other);
+		return this.fourRussians(other, true);
+	}
+
+	/**
+	 * Returns the product of this matrix and {@code other} over the boolean
+	 * semiring: an element of the product is 1 if a row of this matrix and a
+	 * column of other have a 1 at the same index. If this matrix is the
+	 * adjacency matrix of a graph, its boolean square tells which vertices
+	 * are connected by paths of length 2.
+	 *
+	 * @param other
+	 *            the right operand
+	 * @return the boolean product of this matrix and other
+	 * @throws IllegalArgumentException
+	 *             if the number of columns of this matrix is not the number
+	 *             of rows of other
+	 */
+	public BitMatrix booleanMultiply(BitMatrix other) {
+		this.checkMultiply(other);
+		return this.fourRussians(other, false);
+	}
+
+	/**
+	 * Returns the product of this matrix and {@code other} computed with the
+	 * Method of Four Russians. Slabs of columns of the product are computed
+	 * in parallel, and within each slab the rows of the product are divided
+	 * into ranges that are updated in parallel, so that narrow products also
+	 * use every processor.
+	 *
+	 * @param other the right operand
+	 * @param xor true to add using XOR, false to add using OR
+	 * @return the product
+	 */
+	private BitMatrix fourRussians(BitMatrix other, boolean xor) {
+		BitMatrix result = new BitMatrix(this.rows.length, other.columns);
+		int words = ((other.columns - 1) >>> 6) + 1;
+		int slabs = (words - 1) / SLAB + 1;
+		int parts = Math.max(1, 4 * Runtime.getRuntime().availableProcessors() / slabs);
+		int perTask = Math.max(MIN_ROWS, (this.rows.length - 1) / parts + 1);
+		List<RecursiveAction> tasks = new ArrayList<>();
+		for (int from = 0; from < words; from += SLAB) {
+			int first = from;
+			int last = Math.min(words, from + SLAB);
+			tasks.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					BitMatrix.this.multiplySlab(other, result, first, last, perTask, xor);
+				}
+			});
+		}
+		ForkJoinTask.invokeAll(tasks);
+		return result;
+	}
+
+	/**
+	 * Computes the words {@code from} to {@code to - 1} of every row of the
+	 * product of this matrix and {@code other}. For each word of the rows of
+	 * this matrix the tables are built once, and then ranges of
+	 * {@code perTask} rows of the product are updated from them as separate
+	 * tasks, which only read the tables.
+	 *
+	 * @param other the right operand
+	 * @param result the product
+	 * @param from the first word of the slab
+	 * @param to the word after the last word of the slab
+	 * @param perTask the number of rows of the product updated by one task
+	 * @param xor true to add using XOR, false to add using OR
+	 */
+	private void multiplySlab(BitMatrix other, BitMatrix result, int from, int to, int perTask, boolean xor) {
+		int width = to - from;
+		int words = ((this.columns - 1) >>> 6) + 1;
+		int n = this.rows.length;
+		// table g holds, at offset mask * width, the sum of the rows of other
+		// selected by the bits of mask in byte g of a word of this matrix
+		long[] tables = new long[8 * 256 * width];
+		for (int w = 0; w < words; w++) {
+			this.buildTables(other, tables, w, from, width, xor);
+			if (perTask >= n) {
+				this.addRows(result, tables, w, from, width, 0, n, xor);
+				continue;
+			}
+			int word = w;
+			List<RecursiveAction> tasks = new ArrayList<>();
+			for (int start = 0; start < n; start += perTask) {
+				int first = start;
+				int last = Math.min(n, start + perTask);
+				tasks.add(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected void compute() {
+						BitMatrix.this.addRows(result, tables, word, from, width, first, last, xor);
+					}
+				});
+			}
+			ForkJoinTask.invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Fills the 8 tables of word {@code w} of the rows of this matrix with
+	 * the sums of the words {@code from} to {@code from + width - 1} of the
+	 * corresponding rows of {@code other}.
+	 *
+	 * @param other the right operand
+	 * @param tables the 8 tables of 256 entries of {@code width} words
+	 * @param w the word of the rows of this matrix
+	 * @param from the first word of the slab
+	 * @param width the number of words of the slab
+	 * @param xor true to add using XOR, false to add using OR
+	 */
+	private void buildTables(BitMatrix other, long[] tables, int w, int from, int width, boolean xor) {
+		int n = this.columns;
+		for (int g = 0; g < 8; g++) {
+			int base = g * 256 * width;
+			for (int mask = 1; mask < 256; mask++) {
+				int low = Integer.numberOfTrailingZeros(mask);
+				// bit 64w + 8g + low of a row is the element in column k
+				int k = n - 1 - (w * 64 + g * 8 + low);
+				int dst = base + mask * width;
+				int src = base + (mask & (mask - 1)) * width;
+				if (k < 0) {
+					System.arraycopy(tables, src, tables, dst, width);
+					continue;
+				}
+				long[] b = other.rows[k].words();
+				if (xor) {
+					for (int c = 0; c < width; c++) {
+						tables[dst + c] = tables[src + c] ^ b[from + c];
+					}
+				} else {
+					for (int c = 0; c < width; c++) {
+						tables[dst + c] = tables[src + c] | b[from + c];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds to the words {@code from} to {@code from + width - 1} of the rows
+	 * {@code first} to {@code last - 1} of the product the table entries
+	 * selected by word {@code w} of the same rows of this matrix.
+	 *
+	 * @param result the product
+	 * @param tables the 8 tables of word w
+	 * @param w the word of the rows of this matrix
+	 * @param from the first word of the slab
+	 * @param width the number of words of the slab
+	 * @param first the first row
+	 * @param last the row after the last row
+	 * @param xor true to add using XOR, false to add using OR
+	 */
+	private void addRows(BitMatrix result, long[] tables, int w, int from, int width, int first, int last,
+			boolean xor) {
+		for (int i = first; i < last; i++) {
+			long a = this.rows[i].words()[w];
+			if (a == 0) {
+				continue;
+			}
+			long[] r = result.rows[i].mutableWords();
+			for (int g = 0; g < 8; g++) {
+				int mask = (int) (a >>> (8 * g)) & 0xff;
+				if (mask == 0) {
+					continue;
+				}
+				int src = (g * 256 + mask) * width;
+				if (xor) {
+					for (int c = 0; c < width; c++) {
+						r[from + c] ^= tables[src + c];
+					}
+				} else {
+					for (int c = 0; c < width; c++) {
+						r[from + c] |= tables[src + c];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if {@code obj} is a matrix having the same number of rows
+	 * and columns as this matrix and the same elements.
+	 *
+	 * @param obj
+	 *            the object to compare with this matrix
+	 * @return true if obj is a matrix equal to this matrix
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof BitMatrix)) {
+			return false;
+		}
+		BitMatrix other = (BitMatrix) obj;
+		if (other.columns != this.columns || other.rows.length != this.rows.length) {
+			return false;
+		}
+		for (int i = 0; i < this.rows.length; i++) {
+			if (!this.rows[i].equals(other.rows[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a hash code for this matrix made from the hashes of its rows.
+	 *
+	 * @return a hash code for this matrix
+	 */
+	@Override
+	public int hashCode() {
+		int h = 1;
+		for (Binary row : this.rows) {
+			h = 31 * h + row.hashCode();
+		}
+		return h;
+	}
+
+	/**
+	 * Returns a string representation of this matrix: its rows in order,
+	 * each in the format of {@link Binary#toString()} on its own line.
+	 *
+	 * @return a string representation of this matrix
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Binary row : this.rows) {
+			row.appendTo(sb).append(System.lineSeparator());
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,216 @@
+package lectures.arrays;
+
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Measures {@link BitMatrix#transpose()}, {@link BitMatrix#multiply(BitMatrix)}
+ * and {@link BitMatrix#booleanMultiply(BitMatrix)} on random square matrices
+ * of 1024, 8192 and 32768 rows (or of the sizes given as arguments).
+ *
+ * <p>
+ * The transpose is compared with copying the matrix bit by bit, and the
+ * products with adding up the rows of the right matrix selected by each row
+ * of the left matrix one row at a time. The baselines are only run up to
+ * 8192 rows; at 32768 rows a multiplication takes minutes on one core
+ * and each matrix uses 128 MB, so run with at least {@code -Xmx1g}.
+ *
+ * <p>
+ * Before measuring, the results on small matrices of every shape up to 130
+ * by 130 are checked against the definitions, and the products measured are
+ * checked on a sample of their elements.
+ *
+ */
+public class BitMatrixBenchmark {
+
+	/**
+	 * Returns a matrix whose elements are 1 with probability {@code p}.
+	 */
+	private static BitMatrix random(int rows, int columns, double p, Random rng) {
+		BitMatrix m = new BitMatrix(rows, columns);
+		for (int i = 0; i < rows; i++) {
+			long[] w = m.row(i).mutableWords();
+			if (p == 0.5) {
+				for (int k = 0; k < w.length; k++) {
+					w[k] = rng.nextLong();
+				}
+				int unused = -columns & 63;
+				w[w.length - 1] &= -1L >>> unused;
+			} else {
+				for (int j = 0; j < columns; j++) {
+					if (rng.nextDouble() < p) {
+						m.set(i, j, 1);
+					}
+				}
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * Returns element (i, j) of the product of a and b computed from the
+	 * definition, using the transpose of b.
+	 */
+	private static int product(BitMatrix a, BitMatrix bt, int i, int j, boolean xor) {
+		long[] r = a.row(i).words();
+		long[] c = bt.row(j).words();
+		int count = 0;
+		for (int k = 0; k < r.length; k++) {
+			count += Long.bitCount(r[k] & c[k]);
+		}
+		return xor ? count & 1 : Math.min(count, 1);
+	}
+
+	/**
+	 * Returns the product of a and b computed one row of b at a time.
+	 */
+	private static BitMatrix rowByRow(BitMatrix a, BitMatrix b, boolean xor) {
+		BitMatrix c = new BitMatrix(a.numberOfRows(), b.numberOfColumns());
+		for (int i = 0; i < a.numberOfRows(); i++) {
+			Binary row = a.row(i);
+			long[] r = c.row(i).mutableWords();
+			for (int k = row.nextSetBit(0); k >= 0; k = row.nextSetBit(k + 1)) {
+				long[] add = b.row(k).words();
+				if (xor) {
+					for (int x = 0; x < r.length; x++) {
+						r[x] ^= add[x];
+					}
+				} else {
+					for (int x = 0; x < r.length; x++) {
+						r[x] |= add[x];
+					}
+				}
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Checks the results on small matrices of every shape against the
+	 * definitions.
+	 */
+	private static boolean check(Random rng) {
+		for (int rows = 1; rows <= 130; rows += 1 + rng.nextInt(9)) {
+			for (int columns = 1; columns <= 130; columns += 1 + rng.nextInt(9)) {
+				BitMatrix a = random(rows, columns, 0.5, rng);
+				BitMatrix t = a.transpose();
+				if (t.numberOfRows() != columns || t.numberOfColumns() != rows || !t.transpose().equals(a)) {
+					return false;
+				}
+				for (int i = 0; i < rows; i++) {
+					for (int j = 0; j < columns; j++) {
+						if (t.get(j, i) != a.get(i, j)) {
+							return false;
+						}
+					}
+				}
+				int inner = 1 + rng.nextInt(130);
+				BitMatrix l = random(rows, inner, 0.5, rng);
+				BitMatrix r = random(inner, columns, rng.nextBoolean() ? 0.5 : 0.02, rng);
+				BitMatrix rt = r.transpose();
+				BitMatrix p = l.multiply(r);
+				BitMatrix q = l.booleanMultiply(r);
+				for (int i = 0; i < rows; i++) {
+					for (int j = 0; j < columns; j++) {
+						if (p.get(i, j) != product(l, rt, i, j, true) || q.get(i, j) != product(l, rt, i, j, false)) {
+							return false;
+						}
+					}
+				}
+				if (!l.multiply(BitMatrix.identity(inner)).equals(l)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	public static void main(String[] args) {
+		Random rng = new Random(2031);
+		System.out.println("small matrices: " + (check(rng) ? "ok" : "MISMATCH"));
+		int[] sizes = { 1024, 8192, 32768 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int k = 0; k < args.length; k++) {
+				sizes[k] = Integer.parseInt(args[k]);
+			}
+		}
+		Stopwatch w = new Stopwatch();
+		System.out.printf("%6s | %-23s | %-23s | %-23s%n", "n", "transpose ms (bits)", "GF(2) ms (rows)",
+				"boolean ms (rows)");
+		for (int n : sizes) {
+			boolean baselines = n <= 8192;
+			// dense for GF(2); sparse for the boolean product, so that each
+			// element of the product has 2 paths of length 2 on average
+			BitMatrix a = random(n, n, 0.5, rng);
+			BitMatrix s = random(n, n, Math.sqrt(2.0 / n), rng);
+
+			w.start();
+			BitMatrix t = a.transpose();
+			double tTranspose = w.stop();
+			double tBits = Double.NaN;
+			if (baselines) {
+				w.start();
+				BitMatrix u = new BitMatrix(n, n);
+				for (int i = 0; i < n; i++) {
+					Binary row = a.row(i);
+					for (int j = row.nextSetBit(0); j >= 0; j = row.nextSetBit(j + 1)) {
+						u.set(j, i, 1);
+					}
+				}
+				tBits = w.stop();
+				if (!u.equals(t)) {
+					System.out.println("transpose MISMATCH");
+				}
+			}
+
+			w.start();
+			BitMatrix p = a.multiply(a);
+			double tMultiply = w.stop();
+			double tMultiplyRows = Double.NaN;
+			if (baselines) {
+				w.start();
+				BitMatrix expected = rowByRow(a, a, true);
+				tMultiplyRows = w.stop();
+				if (!expected.equals(p)) {
+					System.out.println("GF(2) MISMATCH");
+				}
+			}
+			for (int k = 0; k < 1000; k++) {
+				int i = rng.nextInt(n);
+				int j = rng.nextInt(n);
+				if (p.get(i, j) != product(a, t, i, j, true)) {
+					System.out.println("GF(2) MISMATCH");
+					break;
+				}
+			}
+			p = null;
+			t = null;
+
+			w.start();
+			BitMatrix q = s.booleanMultiply(s);
+			double tBoolean = w.stop();
+			double tBooleanRows = Double.NaN;
+			if (baselines) {
+				w.start();
+				BitMatrix expected = rowByRow(s, s, false);
+				tBooleanRows = w.stop();
+				if (!expected.equals(q)) {
+					System.out.println("boolean MISMATCH");
+				}
+			}
+			BitMatrix st = s.transpose();
+			for (int k = 0; k < 1000; k++) {
+				int i = rng.nextInt(n);
+				int j = rng.nextInt(n);
+				if (q.get(i, j) != product(s, st, i, j, false)) {
+					System.out.println("boolean MISMATCH");
+					break;
+				}
+			}
+			System.out.printf("%6d | %9.1f (%9.1f) | %9.1f (%9.1f) | %9.1f (%9.1f)%n", n, tTranspose * 1e3,
+					tBits * 1e3, tMultiply * 1e3, tMultiplyRows * 1e3, tBoolean * 1e3, tBooleanRows * 1e3);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package lectures.arrays;
+
+/**
+ * A Bloom filter whose bits are divided into blocks of 512 bits, the size
+ * of a 64-byte cache line, in which all of the bits of a key are set.
+ *
+ * <p>
+ * The high 32 bits of the hash of a key choose one block, and the {@code k}
+ * bits of the key are chosen inside that block from the low 32 bits by
+ * double hashing, as in {@code BloomFilter}. A query therefore reads 8
+ * consecutive words (one cache line, or two if the array does not start on a
+ * line boundary) instead of {@code k} words spread over the whole filter.
+ * Whether that makes queries faster depends on the machine: when hashing
+ * the key and the first cache miss, which both filters pay, dominate the
+ * cost of a query, it does not; {@code BloomFilterBenchmark} measures both
+ * filters.
+ *
+ * <p>
+ * Because the keys are not spread evenly over the blocks, the false
+ * positive rate is higher than that of a {@link BloomFilter} of the same
+ * size; about 10% to 30% more bits give the same rate.
+ *
+ * <p>
+ * Apart from how the bits of a key are chosen, a blocked filter behaves
+ * exactly like a {@code BloomFilter}, including its concurrent mode and
+ * serialization. Union and intersection are only defined between two
+ * blocked filters of the same size.
+ *
+ */
+public class BlockedBloomFilter extends BloomFilter {
+
+	/**
+	 * The base 2 logarithm of the number of bits in a block.
+	 */
+	private static final int BLOCK_SHIFT = 9;
+
+	/**
+	 * Initializes an empty filter having at least the specified number of
+	 * bits and the specified number of hash functions, in which keys are
+	 * added by one thread at a time. The number of bits is rounded up to a
+	 * multiple of 512.
+	 *
+	 * @param numberOfBits
+	 *            the number of bits of the filter
+	 * @param hashCount
+	 *            the number of bits set for every key
+	 * @throws IllegalArgumentException
+	 *             if numberOfBits is less than 1 or hashCount is not between
+	 *             1 and 64
+	 */
+	public BlockedBloomFilter(int numberOfBits, int hashCount) {
+		this(numberOfBits, hashCount, false);
+	}
+
+	/**
+	 * Initializes an empty filter having at least the specified number of
+	 * bits and the specified number of hash functions. The number of bits is
+	 * rounded up to a multiple of 512.
+	 *
+	 * @param numberOfBits
+	 *            the number of bits of the filter
+	 * @param hashCount
+	 *            the number of bits set for every key
+	 * @param concurrent
+	 *            true if keys may be added by many threads at the same time
+	 * @throws IllegalArgumentException
+	 *             if numberOfBits is less than 1 or hashCount is not between
+	 *             1 and 64
+	 */
+	public BlockedBloomFilter(int numberOfBits, int hashCount, boolean concurrent) {
+		this(empty(roundUp(numberOfBits)), hashCount, concurrent);
+	}
+
+	/**
+	 * Initializes a filter that uses the specified bits without copying
+	 * them.
+	 *
+	 * @param bits the bits of the filter
+	 * @param hashCount the number of bits set for every key
+	 * @param concurrent true if keys are added using atomic updates
+	 * @throws IllegalArgumentException
+	 *             if the number of bits is not a multiple of 512, or if
+	 *             hashCount is not between 1 and 64
+	 */
+	BlockedBloomFilter(Binary bits, int hashCount, boolean concurrent) {
+		super(bits, hashCount, concurrent);
+		if ((bits.numberOfBits() & ((1 << BLOCK_SHIFT) - 1)) != 0) {
+			throw new IllegalArgumentException("number of bits must be a multiple of 512");
+		}
+	}
+
+	/**
+	 * Returns the smallest positive multiple of 512 that is at least
+	 * {@code n}, or the largest multiple of 512 that is an {@code int} if
+	 * there is no such multiple.
+	 *
+	 * @param n a number of bits
+	 * @return n rounded up to a multiple of 512
+	 * @throws IllegalArgumentException
+	 *             if n is less than 1
+	 */
+	private static int roundUp(int n) {
+		if (n < 1) {
+			throw new IllegalArgumentException("number of bits must be positive");
+		}
+		long rounded = ((long) n + (1 << BLOCK_SHIFT) - 1) & -(1L << BLOCK_SHIFT);
+		return (int) Math.min(rounded, Integer.MAX_VALUE & -(1 << BLOCK_SHIFT));
+	}
+
+	/**
+	 * Returns the index of the first word of the block of the key having the
+	 * specified hash.
+	 *
+	 * @param h the hash of the key
+	 * @return the index of the first word of the block
+	 */
+	private int block(long h) {
+		long blocks = this.bits.numberOfBits() >>> BLOCK_SHIFT;
+		return (int) (((h >>> 32) * blocks) >>> 32) << (BLOCK_SHIFT - 6);
+	}
+
+	/**
+	 * Returns the odd step between the bit positions of a key inside its
+	 * block. The positions are the top 9 bits of {@code h1 + i * step}, where
+	 * {@code h1} is the low half of the hash; the step is taken from a
+	 * product of the whole hash so that it does not depend only on the high
+	 * half, which chooses the block.
+	 *
+	 * @param h the hash of the key
+	 * @return the step between bit positions
+	 */
+	private static int step(long h) {
+		return (int) ((h * 0x9e3779b97f4a7c15L) >>> 32) | 1;
+	}
+
+	@Override
+	void addHash(long h) {
+		long[] w = this.bits.mutableWords();
+		int base = this.block(h);
+		int h1 = (int) h;
+		int h2 = step(h);
+		for (int i = 0; i < this.hashCount; i++) {
+			int p = h1 >>> (32 - BLOCK_SHIFT);
+			this.set(w, base + (p >>> 6), 1L << p);
+			h1 += h2;
+		}
+	}
+
+	@Override
+	boolean containsHash(long h) {
+		long[] w = this.bits.words();
+		int base = this.block(h);
+		int h1 = (int) h;
+		int h2 = step(h);
+		for (int i = 0; i < this.hashCount; i++) {
+			int p = h1 >>> (32 - BLOCK_SHIFT);
+			if ((w[base + (p >>> 6)] & (1L << p)) == 0) {
+				return false;
+			}
+			h1 += h2;
+		}
+		return true;
+	}
+
+	@Override
+	byte type() {
+		return BLOCKED;
+	}
+}
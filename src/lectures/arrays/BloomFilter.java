@@ -0,0 +1,496 @@
+package lectures.arrays;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A Bloom filter: a set of keys that answers membership queries with no
+ * false negatives and a small, tunable rate of false positives, using a
+ * {@link Binary} of {@code m} bits as its storage.
+ *
+ * <p>
+ * Adding a key sets {@code k} bits of the filter chosen by hashing the key;
+ * {@code mightContain} returns true if all {@code k} bits of a key are 1.
+ * The {@code k} bit positions are derived from one 64-bit hash of the key
+ * as {@code h1 + i * h2} (the method of Kirsch and Mitzenmacher), and each
+ * is mapped onto the {@code m} bits with a multiplication instead of a
+ * division. With {@code n} keys added the false positive rate is about
+ * {@code (1 - e^(-kn/m))^k}; {@link #optimalNumberOfBits(long, double)} and
+ * {@link #optimalHashCount(long, int)} choose {@code m} and {@code k} for a
+ * target rate.
+ *
+ * <p>
+ * The {@code k} bits of a key are spread over the whole filter, so a query
+ * of a large filter reads {@code k} cache lines. {@link BlockedBloomFilter}
+ * reads a single cache line per query instead, at the cost of a higher
+ * false positive rate for the same number of bits.
+ *
+ * <p>
+ * A filter created in <em>concurrent</em> mode can have keys added by many
+ * threads at the same time; each bit is set with an atomic OR on the word
+ * that holds it, so no thread loses the bits set by another. Queries may run
+ * at the same time as additions, and see a key once its addition has
+ * finished and has happened-before the query (for example, after the adding
+ * thread has been joined). The bulk methods ({@code or}, {@code and}, and
+ * serialization) must not run at the same time as additions.
+ *
+ */
+public class BloomFilter {
+
+	/**
+	 * The handle used to set the bits of a concurrent filter atomically.
+	 */
+	private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/**
+	 * The type tag written before the bits of a filter by {@code writeTo}.
+	 */
+	static final byte STANDARD = 0;
+
+	/**
+	 * The type tag written before the bits of a blocked filter by
+	 * {@code writeTo}.
+	 */
+	static final byte BLOCKED = 1;
+
+	/**
+	 * The bits of this filter. The binary number is never shared with
+	 * another object, so its words are changed in place through
+	 * {@link Binary#mutableWords()}.
+	 */
+	final Binary bits;
+
+	/**
+	 * The number of bits set for every key.
+	 */
+	final int hashCount;
+
+	/**
+	 * True if keys are added using atomic updates.
+	 */
+	private final boolean concurrent;
+
+	/**
+	 * Initializes an empty filter having the specified number of bits and
+	 * hash functions, in which keys are added by one thread at a time.
+	 *
+	 * @param numberOfBits
+	 *            the number of bits of the filter
+	 * @param hashCount
+	 *            the number of bits set for every key
+	 * @throws IllegalArgumentException
+	 *             if numberOfBits is less than 1 or hashCount is not between
+	 *             1 and 64
+	 */
+	public BloomFilter(int numberOfBits, int hashCount) {
+		this(numberOfBits, hashCount, false);
+	}
+
+	/**
+	 * Initializes an empty filter having the specified number of bits and
+	 * hash functions.
+	 *
+	 * @param numberOfBits
+	 *            the number of bits of the filter
+	 * @param hashCount
+	 *            the number of bits set for every key
+	 * @param concurrent
+	 *            true if keys may be added by many threads at the same time
+	 * @throws IllegalArgumentException
+	 *             if numberOfBits is less than 1 or hashCount is not between
+	 *             1 and 64
+	 */
+	public BloomFilter(int numberOfBits, int hashCount, boolean concurrent) {
+		this(empty(numberOfBits), hashCount, concurrent);
+	}
+
+	/**
+	 * Initializes a filter that uses the specified bits without copying
+	 * them.
+	 *
+	 * @param bits the bits of the filter
+	 * @param hashCount the number of bits set for every key
+	 * @param concurrent true if keys are added using atomic updates
+	 * @throws IllegalArgumentException
+	 *             if hashCount is not between 1 and 64
+	 */
+	BloomFilter(Binary bits, int hashCount, boolean concurrent) {
+		if (hashCount < 1 || hashCount > 64) {
+			throw new IllegalArgumentException("hash count must be between 1 and 64");
+		}
+		this.bits = bits;
+		this.hashCount = hashCount;
+		this.concurrent = concurrent;
+	}
+
+	/**
+	 * Returns a binary number having the specified number of bits, all 0.
+	 *
+	 * @param numberOfBits the number of bits
+	 * @return a binary number equal to zero
+	 * @throws IllegalArgumentException
+	 *             if numberOfBits is less than 1
+	 */
+	static Binary empty(int numberOfBits) {
+		if (numberOfBits < 1) {
+			throw new IllegalArgumentException("number of bits must be positive");
+		}
+		return Binary.wrap(new long[((numberOfBits - 1) >>> 6) + 1], numberOfBits);
+	}
+
+	/**
+	 * Returns the number of bits that gives a false positive rate of about
+	 * {@code fpp} for {@code expectedKeys} keys, using the optimal number of
+	 * hash functions: {@code -n ln(p) / (ln 2)^2}.
+	 *
+	 * @param expectedKeys
+	 *            the number of keys that will be added
+	 * @param fpp
+	 *            the target false positive rate
+	 * @return the number of bits, at most {@code Integer.MAX_VALUE}
+	 * @throws IllegalArgumentException
+	 *             if expectedKeys is less than 1 or fpp is not between 0 and
+	 *             1 (exclusive)
+	 */
+	public static int optimalNumberOfBits(long expectedKeys, double fpp) {
+		if (expectedKeys < 1 || !(fpp > 0 && fpp < 1)) {
+			throw new IllegalArgumentException();
+		}
+		double m = -expectedKeys * Math.log(fpp) / (Math.log(2) * Math.log(2));
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.ceil(m)));
+	}
+
+	/**
+	 * Returns the number of hash functions that minimizes the false positive
+	 * rate for {@code expectedKeys} keys in {@code numberOfBits} bits:
+	 * {@code (m / n) ln 2}, rounded.
+	 *
+	 * @param expectedKeys
+	 *            the number of keys that will be added
+	 * @param numberOfBits
+	 *            the number of bits of the filter
+	 * @return the number of hash functions, between 1 and 64
+	 * @throws IllegalArgumentException
+	 *             if expectedKeys or numberOfBits is less than 1
+	 */
+	public static int optimalHashCount(long expectedKeys, int numberOfBits) {
+		if (expectedKeys < 1 || numberOfBits < 1) {
+			throw new IllegalArgumentException();
+		}
+		long k = Math.round((double) numberOfBits / expectedKeys * Math.log(2));
+		return (int) Math.max(1, Math.min(64, k));
+	}
+
+	/**
+	 * Returns a 64-bit hash of a key whose bits all depend on every bit of
+	 * the key (the finalizer of MurmurHash3).
+	 *
+	 * @param key the key to hash
+	 * @return the hash of the key
+	 */
+	static long hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return key;
+	}
+
+	/**
+	 * Returns a 64-bit hash of a character sequence.
+	 *
+	 * @param key the key to hash
+	 * @return the hash of the key
+	 */
+	static long hash(CharSequence key) {
+		long h = key.length();
+		for (int i = 0; i < key.length(); i++) {
+			h = (h + key.charAt(i)) * 0x9e3779b97f4a7c15L;
+		}
+		return hash(h);
+	}
+
+	/**
+	 * Sets the bits of {@code w} selected by {@code mask} in the word at
+	 * index {@code i}, atomically if this filter is concurrent.
+	 *
+	 * @param w the words of the filter
+	 * @param i the index of the word
+	 * @param mask the bits to set
+	 */
+	final void set(long[] w, int i, long mask) {
+		if (!this.concurrent) {
+			w[i] |= mask;
+		} else if ((w[i] & mask) != mask) {
+			// only write if a bit changes, so that the cache line of a word
+			// whose bits are already set is not taken from other threads
+			WORDS.getAndBitwiseOr(w, i, mask);
+		}
+	}
+
+	/**
+	 * Adds the key having the specified hash to this filter.
+	 *
+	 * @param h the hash of the key
+	 */
+	void addHash(long h) {
+		long[] w = this.bits.mutableWords();
+		long m = this.bits.numberOfBits();
+		int h1 = (int) h;
+		// an odd step visits k different positions for any h1
+		int h2 = (int) (h >>> 32) | 1;
+		for (int i = 0; i < this.hashCount; i++) {
+			int p = (int) (((h1 & 0xffffffffL) * m) >>> 32);
+			this.set(w, p >>> 6, 1L << p);
+			h1 += h2;
+		}
+	}
+
+	/**
+	 * Returns true if every bit of the key having the specified hash is 1.
+	 *
+	 * @param h the hash of the key
+	 * @return true if the key might be in this filter
+	 */
+	boolean containsHash(long h) {
+		long[] w = this.bits.words();
+		long m = this.bits.numberOfBits();
+		int h1 = (int) h;
+		int h2 = (int) (h >>> 32) | 1;
+		for (int i = 0; i < this.hashCount; i++) {
+			int p = (int) (((h1 & 0xffffffffL) * m) >>> 32);
+			if ((w[p >>> 6] & (1L << p)) == 0) {
+				return false;
+			}
+			h1 += h2;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds a key to this filter.
+	 *
+	 * @param key
+	 *            the key to add
+	 */
+	public void add(long key) {
+		this.addHash(hash(key));
+	}
+
+	/**
+	 * Adds a key to this filter.
+	 *
+	 * @param key
+	 *            the key to add
+	 */
+	public void add(CharSequence key) {
+		this.addHash(hash(key));
+	}
+
+	/**
+	 * Returns true if the key might have been added to this filter, and false
+	 * if it has certainly not been added.
+	 *
+	 * @param key
+	 *            the key to look for
+	 * @return false if the key is not in this filter, true if it might be
+	 */
+	public boolean mightContain(long key) {
+		return this.containsHash(hash(key));
+	}
+
+	/**
+	 * Returns true if the key might have been added to this filter, and false
+	 * if it has certainly not been added.
+	 *
+	 * @param key
+	 *            the key to look for
+	 * @return false if the key is not in this filter, true if it might be
+	 */
+	public boolean mightContain(CharSequence key) {
+		return this.containsHash(hash(key));
+	}
+
+	/**
+	 * Returns the number of bits of this filter.
+	 *
+	 * @return the number of bits of this filter
+	 */
+	public int numberOfBits() {
+		return this.bits.numberOfBits();
+	}
+
+	/**
+	 * Returns the number of bits set for every key.
+	 *
+	 * @return the number of hash functions of this filter
+	 */
+	public int hashCount() {
+		return this.hashCount;
+	}
+
+	/**
+	 * Returns true if keys can be added to this filter by many threads at the
+	 * same time.
+	 *
+	 * @return true if this filter is concurrent
+	 */
+	public boolean isConcurrent() {
+		return this.concurrent;
+	}
+
+	/**
+	 * Returns the number of bits of this filter that are 1.
+	 *
+	 * @return the number of 1 bits of this filter
+	 */
+	public int bitCount() {
+		return this.bits.bitCount();
+	}
+
+	/**
+	 * Returns the false positive rate of this filter estimated from the
+	 * fraction of its bits that are 1: {@code (bitCount() / m)^k}.
+	 *
+	 * @return the estimated false positive rate
+	 */
+	public double estimatedFalsePositiveRate() {
+		return Math.pow((double) this.bitCount() / this.numberOfBits(), this.hashCount);
+	}
+
+	/**
+	 * Checks that another filter has the same type, number of bits, and
+	 * number of hash functions as this filter, so that the two map every key
+	 * to the same bits.
+	 *
+	 * @param other the filter to check
+	 * @throws IllegalArgumentException
+	 *             if the filters map keys to different bits
+	 */
+	private void checkCompatible(BloomFilter other) {
+		if (other.getClass() != this.getClass() || other.numberOfBits() != this.numberOfBits()
+				|| other.hashCount != this.hashCount) {
+			throw new IllegalArgumentException("filters are not compatible");
+		}
+	}
+
+	/**
+	 * Adds every key of another filter to this filter, making this filter
+	 * the union of the two. Uses {@link Binary#or(Binary)}.
+	 *
+	 * @param other
+	 *            the filter whose keys are added
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same type, number of bits, and
+	 *             number of hash functions as this filter
+	 */
+	public void or(BloomFilter other) {
+		this.checkCompatible(other);
+		this.bits.or(other.bits);
+	}
+
+	/**
+	 * Makes this filter the intersection of this filter and another filter,
+	 * using {@link Binary#and(Binary)}. A key that was added to both filters
+	 * is still found; the false positive rate of the intersection is at most
+	 * that of either filter, but may be higher than that of a filter built
+	 * from the common keys only.
+	 *
+	 * @param other
+	 *            the filter to intersect with this filter
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same type, number of bits, and
+	 *             number of hash functions as this filter
+	 */
+	public void and(BloomFilter other) {
+		this.checkCompatible(other);
+		this.bits.and(other.bits);
+	}
+
+	/**
+	 * Returns a copy of the bits of this filter.
+	 *
+	 * @return a copy of the bits of this filter
+	 */
+	public Binary toBinary() {
+		return Binary.wrap(this.bits.words().clone(), this.bits.numberOfBits());
+	}
+
+	/**
+	 * Returns the type tag written before the bits of this filter.
+	 *
+	 * @return the type tag of this filter
+	 */
+	byte type() {
+		return STANDARD;
+	}
+
+	/**
+	 * Returns the number of bytes written by {@link #writeTo(ByteBuffer)}.
+	 *
+	 * @return the serialized size of this filter in bytes
+	 */
+	public int serializedSize() {
+		return 2 + this.bits.serializedSize();
+	}
+
+	/**
+	 * Writes this filter to a buffer: a byte giving the type of the filter,
+	 * a byte giving the number of hash functions, and the bits in the layout
+	 * of {@link Binary#writeTo(ByteBuffer)}. The position of the buffer is
+	 * advanced past the written bytes.
+	 *
+	 * @param buffer
+	 *            the buffer to write to
+	 * @throws BufferOverflowException
+	 *             if the buffer has fewer than {@code serializedSize()} bytes
+	 *             remaining; nothing is written in that case
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		if (buffer.remaining() < this.serializedSize()) {
+			throw new BufferOverflowException();
+		}
+		buffer.put(this.type());
+		buffer.put((byte) this.hashCount);
+		this.bits.writeTo(buffer);
+	}
+
+	/**
+	 * Reads a filter written by {@link #writeTo(ByteBuffer)} from a buffer.
+	 * The returned filter is a {@code BlockedBloomFilter} if a blocked filter
+	 * was written, and is not concurrent.
+	 *
+	 * @param buffer
+	 *            the buffer to read from
+	 * @return the filter read from the buffer
+	 * @throws BufferUnderflowException
+	 *             if the buffer does not hold a complete filter
+	 * @throws IllegalArgumentException
+	 *             if the bytes read are not a valid filter
+	 */
+	public static BloomFilter readFrom(ByteBuffer buffer) {
+		if (buffer.remaining() < 2) {
+			throw new BufferUnderflowException();
+		}
+		int start = buffer.position();
+		byte type = buffer.get();
+		int hashCount = buffer.get();
+		try {
+			Binary bits = Binary.readFrom(buffer);
+			if (type == STANDARD) {
+				return new BloomFilter(bits, hashCount, false);
+			}
+			if (type == BLOCKED) {
+				return new BlockedBloomFilter(bits, hashCount, false);
+			}
+			throw new IllegalArgumentException("unknown filter type: " + type);
+		} catch (RuntimeException e) {
+			buffer.position(start);
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package lectures.arrays;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Builds a {@link BloomFilter} and a {@link BlockedBloomFilter} sized for a
+ * 1% false positive rate, adds 100 million keys to each (or the number of
+ * keys given as a command line argument), checks that every key is found,
+ * and measures the time to add keys, the lookup throughput for keys that
+ * were added and for keys that were not, and the false positive rate. The
+ * keys are also added by several threads to a concurrent filter, which must
+ * end up with the same bits.
+ *
+ */
+public class BloomFilterBenchmark {
+
+	/**
+	 * The number of lookups of keys that were added and of keys that were
+	 * not added.
+	 */
+	private static final int LOOKUPS = 10_000_000;
+
+	/**
+	 * Returns the key with the specified number; the added keys have
+	 * non-negative numbers and the other keys negative numbers.
+	 */
+	private static long key(long i) {
+		return i * 0x9e3779b97f4a7c15L + 12345;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		long n = args.length > 0 ? Long.parseLong(args[0]) : 100_000_000L;
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		int m = BloomFilter.optimalNumberOfBits(n, 0.01);
+		int k = BloomFilter.optimalHashCount(n, m);
+		System.out.printf("%d keys, %d bits (%.1f MB), %d hash functions%n", n, m, m / 8e6, k);
+		Stopwatch w = new Stopwatch();
+		for (int blocked = 0; blocked < 2; blocked++) {
+			BloomFilter f = blocked == 1 ? new BlockedBloomFilter(m, k) : new BloomFilter(m, k);
+			w.start();
+			for (long i = 0; i < n; i++) {
+				f.add(key(i));
+			}
+			double tAdd = w.stop();
+
+			boolean noFalseNegatives = true;
+			for (long i = 0; i < n; i++) {
+				noFalseNegatives &= f.mightContain(key(i));
+			}
+
+			// look up added keys in an order unrelated to the order of adding
+			w.start();
+			int found = 0;
+			for (long i = 0; i < LOOKUPS; i++) {
+				found += f.mightContain(key((BloomFilter.hash(i) & Long.MAX_VALUE) % n)) ? 1 : 0;
+			}
+			double tHit = w.stop();
+			w.start();
+			int falsePositives = 0;
+			for (long i = 1; i <= LOOKUPS; i++) {
+				falsePositives += f.mightContain(key(-i)) ? 1 : 0;
+			}
+			double tMiss = w.stop();
+
+			BloomFilter c = blocked == 1 ? new BlockedBloomFilter(m, k, true) : new BloomFilter(m, k, true);
+			Thread[] t = new Thread[threads];
+			w.start();
+			for (int j = 0; j < threads; j++) {
+				long first = j;
+				t[j] = new Thread(() -> {
+					for (long i = first; i < n; i += threads) {
+						c.add(key(i));
+					}
+				});
+				t[j].start();
+			}
+			for (Thread thread : t) {
+				thread.join();
+			}
+			double tConcurrent = w.stop();
+			boolean sameBits = c.toBinary().compareTo(f.toBinary()) == 0;
+
+			System.out.printf("%s%n", blocked == 1 ? "BlockedBloomFilter" : "BloomFilter");
+			System.out.printf("  add              %8.1f ns/key%n", tAdd / n * 1e9);
+			System.out.printf("  add, %2d threads  %8.1f ns/key%s%n", threads, tConcurrent / n * 1e9,
+					sameBits ? "" : "  DIFFERENT BITS");
+			System.out.printf("  lookup, present  %8.1f ns/key (%.1f M/s)%s%n", tHit / LOOKUPS * 1e9,
+					LOOKUPS / tHit / 1e6, noFalseNegatives && found == LOOKUPS ? "" : "  FALSE NEGATIVE");
+			System.out.printf("  lookup, absent   %8.1f ns/key (%.1f M/s)%n", tMiss / LOOKUPS * 1e9,
+					LOOKUPS / tMiss / 1e6);
+			System.out.printf("  false positives  %8.3f%% (estimated %.3f%%)%n", 100.0 * falsePositives / LOOKUPS,
+					100 * f.estimatedFalsePositiveRate());
+		}
+	}
+}
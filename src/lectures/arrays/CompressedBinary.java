@@ -0,0 +1,934 @@
+package lectures.arrays;
+
+import java.util.Arrays;
+
+/**
+ * An unsigned binary number stored in a compressed form that is suited to
+ * numbers whose bits are mostly 0.
+ *
+ * <p>
+ * The positions of the bits are split into chunks of 65536 bits. Chunks in
+ * which every bit is 0 use no memory. Every other chunk is stored in a
+ * <em>container</em> that uses one of three representations, in the manner of
+ * Roaring bitmaps:
+ *
+ * <ul>
+ * <li>an <em>array</em> container stores the sorted positions of the 1 bits
+ * as 16-bit values; it is used for chunks having at most 4096 1 bits,
+ * </li>
+ * <li>a <em>bitmap</em> container stores all 65536 bits packed in 1024
+ * {@code long} words, like {@link Binary},</li>
+ * <li>a <em>run</em> container stores the start and length of every run of
+ * consecutive 1 bits.</li>
+ * </ul>
+ *
+ * <p>
+ * The representation is chosen automatically. When a number is created from
+ * a {@code Binary}, and for the results of {@code and}, {@code or}, and
+ * {@code xor}, every container uses whichever of the three representations
+ * needs the least memory. {@link #setBit(int, int)} switches between array
+ * and bitmap containers as the number of 1 bits in a chunk crosses 4096;
+ * {@link #optimize()} chooses the smallest representations again after many
+ * bits have been set.
+ *
+ * <p>
+ * As in {@code Binary}, index 0 is the index of the left-most bit.
+ *
+ */
+public class CompressedBinary {
+
+	/**
+	 * The base 2 logarithm of the number of bits in one chunk.
+	 */
+	private static final int CHUNK_SHIFT = 16;
+
+	/**
+	 * The number of words in a bitmap container.
+	 */
+	private static final int BITMAP_WORDS = (1 << CHUNK_SHIFT) / 64;
+
+	/**
+	 * The largest number of 1 bits stored in an array container.
+	 */
+	private static final int ARRAY_MAX = 4096;
+
+	/**
+	 * Two array containers having fewer values than this in total are
+	 * intersected by merging them; larger ones by testing the values of one
+	 * against a bitmap of the other.
+	 */
+	private static final int ARRAY_MERGE_MAX = 256;
+
+	/**
+	 * The containers of this binary number. Counting positions from the
+	 * right-most bit (position 0), the bit at position {@code p} is stored in
+	 * {@code containers[p >>> 16]} as the 16-bit value {@code (char) p}. A
+	 * chunk in which every bit is 0 has no container.
+	 */
+	private Container[] containers;
+
+	/**
+	 * The number of bits of this binary number.
+	 */
+	private int numberOfBits;
+
+	/**
+	 * A set of 16-bit values: the positions of the 1 bits of one chunk.
+	 */
+	private abstract static class Container {
+
+		/**
+		 * Returns the number of values in this container.
+		 */
+		abstract int cardinality();
+
+		/**
+		 * Returns true if this container contains {@code x}.
+		 */
+		abstract boolean contains(char x);
+
+		/**
+		 * Adds {@code x} to this container. Returns this container or the
+		 * container that replaces it.
+		 */
+		abstract Container add(char x);
+
+		/**
+		 * Removes {@code x} from this container. Returns this container or the
+		 * container that replaces it.
+		 */
+		abstract Container remove(char x);
+
+		/**
+		 * Sets the bits of {@code w} starting at word {@code offset} that
+		 * correspond to the values in this container. Words past the end of
+		 * {@code w} are ignored.
+		 */
+		abstract void fill(long[] w, int offset);
+
+		/**
+		 * Returns an estimate of the number of bytes of memory used by this
+		 * container.
+		 */
+		abstract long sizeInBytes();
+
+		/**
+		 * Returns a copy of this container.
+		 */
+		abstract Container copy();
+
+		/**
+		 * Returns the values of this container as a new bitmap of 1024 words.
+		 */
+		long[] toWords() {
+			long[] w = new long[BITMAP_WORDS];
+			this.fill(w, 0);
+			return w;
+		}
+	}
+
+	/**
+	 * A container that stores its values in a sorted array.
+	 */
+	private static final class ArrayContainer extends Container {
+		private char[] values;
+		private int size;
+
+		ArrayContainer(char[] values, int size) {
+			this.values = values;
+			this.size = size;
+		}
+
+		@Override
+		int cardinality() {
+			return this.size;
+		}
+
+		@Override
+		boolean contains(char x) {
+			return Arrays.binarySearch(this.values, 0, this.size, x) >= 0;
+		}
+
+		@Override
+		Container add(char x) {
+			int i = Arrays.binarySearch(this.values, 0, this.size, x);
+			if (i >= 0) {
+				return this;
+			}
+			if (this.size == ARRAY_MAX) {
+				return new BitmapContainer(this.toWords(), this.size).add(x);
+			}
+			i = -i - 1;
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, Math.min(ARRAY_MAX, Math.max(4, 2 * this.size)));
+			}
+			System.arraycopy(this.values, i, this.values, i + 1, this.size - i);
+			this.values[i] = x;
+			this.size++;
+			return this;
+		}
+
+		@Override
+		Container remove(char x) {
+			int i = Arrays.binarySearch(this.values, 0, this.size, x);
+			if (i >= 0) {
+				System.arraycopy(this.values, i + 1, this.values, i, this.size - i - 1);
+				this.size--;
+			}
+			return this;
+		}
+
+		@Override
+		void fill(long[] w, int offset) {
+			for (int i = 0; i < this.size; i++) {
+				char v = this.values[i];
+				w[offset + (v >>> 6)] |= 1L << v;
+			}
+		}
+
+		@Override
+		long sizeInBytes() {
+			return 16 + 2L * this.values.length;
+		}
+
+		@Override
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(this.values, this.size), this.size);
+		}
+	}
+
+	/**
+	 * A container that stores its values as a bitmap of 65536 bits.
+	 */
+	private static final class BitmapContainer extends Container {
+		private final long[] words;
+		private int cardinality;
+
+		BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		int cardinality() {
+			return this.cardinality;
+		}
+
+		@Override
+		boolean contains(char x) {
+			return (this.words[x >>> 6] & (1L << x)) != 0;
+		}
+
+		@Override
+		Container add(char x) {
+			long w = this.words[x >>> 6];
+			long mask = 1L << x;
+			if ((w & mask) == 0) {
+				this.words[x >>> 6] = w | mask;
+				this.cardinality++;
+			}
+			return this;
+		}
+
+		@Override
+		Container remove(char x) {
+			long w = this.words[x >>> 6];
+			long mask = 1L << x;
+			if ((w & mask) == 0) {
+				return this;
+			}
+			this.words[x >>> 6] = w & ~mask;
+			this.cardinality--;
+			if (this.cardinality <= ARRAY_MAX) {
+				return toArray(this.words, this.cardinality);
+			}
+			return this;
+		}
+
+		@Override
+		void fill(long[] w, int offset) {
+			int len = Math.min(BITMAP_WORDS, w.length - offset);
+			for (int i = 0; i < len; i++) {
+				w[offset + i] |= this.words[i];
+			}
+		}
+
+		@Override
+		long[] toWords() {
+			return this.words.clone();
+		}
+
+		@Override
+		long sizeInBytes() {
+			return 16 + 8L * BITMAP_WORDS;
+		}
+
+		@Override
+		Container copy() {
+			return new BitmapContainer(this.words.clone(), this.cardinality);
+		}
+	}
+
+	/**
+	 * A container that stores its values as runs of consecutive values. The
+	 * run {@code i} is made up of the values {@code starts[i]} to
+	 * {@code starts[i] + lengths[i]} inclusive.
+	 */
+	private static final class RunContainer extends Container {
+		private final char[] starts;
+		private final char[] lengths;
+		private final int cardinality;
+
+		RunContainer(char[] starts, char[] lengths, int cardinality) {
+			this.starts = starts;
+			this.lengths = lengths;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		int cardinality() {
+			return this.cardinality;
+		}
+
+		@Override
+		boolean contains(char x) {
+			int i = Arrays.binarySearch(this.starts, x);
+			if (i >= 0) {
+				return true;
+			}
+			i = -i - 2;
+			return i >= 0 && x - this.starts[i] <= this.lengths[i];
+		}
+
+		@Override
+		Container add(char x) {
+			if (this.contains(x)) {
+				return this;
+			}
+			return fromWords(this.toWords(), this.cardinality, false).add(x);
+		}
+
+		@Override
+		Container remove(char x) {
+			if (!this.contains(x)) {
+				return this;
+			}
+			return fromWords(this.toWords(), this.cardinality, false).remove(x);
+		}
+
+		@Override
+		void fill(long[] w, int offset) {
+			for (int i = 0; i < this.starts.length; i++) {
+				int from = offset * 64 + this.starts[i];
+				int to = from + this.lengths[i] + 1;
+				int first = from >>> 6;
+				int last = (to - 1) >>> 6;
+				if (first == last) {
+					w[first] |= (-1L << from) & (-1L >>> -to);
+				} else {
+					w[first] |= -1L << from;
+					Arrays.fill(w, first + 1, last, -1L);
+					w[last] |= -1L >>> -to;
+				}
+			}
+		}
+
+		@Override
+		long sizeInBytes() {
+			return 24 + 4L * this.starts.length;
+		}
+
+		@Override
+		Container copy() {
+			// run containers are never changed in place
+			return this;
+		}
+	}
+
+	/**
+	 * Returns an array container holding the 1 bits of the specified bitmap.
+	 */
+	private static ArrayContainer toArray(long[] w, int cardinality) {
+		char[] values = new char[cardinality];
+		int n = 0;
+		for (int i = 0; i < BITMAP_WORDS; i++) {
+			long word = w[i];
+			while (word != 0) {
+				values[n++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+		return new ArrayContainer(values, n);
+	}
+
+	/**
+	 * Returns the number of runs of consecutive 1 bits in the specified
+	 * bitmap, or any number not less than {@code limit} if there are at least
+	 * {@code limit} runs.
+	 */
+	private static int countRuns(long[] w, int limit) {
+		int runs = 0;
+		long carry = 0;
+		for (int i = 0; i < BITMAP_WORDS; i++) {
+			long word = w[i];
+			// a run starts at every 1 bit whose lower neighbour is 0
+			runs += Long.bitCount(word & ~((word << 1) | carry));
+			carry = word >>> 63;
+			if ((i & 63) == 63 && runs >= limit) {
+				break;
+			}
+		}
+		return runs;
+	}
+
+	/**
+	 * Returns the position of the first bit of the specified bitmap at or
+	 * after {@code from} that is equal to {@code value}, or 65536 if there is
+	 * no such bit.
+	 */
+	private static int next(long[] w, int from, int value) {
+		long flip = value == 1 ? 0L : -1L;
+		int i = from >>> 6;
+		if (i == BITMAP_WORDS) {
+			return BITMAP_WORDS * 64;
+		}
+		long word = (w[i] ^ flip) & (-1L << from);
+		while (word == 0) {
+			if (++i == BITMAP_WORDS) {
+				return BITMAP_WORDS * 64;
+			}
+			word = w[i] ^ flip;
+		}
+		return i * 64 + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Returns a run container holding the 1 bits of the specified bitmap.
+	 */
+	private static RunContainer toRuns(long[] w, int cardinality, int runs) {
+		char[] starts = new char[runs];
+		char[] lengths = new char[runs];
+		int r = 0;
+		int start = next(w, 0, 1);
+		while (start < BITMAP_WORDS * 64) {
+			int end = next(w, start, 0);
+			starts[r] = (char) start;
+			lengths[r] = (char) (end - start - 1);
+			r++;
+			start = next(w, end, 1);
+		}
+		return new RunContainer(starts, lengths, cardinality);
+	}
+
+	/**
+	 * Returns a container holding the 1 bits of the specified bitmap, or
+	 * {@code null} if every bit is 0. If {@code allowRuns} is true the
+	 * container uses whichever representation needs the least memory;
+	 * otherwise it is an array or a bitmap container. The bitmap is used by
+	 * the returned container and must not be changed afterwards.
+	 */
+	private static Container fromWords(long[] w, int cardinality, boolean allowRuns) {
+		if (cardinality == 0) {
+			return null;
+		}
+		if (allowRuns) {
+			// a run container is smaller only if it has fewer runs than this
+			int limit = Math.min((cardinality + 1) / 2, 2 * BITMAP_WORDS);
+			int runs = countRuns(w, limit);
+			if (runs < limit) {
+				return toRuns(w, cardinality, runs);
+			}
+		}
+		if (cardinality <= ARRAY_MAX) {
+			return toArray(w, cardinality);
+		}
+		return new BitmapContainer(w, cardinality);
+	}
+
+	/**
+	 * Returns a container holding the 1 bits of the specified bitmap, using
+	 * whichever representation needs the least memory, or {@code null} if
+	 * every bit is 0.
+	 */
+	private static Container fromWords(long[] w) {
+		return fromWords(w, (int) WordKernels.bitCount(w, 0, BITMAP_WORDS), true);
+	}
+
+	/**
+	 * Initializes this binary number to have the specified number of bits, all
+	 * equal to 0.
+	 *
+	 * @param numberOfBits
+	 *            the number of bits of the binary number
+	 * @throws IllegalArgumentException
+	 *             if numberOfBits is less than 1
+	 */
+	public CompressedBinary(int numberOfBits) {
+		if (numberOfBits < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.numberOfBits = numberOfBits;
+		this.containers = new Container[((numberOfBits - 1) >>> CHUNK_SHIFT) + 1];
+	}
+
+	/**
+	 * Initializes this binary number to have the same bits as the specified
+	 * dense binary number.
+	 *
+	 * @param b
+	 *            the binary number to compress
+	 */
+	public CompressedBinary(Binary b) {
+		this(b.numberOfBits());
+		long[] words = b.words();
+		for (int k = 0; k < this.containers.length; k++) {
+			int from = k * BITMAP_WORDS;
+			int to = Math.min(words.length, from + BITMAP_WORDS);
+			long[] w = new long[BITMAP_WORDS];
+			System.arraycopy(words, from, w, 0, to - from);
+			this.containers[k] = fromWords(w);
+		}
+	}
+
+	/**
+	 * Returns a dense binary number having the same bits as this binary
+	 * number.
+	 *
+	 * @return a dense binary number equal to this binary number
+	 */
+	public Binary toBinary() {
+		long[] words = new long[((this.numberOfBits - 1) >>> 6) + 1];
+		for (int k = 0; k < this.containers.length; k++) {
+			if (this.containers[k] != null) {
+				this.containers[k].fill(words, k * BITMAP_WORDS);
+			}
+		}
+		return Binary.wrap(words, this.numberOfBits);
+	}
+
+	/**
+	 * Checks if the specified index is a valid index for this binary number.
+	 *
+	 * @param index the index to check
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 */
+	private void checkIndex(int index) {
+		if (index < 0 || index >= this.numberOfBits) {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * Returns the number of bits in this binary number.
+	 *
+	 * @return the number of bits in this binary number
+	 */
+	public int numberOfBits() {
+		return this.numberOfBits;
+	}
+
+	/**
+	 * Returns the bit at the specified index.
+	 *
+	 * <p>
+	 * Index 0 is the index of the left-most bit.
+	 *
+	 * @param index
+	 *            the index of the bit to get
+	 * @return the bit at the specified index
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 */
+	public int getBit(int index) {
+		this.checkIndex(index);
+		int p = this.numberOfBits - 1 - index;
+		Container c = this.containers[p >>> CHUNK_SHIFT];
+		return c != null && c.contains((char) p) ? 1 : 0;
+	}
+
+	/**
+	 * Sets a bit at the given index.
+	 *
+	 * <p>
+	 * Index 0 is the index of the left-most bit.
+	 *
+	 * @param index
+	 *            the index of the bit to set
+	 * @param value
+	 *            the value of the bit to set
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 * @throws IllegalArgumentException
+	 *            if value is not a 0 or 1
+	 */
+	public void setBit(int index, int value) {
+		this.checkIndex(index);
+		if (value != 0 && value != 1) {
+			throw new IllegalArgumentException();
+		}
+		int p = this.numberOfBits - 1 - index;
+		int k = p >>> CHUNK_SHIFT;
+		Container c = this.containers[k];
+		if (value == 1) {
+			if (c == null) {
+				c = new ArrayContainer(new char[4], 0);
+			}
+			this.containers[k] = c.add((char) p);
+		} else if (c != null) {
+			c = c.remove((char) p);
+			this.containers[k] = c.cardinality() == 0 ? null : c;
+		}
+	}
+
+	/**
+	 * Returns the number of bits of this binary number that are equal to 1.
+	 *
+	 * @return the number of 1 bits in this binary number
+	 */
+	public int bitCount() {
+		int count = 0;
+		for (Container c : this.containers) {
+			if (c != null) {
+				count += c.cardinality();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Changes the representation of every container to the one that needs
+	 * the least memory.
+	 */
+	public void optimize() {
+		for (int k = 0; k < this.containers.length; k++) {
+			Container c = this.containers[k];
+			if (c != null) {
+				this.containers[k] = fromWords(c.toWords(), c.cardinality(), true);
+			}
+		}
+	}
+
+	/**
+	 * Returns an estimate of the number of bytes of memory used by this
+	 * binary number.
+	 *
+	 * @return the approximate size of this binary number in bytes
+	 */
+	public long sizeInBytes() {
+		long size = 32 + 4L * this.containers.length;
+		for (Container c : this.containers) {
+			if (c != null) {
+				size += c.sizeInBytes();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns a string that shows the number of containers of each kind. For
+	 * example, {@code "array=3 bitmap=1 run=0 empty=12"}.
+	 *
+	 * @return a summary of the containers of this binary number
+	 */
+	public String containerSummary() {
+		int[] count = new int[4];
+		for (Container c : this.containers) {
+			if (c == null) {
+				count[3]++;
+			} else if (c instanceof ArrayContainer) {
+				count[0]++;
+			} else if (c instanceof BitmapContainer) {
+				count[1]++;
+			} else {
+				count[2]++;
+			}
+		}
+		return "array=" + count[0] + " bitmap=" + count[1] + " run=" + count[2] + " empty=" + count[3];
+	}
+
+	/**
+	 * Checks if the specified binary numbers have the same number of bits.
+	 *
+	 * @param a a binary number
+	 * @param b a binary number
+	 * @throws IllegalArgumentException
+	 *            if a and b do not have the same number of bits
+	 */
+	private static void checkSameLength(CompressedBinary a, CompressedBinary b) {
+		if (a.numberOfBits != b.numberOfBits) {
+			throw new IllegalArgumentException("binary numbers must have the same number of bits");
+		}
+	}
+
+	/**
+	 * Returns the intersection of two containers, or {@code null} if it is
+	 * empty.
+	 */
+	private static Container and(Container a, Container b) {
+		if (a instanceof ArrayContainer && b instanceof ArrayContainer
+				&& a.cardinality() + b.cardinality() < ARRAY_MERGE_MAX) {
+			ArrayContainer x = (ArrayContainer) a;
+			ArrayContainer y = (ArrayContainer) b;
+			char[] r = new char[Math.min(x.size, y.size)];
+			int n = 0;
+			int i = 0;
+			int j = 0;
+			// branch-free merge; the comparisons of random values are not
+			// predictable
+			while (i < x.size && j < y.size) {
+				char u = x.values[i];
+				char v = y.values[j];
+				r[n] = u;
+				n += u == v ? 1 : 0;
+				i += u <= v ? 1 : 0;
+				j += u >= v ? 1 : 0;
+			}
+			return n == 0 ? null : new ArrayContainer(r, n);
+		}
+		if (a instanceof RunContainer && b instanceof RunContainer) {
+			return and((RunContainer) a, (RunContainer) b);
+		}
+		if (b instanceof ArrayContainer) {
+			Container t = a;
+			a = b;
+			b = t;
+		}
+		if (a instanceof ArrayContainer) {
+			// keep the values of the array that the other container contains,
+			// testing them against a bitmap of the other container
+			ArrayContainer x = (ArrayContainer) a;
+			long[] w = b instanceof BitmapContainer ? ((BitmapContainer) b).words : b.toWords();
+			char[] r = new char[x.size];
+			int n = 0;
+			for (int i = 0; i < x.size; i++) {
+				char v = x.values[i];
+				r[n] = v;
+				n += (int) (w[v >>> 6] >>> v) & 1;
+			}
+			return n == 0 ? null : new ArrayContainer(r, n);
+		}
+		long[] w = a.toWords();
+		if (b instanceof BitmapContainer) {
+			WordKernels.and(w, ((BitmapContainer) b).words, 0, BITMAP_WORDS);
+		} else {
+			WordKernels.and(w, b.toWords(), 0, BITMAP_WORDS);
+		}
+		return fromWords(w);
+	}
+
+	/**
+	 * Returns the intersection of two run containers, or {@code null} if it is
+	 * empty.
+	 */
+	private static Container and(RunContainer a, RunContainer b) {
+		int max = a.starts.length + b.starts.length;
+		char[] starts = new char[max];
+		char[] lengths = new char[max];
+		int n = 0;
+		int cardinality = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.starts.length && j < b.starts.length) {
+			int aEnd = a.starts[i] + a.lengths[i];
+			int bEnd = b.starts[j] + b.lengths[j];
+			int start = Math.max(a.starts[i], b.starts[j]);
+			int end = Math.min(aEnd, bEnd);
+			if (start <= end) {
+				starts[n] = (char) start;
+				lengths[n] = (char) (end - start);
+				cardinality += end - start + 1;
+				n++;
+			}
+			// move past the run that ends first
+			if (aEnd <= bEnd) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		if (n == 0) {
+			return null;
+		}
+		RunContainer r = new RunContainer(Arrays.copyOf(starts, n), Arrays.copyOf(lengths, n), cardinality);
+		if (4L * n < 2L * cardinality && 4L * n < 8L * BITMAP_WORDS) {
+			return r;
+		}
+		return fromWords(r.toWords(), cardinality, false);
+	}
+
+	/**
+	 * Returns the union of two containers.
+	 */
+	private static Container or(Container a, Container b) {
+		if (a instanceof ArrayContainer && b instanceof ArrayContainer
+				&& a.cardinality() + b.cardinality() <= ARRAY_MAX) {
+			ArrayContainer x = (ArrayContainer) a;
+			ArrayContainer y = (ArrayContainer) b;
+			char[] r = new char[x.size + y.size];
+			int n = 0;
+			int i = 0;
+			int j = 0;
+			while (i < x.size && j < y.size) {
+				char u = x.values[i];
+				char v = y.values[j];
+				if (u <= v) {
+					r[n++] = u;
+					i++;
+					if (u == v) {
+						j++;
+					}
+				} else {
+					r[n++] = v;
+					j++;
+				}
+			}
+			while (i < x.size) {
+				r[n++] = x.values[i++];
+			}
+			while (j < y.size) {
+				r[n++] = y.values[j++];
+			}
+			return new ArrayContainer(r, n);
+		}
+		if (a instanceof ArrayContainer) {
+			Container t = a;
+			a = b;
+			b = t;
+		}
+		long[] w = a.toWords();
+		b.fill(w, 0);
+		return fromWords(w);
+	}
+
+	/**
+	 * Returns the symmetric difference of two containers, or {@code null} if
+	 * it is empty.
+	 */
+	private static Container xor(Container a, Container b) {
+		if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+			ArrayContainer x = (ArrayContainer) a;
+			ArrayContainer y = (ArrayContainer) b;
+			char[] r = new char[x.size + y.size];
+			int n = 0;
+			int i = 0;
+			int j = 0;
+			while (i < x.size && j < y.size) {
+				char u = x.values[i];
+				char v = y.values[j];
+				if (u < v) {
+					r[n++] = u;
+					i++;
+				} else if (u > v) {
+					r[n++] = v;
+					j++;
+				} else {
+					i++;
+					j++;
+				}
+			}
+			while (i < x.size) {
+				r[n++] = x.values[i++];
+			}
+			while (j < y.size) {
+				r[n++] = y.values[j++];
+			}
+			if (n == 0) {
+				return null;
+			}
+			if (n > ARRAY_MAX) {
+				long[] w = new long[BITMAP_WORDS];
+				new ArrayContainer(r, n).fill(w, 0);
+				return fromWords(w);
+			}
+			return new ArrayContainer(r, n);
+		}
+		long[] w = a.toWords();
+		WordKernels.xor(w, b instanceof BitmapContainer ? ((BitmapContainer) b).words : b.toWords(), 0,
+				BITMAP_WORDS);
+		return fromWords(w);
+	}
+
+	/**
+	 * Returns a new binary number equal to the bitwise AND of {@code a} and
+	 * {@code b}.
+	 *
+	 * @param a
+	 *            a binary number
+	 * @param b
+	 *            a binary number having the same number of bits as a
+	 * @return the bitwise AND of a and b
+	 * @throws IllegalArgumentException
+	 *             if a and b do not have the same number of bits
+	 */
+	public static CompressedBinary and(CompressedBinary a, CompressedBinary b) {
+		checkSameLength(a, b);
+		CompressedBinary result = new CompressedBinary(a.numberOfBits);
+		for (int k = 0; k < a.containers.length; k++) {
+			Container x = a.containers[k];
+			Container y = b.containers[k];
+			if (x != null && y != null) {
+				result.containers[k] = and(x, y);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a new binary number equal to the bitwise OR of {@code a} and
+	 * {@code b}.
+	 *
+	 * @param a
+	 *            a binary number
+	 * @param b
+	 *            a binary number having the same number of bits as a
+	 * @return the bitwise OR of a and b
+	 * @throws IllegalArgumentException
+	 *             if a and b do not have the same number of bits
+	 */
+	public static CompressedBinary or(CompressedBinary a, CompressedBinary b) {
+		checkSameLength(a, b);
+		CompressedBinary result = new CompressedBinary(a.numberOfBits);
+		for (int k = 0; k < a.containers.length; k++) {
+			Container x = a.containers[k];
+			Container y = b.containers[k];
+			if (x == null) {
+				result.containers[k] = y == null ? null : y.copy();
+			} else if (y == null) {
+				result.containers[k] = x.copy();
+			} else {
+				result.containers[k] = or(x, y);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a new binary number equal to the bitwise XOR of {@code a} and
+	 * {@code b}.
+	 *
+	 * @param a
+	 *            a binary number
+	 * @param b
+	 *            a binary number having the same number of bits as a
+	 * @return the bitwise XOR of a and b
+	 * @throws IllegalArgumentException
+	 *             if a and b do not have the same number of bits
+	 */
+	public static CompressedBinary xor(CompressedBinary a, CompressedBinary b) {
+		checkSameLength(a, b);
+		CompressedBinary result = new CompressedBinary(a.numberOfBits);
+		for (int k = 0; k < a.containers.length; k++) {
+			Container x = a.containers[k];
+			Container y = b.containers[k];
+			if (x == null) {
+				result.containers[k] = y == null ? null : y.copy();
+			} else if (y == null) {
+				result.containers[k] = x.copy();
+			} else {
+				result.containers[k] = xor(x, y);
+			}
+		}
+		return result;
+	}
+}
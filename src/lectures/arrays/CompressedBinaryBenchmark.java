@@ -0,0 +1,83 @@
+package lectures.arrays;
+
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Compares the memory use and intersection ({@code and}) speed of
+ * {@link CompressedBinary} with the dense {@link Binary} for 2^26-bit numbers
+ * having 0.1%, 1%, and 50% of their bits equal to 1. Both random bits and
+ * clustered bits (runs of 1 bits) are measured.
+ *
+ */
+public class CompressedBinaryBenchmark {
+
+	/**
+	 * The number of bits of the numbers.
+	 */
+	private static final int N = 1 << 26;
+
+	/**
+	 * Returns a binary number whose bits are 1 with probability
+	 * {@code density}. If {@code clustered} is true the 1 bits form runs of
+	 * about 1000 bits.
+	 */
+	private static Binary random(double density, boolean clustered, Random rng) {
+		long[] w = new long[N / 64];
+		if (clustered) {
+			int run = 1000;
+			int runs = (int) (N * density / run);
+			for (int r = 0; r < runs; r++) {
+				int start = rng.nextInt(N - run);
+				for (int p = start; p < start + run; p++) {
+					w[p >>> 6] |= 1L << p;
+				}
+			}
+		} else {
+			for (long k = (long) (N * density); k > 0; k--) {
+				int p = rng.nextInt(N);
+				w[p >>> 6] |= 1L << p;
+			}
+		}
+		return Binary.wrap(w, N);
+	}
+
+	public static void main(String[] args) {
+		double[] densities = { 0.001, 0.01, 0.5 };
+		Random rng = new Random(2030);
+		Stopwatch w = new Stopwatch();
+		for (boolean clustered : new boolean[] { false, true }) {
+			for (double d : densities) {
+				Binary a = random(d, clustered, rng);
+				Binary b = random(d, clustered, rng);
+				CompressedBinary ca = new CompressedBinary(a);
+				CompressedBinary cb = new CompressedBinary(b);
+				System.out.printf("density %.1f%%%s%n", d * 100, clustered ? ", clustered" : "");
+				System.out.printf("  dense      %10d bytes%n", (long) N / 8);
+				System.out.printf("  compressed %10d bytes  (%s)%n", ca.sizeInBytes(), ca.containerSummary());
+
+				int reps = 50;
+				long check = 0;
+				for (int round = 0; round < 2; round++) {
+					w.start();
+					for (int i = 0; i < reps; i++) {
+						check += Binary.and(a, b).getRightMostBit();
+					}
+					double tDense = w.stop() / reps;
+					w.start();
+					for (int i = 0; i < reps; i++) {
+						check += CompressedBinary.and(ca, cb).numberOfBits();
+					}
+					double tCompressed = w.stop() / reps;
+					if (round == 1) {
+						System.out.printf("  and: dense %8.3f ms, compressed %8.3f ms%n", tDense * 1e3,
+								tCompressed * 1e3);
+					}
+				}
+				boolean same = CompressedBinary.and(ca, cb).toBinary().compareTo(Binary.and(a, b)) == 0;
+				System.out.println("  same result: " + same + (check == 42 ? " " : ""));
+			}
+		}
+	}
+}
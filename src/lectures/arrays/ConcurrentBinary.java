@@ -0,0 +1,437 @@
+package lectures.arrays;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * An unsigned binary number whose bits can be read and changed by many
+ * threads at the same time without locking.
+ *
+ * <p>
+ * The bits are packed 64 to a {@code long} word in the same layout as
+ * {@link Binary}. Every method that changes a single bit reads the word that
+ * holds the bit and replaces it using a compare-and-set on the array element
+ * ({@link VarHandle#weakCompareAndSet}), retrying if another thread changed
+ * the word in between. Threads that change different bits of the same word
+ * therefore never lose each other's changes. The single-bit methods are
+ * linearizable: each one appears to happen at one instant between its call
+ * and its return.
+ *
+ * <p>
+ * The bulk operations ({@code bitCount}, {@code nextSetBit}, {@code toBinary},
+ * and the word-wise {@code and}, {@code or}, {@code andNot}, and {@code xor})
+ * are <em>weakly consistent</em>. Each word is read or updated atomically, so
+ * no change to a single bit is ever lost, but the words are processed one
+ * after another and changes made by other threads during the operation may
+ * or may not be seen. For example, {@code bitCount} returns the exact number
+ * of 1 bits if no other thread changes the number while it runs, and
+ * otherwise a count that reflects each word as it was at some instant during
+ * the call; {@code toBinary} is a snapshot of every word, but not
+ * necessarily of all words at the same instant.
+ *
+ * <p>
+ * As in {@code Binary}, index 0 is the index of the left-most bit.
+ *
+ */
+public class ConcurrentBinary {
+
+	/**
+	 * The handle used to access the elements of the word array atomically.
+	 */
+	private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/**
+	 * The bits of this binary number packed into words, in the same layout as
+	 * the words of {@code Binary}.
+	 */
+	private final long[] words;
+
+	/**
+	 * The number of bits of this binary number.
+	 */
+	private final int numberOfBits;
+
+	/**
+	 * Initializes this binary number to have the specified number of bits, all
+	 * equal to 0.
+	 *
+	 * @param numberOfBits
+	 *            the number of bits of the binary number
+	 * @throws IllegalArgumentException
+	 *             if numberOfBits is less than 1
+	 */
+	public ConcurrentBinary(int numberOfBits) {
+		if (numberOfBits < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.numberOfBits = numberOfBits;
+		this.words = new long[((numberOfBits - 1) >>> 6) + 1];
+	}
+
+	/**
+	 * Initializes this binary number by copying the bits of the specified
+	 * binary number.
+	 *
+	 * @param b
+	 *            the binary number to copy
+	 */
+	public ConcurrentBinary(Binary b) {
+		this.numberOfBits = b.numberOfBits();
+		this.words = b.words().clone();
+	}
+
+	/**
+	 * Checks if the specified index is a valid index for this binary number.
+	 *
+	 * @param index the index to check
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 */
+	private void checkIndex(int index) {
+		if (index < 0 || index >= this.numberOfBits) {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * Checks if the specified binary number has the same number of bits as
+	 * this binary number.
+	 *
+	 * @param other the binary number to check
+	 * @throws IllegalArgumentException
+	 *            if other does not have the same number of bits as this
+	 *            binary number
+	 */
+	private void checkSameLength(Binary other) {
+		if (this.numberOfBits != other.numberOfBits()) {
+			throw new IllegalArgumentException("binary numbers must have the same number of bits");
+		}
+	}
+
+	/**
+	 * Returns the position, counted from the right-most bit, of the bit
+	 * having the specified index.
+	 *
+	 * @param index an index of this binary number
+	 * @return the position of the bit counted from the right-most bit
+	 */
+	private int position(int index) {
+		return this.numberOfBits - 1 - index;
+	}
+
+	/**
+	 * Returns the word having the specified index.
+	 *
+	 * @param i the index of the word
+	 * @return the current value of the word
+	 */
+	private long word(int i) {
+		return (long) WORDS.getVolatile(this.words, i);
+	}
+
+	/**
+	 * Atomically replaces the word having the specified index with
+	 * {@code (word & and) ^ xor} and returns the previous value of the word.
+	 * A bit is set using {@code and = ~mask, xor = mask}, cleared using
+	 * {@code and = ~mask, xor = 0}, and inverted using
+	 * {@code and = -1, xor = mask}.
+	 *
+	 * @param i the index of the word
+	 * @param and the mask to AND the word with
+	 * @param xor the mask to XOR the result with
+	 * @return the value of the word before it was replaced
+	 */
+	private long update(int i, long and, long xor) {
+		long w = this.word(i);
+		while (true) {
+			long v = (w & and) ^ xor;
+			if (v == w) {
+				// nothing to change; the read is the linearization point
+				return w;
+			}
+			if (WORDS.weakCompareAndSet(this.words, i, w, v)) {
+				return w;
+			}
+			w = this.word(i);
+		}
+	}
+
+	/**
+	 * Returns the number of bits in this binary number.
+	 *
+	 * @return the number of bits in this binary number
+	 */
+	public int numberOfBits() {
+		return this.numberOfBits;
+	}
+
+	/**
+	 * Returns the bit at the specified index.
+	 *
+	 * @param index
+	 *            the index of the bit to get
+	 * @return the bit at the specified index
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 */
+	public int getBit(int index) {
+		this.checkIndex(index);
+		int p = this.position(index);
+		return (int) (this.word(p >>> 6) >>> p) & 1;
+	}
+
+	/**
+	 * Sets the bit at the specified index to 1.
+	 *
+	 * @param index
+	 *            the index of the bit to set
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 */
+	public void setBit(int index) {
+		this.testAndSet(index);
+	}
+
+	/**
+	 * Sets the bit at the specified index to 0.
+	 *
+	 * @param index
+	 *            the index of the bit to clear
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 */
+	public void clearBit(int index) {
+		this.getAndSet(index, 0);
+	}
+
+	/**
+	 * Sets a bit at the given index.
+	 *
+	 * @param index
+	 *            the index of the bit to set
+	 * @param value
+	 *            the value of the bit to set
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 * @throws IllegalArgumentException
+	 *            if value is not a 0 or 1
+	 */
+	public void setBit(int index, int value) {
+		this.getAndSet(index, value);
+	}
+
+	/**
+	 * Sets the bit at the specified index to 1 and returns true if this call
+	 * changed it from 0 to 1. When several threads call this method for the
+	 * same bit, exactly one of them returns true; this makes the method
+	 * suitable for marking items as visited.
+	 *
+	 * <p>
+	 * If the bit is already 1 the method returns false without writing to
+	 * memory.
+	 *
+	 * @param index
+	 *            the index of the bit to set
+	 * @return true if the bit was 0 and is now 1, false if it was already 1
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 */
+	public boolean testAndSet(int index) {
+		this.checkIndex(index);
+		int p = this.position(index);
+		long mask = 1L << p;
+		if ((this.word(p >>> 6) & mask) != 0) {
+			return false;
+		}
+		return (this.update(p >>> 6, ~mask, mask) & mask) == 0;
+	}
+
+	/**
+	 * Inverts the bit at the specified index and returns its new value.
+	 *
+	 * @param index
+	 *            the index of the bit to invert
+	 * @return the value of the bit after it was inverted
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 */
+	public int flip(int index) {
+		this.checkIndex(index);
+		int p = this.position(index);
+		long mask = 1L << p;
+		return (this.update(p >>> 6, -1L, mask) & mask) == 0 ? 1 : 0;
+	}
+
+	/**
+	 * Sets the bit at the specified index to {@code value} and returns the
+	 * previous value of the bit.
+	 *
+	 * @param index
+	 *            the index of the bit to set
+	 * @param value
+	 *            the new value of the bit
+	 * @return the value of the bit before it was set
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 * @throws IllegalArgumentException
+	 *            if value is not a 0 or 1
+	 */
+	public int getAndSet(int index, int value) {
+		this.checkIndex(index);
+		if (value != 0 && value != 1) {
+			throw new IllegalArgumentException();
+		}
+		int p = this.position(index);
+		long mask = 1L << p;
+		long old = this.update(p >>> 6, ~mask, value == 1 ? mask : 0L);
+		return (int) (old >>> p) & 1;
+	}
+
+	/**
+	 * Returns the number of bits of this binary number that are equal to 1.
+	 * The count is weakly consistent (see the class description).
+	 *
+	 * @return the number of 1 bits in this binary number
+	 */
+	public int bitCount() {
+		int count = 0;
+		for (int i = 0; i < this.words.length; i++) {
+			count += Long.bitCount(this.word(i));
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the index of the first bit that is equal to 1 at or after the
+	 * specified index, or -1 if there is no such bit. The search is weakly
+	 * consistent (see the class description).
+	 *
+	 * @param fromIndex
+	 *            the index to start searching from
+	 * @return the index of the next 1 bit, or -1 if there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if fromIndex is negative
+	 */
+	public int nextSetBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (fromIndex >= this.numberOfBits) {
+			return -1;
+		}
+		int p = this.position(fromIndex);
+		int i = p >>> 6;
+		// keep only the positions at or below p
+		long word = this.word(i) & (-1L >>> (63 - (p & 63)));
+		while (word == 0) {
+			if (--i < 0) {
+				return -1;
+			}
+			word = this.word(i);
+		}
+		return this.position(i * 64 + 63 - Long.numberOfLeadingZeros(word));
+	}
+
+	/**
+	 * Returns a binary number having the bits of this binary number. Every
+	 * word is copied atomically but the copy is weakly consistent (see the
+	 * class description).
+	 *
+	 * @return a copy of this binary number
+	 */
+	public Binary toBinary() {
+		long[] w = new long[this.words.length];
+		for (int i = 0; i < w.length; i++) {
+			w[i] = this.word(i);
+		}
+		return Binary.wrap(w, this.numberOfBits);
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise AND of the bit and
+	 * the corresponding bit of {@code other}. Each word is updated atomically;
+	 * the operation as a whole is weakly consistent (see the class
+	 * description).
+	 *
+	 * @param other
+	 *            the binary number to AND with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void and(Binary other) {
+		this.checkSameLength(other);
+		long[] o = other.words();
+		for (int i = 0; i < o.length; i++) {
+			if (o[i] != -1L) {
+				WORDS.getAndBitwiseAnd(this.words, i, o[i]);
+			}
+		}
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise OR of the bit and
+	 * the corresponding bit of {@code other}. Each word is updated atomically;
+	 * the operation as a whole is weakly consistent (see the class
+	 * description).
+	 *
+	 * @param other
+	 *            the binary number to OR with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void or(Binary other) {
+		this.checkSameLength(other);
+		long[] o = other.words();
+		for (int i = 0; i < o.length; i++) {
+			if (o[i] != 0) {
+				WORDS.getAndBitwiseOr(this.words, i, o[i]);
+			}
+		}
+	}
+
+	/**
+	 * Sets to 0 each bit of this binary number whose corresponding bit in
+	 * {@code other} is 1. Each word is updated atomically; the operation as a
+	 * whole is weakly consistent (see the class description).
+	 *
+	 * @param other
+	 *            the binary number whose 1 bits are cleared from this binary
+	 *            number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void andNot(Binary other) {
+		this.checkSameLength(other);
+		long[] o = other.words();
+		for (int i = 0; i < o.length; i++) {
+			if (o[i] != 0) {
+				WORDS.getAndBitwiseAnd(this.words, i, ~o[i]);
+			}
+		}
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise XOR of the bit and
+	 * the corresponding bit of {@code other}. Each word is updated atomically;
+	 * the operation as a whole is weakly consistent (see the class
+	 * description).
+	 *
+	 * @param other
+	 *            the binary number to XOR with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void xor(Binary other) {
+		this.checkSameLength(other);
+		long[] o = other.words();
+		for (int i = 0; i < o.length; i++) {
+			if (o[i] != 0) {
+				WORDS.getAndBitwiseXor(this.words, i, o[i]);
+			}
+		}
+	}
+}
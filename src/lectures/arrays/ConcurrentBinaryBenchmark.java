@@ -0,0 +1,180 @@
+package lectures.arrays;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Checks that the single-bit methods of {@link ConcurrentBinary} do not lose
+ * updates when many threads use them at the same time, then compares the
+ * throughput of concurrent {@code setBit} calls with two alternatives: a
+ * {@link Binary} whose calls are {@code synchronized} on the number, and a
+ * bit set built on {@code AtomicLongArray}.
+ *
+ * <p>
+ * The maximum number of threads can be given as a command line argument; the
+ * default is the number of available processors (at least 4).
+ *
+ */
+public class ConcurrentBinaryBenchmark {
+
+	/**
+	 * The number of bits of the numbers.
+	 */
+	private static final int N = 1 << 20;
+
+	/**
+	 * A bit set built on {@code AtomicLongArray}.
+	 */
+	private static class AtomicBits {
+		private final AtomicLongArray words = new AtomicLongArray(N / 64);
+
+		void setBit(int index) {
+			int p = N - 1 - index;
+			long mask = 1L << p;
+			this.words.getAndAccumulate(p >>> 6, mask, (w, m) -> w | m);
+		}
+	}
+
+	/**
+	 * Runs {@code task} in {@code threads} threads that all start at the same
+	 * time; the task is given the number of the thread. Returns the elapsed
+	 * time in seconds.
+	 */
+	private static double run(int threads, IntConsumer task) {
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] t = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			int id = i;
+			t[i] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException x) {
+					return;
+				}
+				task.accept(id);
+			});
+			t[i].start();
+		}
+		Stopwatch w = new Stopwatch();
+		w.start();
+		start.countDown();
+		for (Thread thread : t) {
+			try {
+				thread.join();
+			} catch (InterruptedException x) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return w.stop();
+	}
+
+	/**
+	 * Runs the stress tests and returns true if every one of them passes.
+	 */
+	private static boolean stressTest(int threads, Random rng) {
+		boolean ok = true;
+		int rounds = 20;
+		for (int round = 0; round < rounds; round++) {
+			int n = 1 + rng.nextInt(1 << 16);
+			ConcurrentBinary b = new ConcurrentBinary(n);
+
+			// every bit is set by every thread; exactly one testAndSet call
+			// per bit may succeed
+			AtomicInteger won = new AtomicInteger();
+			run(threads, id -> {
+				int count = 0;
+				for (int k = 0; k < n; k++) {
+					// start at different bits so that threads collide on words
+					if (b.testAndSet((k + id * 7) % n)) {
+						count++;
+					}
+				}
+				won.addAndGet(count);
+			});
+			ok &= won.get() == n && b.bitCount() == n;
+
+			// every thread flips every bit twice; all bits end up 1 again
+			run(threads, id -> {
+				for (int k = 0; k < 2 * n; k++) {
+					b.flip((k + id) % n);
+				}
+			});
+			ok &= b.bitCount() == n;
+
+			// the even-numbered threads clear the even bits while thread 1
+			// clears and sets the odd bits, which share words with them;
+			// thread 1 must always see the values it wrote itself
+			AtomicInteger wrong = new AtomicInteger();
+			run(threads, id -> {
+				for (int k = 0; k < n; k++) {
+					if (id % 2 == 0 && k % 2 == 0) {
+						b.clearBit(k);
+					} else if (id == 1 && k % 2 == 1) {
+						if (b.getAndSet(k, 0) != 1 || b.getAndSet(k, 1) != 0) {
+							wrong.incrementAndGet();
+						}
+					}
+				}
+			});
+			ok &= wrong.get() == 0 && b.bitCount() == n / 2;
+			for (int k = 0; k < n; k++) {
+				ok &= b.getBit(k) == k % 2;
+			}
+		}
+		return ok;
+	}
+
+	public static void main(String[] args) {
+		int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+		if (args.length > 0) {
+			maxThreads = Integer.parseInt(args[0]);
+		}
+		Random rng = new Random(2030);
+		System.out.println("stress test passed: " + stressTest(maxThreads, rng));
+
+		int ops = 1 << 23;
+		int[] idx = new int[ops];
+		for (int i = 0; i < ops; i++) {
+			idx[i] = rng.nextInt(N);
+		}
+		System.out.printf("%8s %16s %16s %16s%n", "threads", "ConcurrentBinary", "synchronized", "AtomicLongArray");
+		for (int round = 0; round < 2; round++) {
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				int perThread = ops / threads;
+
+				ConcurrentBinary c = new ConcurrentBinary(N);
+				double tConcurrent = run(threads, id -> {
+					for (int i = id * perThread, end = i + perThread; i < end; i++) {
+						c.setBit(idx[i]);
+					}
+				});
+
+				Binary s = new Binary(new int[N]);
+				double tSynchronized = run(threads, id -> {
+					for (int i = id * perThread, end = i + perThread; i < end; i++) {
+						synchronized (s) {
+							s.setBit(idx[i], 1);
+						}
+					}
+				});
+
+				AtomicBits a = new AtomicBits();
+				double tAtomic = run(threads, id -> {
+					for (int i = id * perThread, end = i + perThread; i < end; i++) {
+						a.setBit(idx[i]);
+					}
+				});
+
+				if (round == 1) {
+					System.out.printf("%8d %12.1f Mops %12.1f Mops %12.1f Mops%n", threads, ops / tConcurrent / 1e6,
+							ops / tSynchronized / 1e6, ops / tAtomic / 1e6);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,391 @@
+package lectures.arrays;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An immutable binary number stored as the Elias-Fano encoding of the
+ * indexes of its 1 bits, suited to archiving numbers whose bits are mostly
+ * 0.
+ *
+ * <p>
+ * The {@code m} indexes of the 1 bits of an {@code n}-bit number are
+ * encoded in increasing order. Each index is split into its low
+ * {@code l = floor(log2(n / m))} bits, which are stored packed one after
+ * another, and its remaining high bits, which are stored in unary: the
+ * {@code i}-th index sets bit {@code (index >>> l) + i} of the upper bits.
+ * The encoding uses at most {@code 2 + log2(n / m)} bits per 1 bit, within
+ * half a bit of the minimum for any encoding of {@code m} indexes out of
+ * {@code n}, whatever their distribution.
+ *
+ * <p>
+ * The indexes can be decoded one after another with {@link #iterator()},
+ * which reads the upper bits a word at a time, or individually with
+ * {@link #get(int)}, which finds the {@code i}-th 1 of the upper bits with a
+ * {@link RankSelectIndex} without decoding the indexes before it. The
+ * encoding can be written to and read from a {@code ByteBuffer}.
+ *
+ * <p>
+ * As in {@code Binary}, index 0 is the index of the left-most bit.
+ *
+ */
+public final class EliasFanoBinary {
+
+	/**
+	 * The number of bits of the binary number.
+	 */
+	private final int numberOfBits;
+
+	/**
+	 * The number of 1 bits of the binary number.
+	 */
+	private final int count;
+
+	/**
+	 * The number of low bits of each index stored in {@code lower}.
+	 */
+	private final int lowBits;
+
+	/**
+	 * The low bits of the indexes, {@code lowBits} bits per index, packed
+	 * from the right-most bit of the first word.
+	 */
+	private final long[] lower;
+
+	/**
+	 * The high bits of the indexes in unary, packed from the right-most bit
+	 * of the first word.
+	 */
+	private final long[] upper;
+
+	/**
+	 * The directory used to find the 1 bits of {@code upper}.
+	 */
+	private final RankSelectIndex index;
+
+	/**
+	 * Initializes this encoding from its parts.
+	 *
+	 * @param numberOfBits the number of bits of the binary number
+	 * @param count the number of 1 bits of the binary number
+	 * @param lower the low bits of the indexes
+	 * @param upper the high bits of the indexes in unary
+	 */
+	private EliasFanoBinary(int numberOfBits, int count, long[] lower, long[] upper) {
+		this.numberOfBits = numberOfBits;
+		this.count = count;
+		this.lowBits = lowBits(numberOfBits, count);
+		this.lower = lower;
+		this.upper = upper;
+		this.index = new RankSelectIndex(upper);
+	}
+
+	/**
+	 * Encodes the indexes of the 1 bits of the specified binary number.
+	 *
+	 * @param b
+	 *            the binary number to encode
+	 * @throws IllegalArgumentException
+	 *             if the encoding would need more than
+	 *             {@code Integer.MAX_VALUE} upper bits, which can only happen
+	 *             for numbers having more than about a billion 1 bits
+	 */
+	public EliasFanoBinary(Binary b) {
+		this.numberOfBits = b.numberOfBits();
+		this.count = b.bitCount();
+		this.lowBits = lowBits(this.numberOfBits, this.count);
+		this.lower = new long[lowerWords(this.count, this.lowBits)];
+		this.upper = new long[upperWords(this.numberOfBits, this.count, this.lowBits)];
+		long mask = (1L << this.lowBits) - 1;
+		int i = 0;
+		for (int x = b.nextSetBit(0); x >= 0; x = b.nextSetBit(x + 1)) {
+			if (this.lowBits > 0) {
+				long at = (long) i * this.lowBits;
+				long low = x & mask;
+				this.lower[(int) (at >>> 6)] |= low << at;
+				if ((at & 63) + this.lowBits > 64) {
+					this.lower[(int) (at >>> 6) + 1] |= low >>> (64 - (at & 63));
+				}
+			}
+			int p = (x >>> this.lowBits) + i;
+			this.upper[p >>> 6] |= 1L << p;
+			i++;
+		}
+		this.index = new RankSelectIndex(this.upper);
+	}
+
+	/**
+	 * Returns the number of low bits stored for each of {@code m} indexes
+	 * less than {@code n}.
+	 *
+	 * @param n the number of bits of the binary number
+	 * @param m the number of 1 bits of the binary number
+	 * @return {@code floor(log2(n / m))}, or 0 if m is 0 or greater than n
+	 */
+	private static int lowBits(int n, int m) {
+		if (m == 0 || m >= n) {
+			return 0;
+		}
+		return 31 - Integer.numberOfLeadingZeros(n / m);
+	}
+
+	/**
+	 * Returns the number of words holding {@code m} values of {@code l}
+	 * bits.
+	 *
+	 * @param m the number of values
+	 * @param l the number of bits of each value
+	 * @return the number of words
+	 */
+	private static int lowerWords(int m, int l) {
+		return (int) (((long) m * l + 63) >>> 6);
+	}
+
+	/**
+	 * Returns the number of words of the upper bits for {@code m} indexes
+	 * less than {@code n} having {@code l} low bits.
+	 *
+	 * @param n the number of bits of the binary number
+	 * @param m the number of 1 bits of the binary number
+	 * @param l the number of low bits of each index
+	 * @return the number of words
+	 * @throws IllegalArgumentException
+	 *             if there would be more than {@code Integer.MAX_VALUE} upper
+	 *             bits
+	 */
+	private static int upperWords(int n, int m, int l) {
+		long bits = (long) m + ((n - 1) >>> l) + 1;
+		if (bits > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many 1 bits to encode");
+		}
+		return (int) ((bits + 63) >>> 6);
+	}
+
+	/**
+	 * Returns the low bits of the {@code i}-th index.
+	 *
+	 * @param i the rank of the index
+	 * @return the low bits of the index
+	 */
+	private int low(int i) {
+		if (this.lowBits == 0) {
+			return 0;
+		}
+		long at = (long) i * this.lowBits;
+		int w = (int) (at >>> 6);
+		int shift = (int) (at & 63);
+		long value = this.lower[w] >>> shift;
+		if (shift + this.lowBits > 64) {
+			value |= this.lower[w + 1] << (64 - shift);
+		}
+		return (int) (value & ((1L << this.lowBits) - 1));
+	}
+
+	/**
+	 * Returns the number of bits of the encoded binary number.
+	 *
+	 * @return the number of bits of the binary number
+	 */
+	public int numberOfBits() {
+		return this.numberOfBits;
+	}
+
+	/**
+	 * Returns the number of 1 bits of the encoded binary number, which is the
+	 * number of encoded indexes.
+	 *
+	 * @return the number of 1 bits of the binary number
+	 */
+	public int bitCount() {
+		return this.count;
+	}
+
+	/**
+	 * Returns the index of the {@code i}-th 1 bit of the encoded binary
+	 * number, counting from the left-most bit and starting at 0. The upper
+	 * bits are searched with the select directory, which binary searches its
+	 * block counts and then scans at most 8 words.
+	 *
+	 * @param i
+	 *            the rank of the 1 bit
+	 * @return the index of the 1 bit
+	 * @throws IllegalArgumentException
+	 *             if i is negative or not less than {@code bitCount()}
+	 */
+	public int get(int i) {
+		if (i < 0 || i >= this.count) {
+			throw new IllegalArgumentException();
+		}
+		int high = this.index.select(this.upper, i) - i;
+		return (high << this.lowBits) | this.low(i);
+	}
+
+	/**
+	 * Returns an iterator over the indexes of the 1 bits of the encoded
+	 * binary number in increasing order. The iterator decodes the indexes as
+	 * it goes and does not allocate.
+	 *
+	 * @return an iterator over the indexes of the 1 bits
+	 */
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+			private int i;
+			private int w = -1;
+			private long word;
+
+			@Override
+			public boolean hasNext() {
+				return this.i < EliasFanoBinary.this.count;
+			}
+
+			@Override
+			public int nextInt() {
+				if (this.i >= EliasFanoBinary.this.count) {
+					throw new NoSuchElementException();
+				}
+				while (this.word == 0) {
+					this.word = EliasFanoBinary.this.upper[++this.w];
+				}
+				int p = (this.w << 6) + Long.numberOfTrailingZeros(this.word);
+				this.word &= this.word - 1;
+				int high = p - this.i;
+				int x = (high << EliasFanoBinary.this.lowBits) | EliasFanoBinary.this.low(this.i);
+				this.i++;
+				return x;
+			}
+		};
+	}
+
+	/**
+	 * Returns the binary number that was encoded.
+	 *
+	 * @return the decoded binary number
+	 */
+	public Binary toBinary() {
+		long[] w = new long[((this.numberOfBits - 1) >>> 6) + 1];
+		PrimitiveIterator.OfInt it = this.iterator();
+		while (it.hasNext()) {
+			int p = this.numberOfBits - 1 - it.nextInt();
+			w[p >>> 6] |= 1L << p;
+		}
+		return Binary.wrap(w, this.numberOfBits);
+	}
+
+	/**
+	 * Returns the number of bytes written by {@link #writeTo(ByteBuffer)}.
+	 *
+	 * @return the serialized size of this encoding in bytes
+	 */
+	public int serializedSize() {
+		return 2 * Integer.BYTES + Long.BYTES * (this.lower.length + this.upper.length);
+	}
+
+	/**
+	 * Writes this encoding to a buffer: the number of bits and the number of
+	 * 1 bits as little-endian {@code int}s, followed by the words of the low
+	 * bits and of the upper bits as little-endian {@code long}s. The order of
+	 * the buffer does not matter. The position of the buffer is advanced
+	 * past the written bytes.
+	 *
+	 * @param buffer
+	 *            the buffer to write to
+	 * @throws BufferOverflowException
+	 *             if the buffer has fewer than {@code serializedSize()} bytes
+	 *             remaining; nothing is written in that case
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		if (buffer.remaining() < this.serializedSize()) {
+			throw new BufferOverflowException();
+		}
+		boolean swap = buffer.order() != ByteOrder.LITTLE_ENDIAN;
+		buffer.putInt(swap ? Integer.reverseBytes(this.numberOfBits) : this.numberOfBits);
+		buffer.putInt(swap ? Integer.reverseBytes(this.count) : this.count);
+		for (long w : this.lower) {
+			buffer.putLong(swap ? Long.reverseBytes(w) : w);
+		}
+		for (long w : this.upper) {
+			buffer.putLong(swap ? Long.reverseBytes(w) : w);
+		}
+	}
+
+	/**
+	 * Reads an encoding written by {@link #writeTo(ByteBuffer)} from a
+	 * buffer. The position of the buffer is advanced past the read bytes.
+	 *
+	 * @param buffer
+	 *            the buffer to read from
+	 * @return the encoding read from the buffer
+	 * @throws BufferUnderflowException
+	 *             if the buffer does not hold a complete encoding; the
+	 *             position of the buffer is not changed in that case
+	 * @throws IllegalArgumentException
+	 *             if the bytes read are not a valid encoding
+	 */
+	public static EliasFanoBinary readFrom(ByteBuffer buffer) {
+		if (buffer.remaining() < 2 * Integer.BYTES) {
+			throw new BufferUnderflowException();
+		}
+		boolean swap = buffer.order() != ByteOrder.LITTLE_ENDIAN;
+		int start = buffer.position();
+		int n = buffer.getInt(start);
+		int m = buffer.getInt(start + Integer.BYTES);
+		if (swap) {
+			n = Integer.reverseBytes(n);
+			m = Integer.reverseBytes(m);
+		}
+		if (n < 1 || m < 0 || m > n) {
+			throw new IllegalArgumentException("invalid encoding");
+		}
+		int l = lowBits(n, m);
+		int lowerWords = lowerWords(m, l);
+		int upperWords = upperWords(n, m, l);
+		if ((buffer.remaining() - 2 * Integer.BYTES) / Long.BYTES < lowerWords + (long) upperWords) {
+			throw new BufferUnderflowException();
+		}
+		long[] lower = new long[lowerWords];
+		long[] upper = new long[upperWords];
+		buffer.position(start + 2 * Integer.BYTES);
+		for (int i = 0; i < lower.length; i++) {
+			long w = buffer.getLong();
+			lower[i] = swap ? Long.reverseBytes(w) : w;
+		}
+		for (int i = 0; i < upper.length; i++) {
+			long w = buffer.getLong();
+			upper[i] = swap ? Long.reverseBytes(w) : w;
+		}
+		EliasFanoBinary result = new EliasFanoBinary(n, m, lower, upper);
+		if (!result.isValid()) {
+			buffer.position(start);
+			throw new IllegalArgumentException("invalid encoding");
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if the upper bits hold as many 1 bits as the stored count
+	 * and the decoded indexes strictly increase and are less than the number
+	 * of bits, as written by the constructor. The iterator and
+	 * {@link #toBinary()} rely on the indexes increasing, and
+	 * {@link #bitCount()} on them being distinct.
+	 *
+	 * @return true if this encoding is valid
+	 */
+	private boolean isValid() {
+		if (this.index.total() != this.count) {
+			return false;
+		}
+		int previous = -1;
+		for (PrimitiveIterator.OfInt it = this.iterator(); it.hasNext();) {
+			int x = it.nextInt();
+			if (x <= previous) {
+				return false;
+			}
+			previous = x;
+		}
+		return previous < this.numberOfBits;
+	}
+}
@@ -0,0 +1,711 @@
+package lectures.arrays;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An unsigned binary number whose bits are stored off the heap in a
+ * memory-mapped file.
+ *
+ * <p>
+ * A {@link Binary} stores its bits in a {@code long} array on the heap, which
+ * limits it to fewer than 2<sup>31</sup> bits. A {@code MappedBinary} stores
+ * the same packed words in a file that is mapped into memory, so it can hold
+ * many billions of bits without using heap space, and the bits are still
+ * there when the file is opened again after a restart. Indexes are
+ * {@code long} values; as in {@code Binary}, index 0 is the index of the
+ * left-most bit.
+ *
+ * <p>
+ * A mapped buffer cannot be larger than 2 GiB, so the file is mapped as a
+ * sequence of 1 GiB chunks. The file starts with a 64-byte header holding a
+ * magic number and the number of bits, followed by the words in
+ * little-endian order, the least significant word first. Changes are written
+ * to the file by the operating system; {@link #force()} waits until they
+ * have been written.
+ *
+ * <p>
+ * A {@code MappedBinary} is not safe for use by multiple threads.
+ *
+ */
+public class MappedBinary implements Closeable {
+
+	/**
+	 * The number of bits in one word.
+	 */
+	private static final int WORD_SIZE = 64;
+
+	/**
+	 * The value of the first 8 bytes of every file.
+	 */
+	private static final long MAGIC = 0x4c42494e41525931L;
+
+	/**
+	 * The number of bytes before the first word of the file.
+	 */
+	private static final int HEADER_BYTES = 64;
+
+	/**
+	 * The base 2 logarithm of the number of words in one mapped chunk.
+	 */
+	private static final int CHUNK_SHIFT = 27;
+
+	/**
+	 * The mask of the index of a word within its chunk.
+	 */
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+	/**
+	 * The number of words processed at a time by the bulk operations.
+	 */
+	private static final int BLOCK_WORDS = 8192;
+
+	/**
+	 * The file that stores the bits.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The mapped chunks of the file.
+	 */
+	private MappedByteBuffer[] chunks;
+
+	/**
+	 * The mapped chunks of the file viewed as words. Counting positions from
+	 * the right-most bit (position 0), the bit at position {@code p} is stored
+	 * in bit {@code p % 64} of word {@code p / 64}. The bits of the last word
+	 * that are not part of the number are always 0.
+	 */
+	private LongBuffer[] words;
+
+	/**
+	 * The number of words of this binary number.
+	 */
+	private final long wordCount;
+
+	/**
+	 * The number of bits of this binary number.
+	 */
+	private final long numberOfBits;
+
+	/**
+	 * Maps the words of the specified file.
+	 *
+	 * @param channel the open file
+	 * @param numberOfBits the number of bits stored in the file
+	 * @throws IOException if the file cannot be mapped
+	 */
+	private MappedBinary(FileChannel channel, long numberOfBits) throws IOException {
+		this.channel = channel;
+		this.numberOfBits = numberOfBits;
+		this.wordCount = ((numberOfBits - 1) >>> 6) + 1;
+		int n = (int) (((this.wordCount - 1) >>> CHUNK_SHIFT) + 1);
+		this.chunks = new MappedByteBuffer[n];
+		this.words = new LongBuffer[n];
+		for (int c = 0; c < n; c++) {
+			long first = (long) c << CHUNK_SHIFT;
+			long size = Math.min(1L << CHUNK_SHIFT, this.wordCount - first) * Long.BYTES;
+			MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + first * Long.BYTES,
+					size);
+			this.chunks[c] = b;
+			this.words[c] = b.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+		}
+	}
+
+	/**
+	 * Creates a file holding a binary number having the specified number of
+	 * bits, all equal to 0, and maps it into memory. An existing file is
+	 * replaced.
+	 *
+	 * <p>
+	 * On most file systems the file is created sparse, so disk space is only
+	 * used for the parts of the number that are written.
+	 *
+	 * @param file
+	 *            the file to create
+	 * @param numberOfBits
+	 *            the number of bits of the binary number
+	 * @return the new binary number
+	 * @throws IllegalArgumentException
+	 *             if numberOfBits is less than 1
+	 * @throws IOException
+	 *             if the file cannot be created or mapped
+	 */
+	public static MappedBinary create(Path file, long numberOfBits) throws IOException {
+		if (numberOfBits < 1) {
+			throw new IllegalArgumentException();
+		}
+		FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			header.putLong(0, MAGIC).putLong(8, numberOfBits);
+			ch.write(header, 0);
+			return new MappedBinary(ch, numberOfBits);
+		} catch (IOException | RuntimeException x) {
+			ch.close();
+			throw x;
+		}
+	}
+
+	/**
+	 * Opens a file created by {@link #create(Path, long)} and maps it into
+	 * memory. The binary number has the bits that were stored in the file.
+	 *
+	 * @param file
+	 *            the file to open
+	 * @return the binary number stored in the file
+	 * @throws IOException
+	 *             if the file cannot be opened or mapped, or if it does not
+	 *             hold a binary number
+	 */
+	public static MappedBinary open(Path file) throws IOException {
+		FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (ch.read(header, header.position()) < 0) {
+					throw new IOException(file + " does not hold a binary number");
+				}
+			}
+			long n = header.getLong(8);
+			if (header.getLong(0) != MAGIC || n < 1
+					|| ch.size() < HEADER_BYTES + (((n - 1) >>> 6) + 1) * Long.BYTES) {
+				throw new IOException(file + " does not hold a binary number");
+			}
+			return new MappedBinary(ch, n);
+		} catch (IOException | RuntimeException x) {
+			ch.close();
+			throw x;
+		}
+	}
+
+	/**
+	 * Checks if the specified value is a binary digit (0 or 1).
+	 *
+	 * @param value the value to check
+	 * @throws IllegalArgumentException
+	 *            if value is not a 0 or 1
+	 */
+	private static void checkValue(int value) {
+		if (value != 0 && value != 1) {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * Checks if the specified index is a valid index for this binary number.
+	 *
+	 * @param index the index to check
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 */
+	private void checkIndex(long index) {
+		if (index < 0 || index >= this.numberOfBits) {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * Checks if the specified shift distance is non-negative.
+	 *
+	 * @param k the distance to check
+	 * @throws IllegalArgumentException
+	 *            if k is negative
+	 */
+	private static void checkDistance(long k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("distance must be non-negative");
+		}
+	}
+
+	/**
+	 * Checks if the specified binary number has the same number of bits as
+	 * this binary number.
+	 *
+	 * @param other the binary number to check
+	 * @throws IllegalArgumentException
+	 *            if other does not have the same number of bits as this
+	 *            binary number
+	 */
+	private void checkSameLength(MappedBinary other) {
+		if (this.numberOfBits != other.numberOfBits) {
+			throw new IllegalArgumentException("binary numbers must have the same number of bits");
+		}
+	}
+
+	/**
+	 * Returns the position, counted from the right-most bit, of the bit
+	 * having the specified index.
+	 *
+	 * @param index an index of this binary number
+	 * @return the position of the bit counted from the right-most bit
+	 */
+	private long position(long index) {
+		return this.numberOfBits - 1 - index;
+	}
+
+	/**
+	 * Returns the mask of the bits of the last word that are part of this
+	 * binary number.
+	 *
+	 * @return the mask of the used bits of the last word
+	 */
+	private long lastWordMask() {
+		return -1L >>> (-this.numberOfBits & (WORD_SIZE - 1));
+	}
+
+	/**
+	 * Returns the word having the specified index.
+	 *
+	 * @param i the index of the word
+	 * @return the word
+	 */
+	private long word(long i) {
+		return this.words[(int) (i >>> CHUNK_SHIFT)].get((int) (i & CHUNK_MASK));
+	}
+
+	/**
+	 * Sets the word having the specified index.
+	 *
+	 * @param i the index of the word
+	 * @param value the new value of the word
+	 */
+	private void setWord(long i, long value) {
+		this.words[(int) (i >>> CHUNK_SHIFT)].put((int) (i & CHUNK_MASK), value);
+	}
+
+	/**
+	 * Returns the number of bits in this binary number.
+	 *
+	 * @return the number of bits in this binary number
+	 */
+	public long numberOfBits() {
+		return this.numberOfBits;
+	}
+
+	/**
+	 * Returns the left-most bit of this binary number.
+	 *
+	 * @return the left-most bit of this binary number
+	 */
+	public int getLeftMostBit() {
+		long p = this.numberOfBits - 1;
+		return (int) (this.word(p >>> 6) >>> p) & 1;
+	}
+
+	/**
+	 * Returns the right-most bit of this binary number.
+	 *
+	 * @return the right-most bit of this binary number
+	 */
+	public int getRightMostBit() {
+		return (int) this.word(0) & 1;
+	}
+
+	/**
+	 * Returns the bit at the specified index.
+	 *
+	 * <p>
+	 * Index 0 is the index of the left-most bit.
+	 *
+	 * @param index
+	 *            the index of the bit to get
+	 * @return the bit at the specified index
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 */
+	public int getBit(long index) {
+		this.checkIndex(index);
+		long p = this.position(index);
+		return (int) (this.word(p >>> 6) >>> p) & 1;
+	}
+
+	/**
+	 * Sets a bit at the given index.
+	 *
+	 * <p>
+	 * Index 0 is the index of the left-most bit.
+	 *
+	 * @param index
+	 *            the index of the bit to set
+	 * @param value
+	 *            the value of the bit to set
+	 * @throws IllegalArgumentException
+	 *            if index is out of bounds for this binary number
+	 * @throws IllegalArgumentException
+	 *            if value is not a 0 or 1
+	 */
+	public void setBit(long index, int value) {
+		this.checkIndex(index);
+		checkValue(value);
+		long p = this.position(index);
+		long i = p >>> 6;
+		long mask = 1L << p;
+		if (value == 1) {
+			this.setWord(i, this.word(i) | mask);
+		} else {
+			this.setWord(i, this.word(i) & ~mask);
+		}
+	}
+
+	/**
+	 * Sets every word of this binary number to 0.
+	 */
+	private void clear() {
+		for (LongBuffer b : this.words) {
+			for (int i = 0; i < b.limit(); i++) {
+				b.put(i, 0L);
+			}
+		}
+	}
+
+	/**
+	 * Shifts all of the bits of this binary number one position to the left.
+	 * The original left-most bit is discarded and the right-most bit is set to
+	 * 0.
+	 */
+	public void shiftLeft() {
+		this.shiftLeft(1);
+	}
+
+	/**
+	 * Shifts all of the bits of this binary number {@code k} positions to the
+	 * left. The original {@code k} left-most bits are discarded and the
+	 * {@code k} right-most bits are set to 0. If {@code k} is greater than or
+	 * equal to the number of bits then every bit is set to 0.
+	 *
+	 * @param k
+	 *            the shift distance
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 * @see Binary#shiftLeft(int)
+	 */
+	public void shiftLeft(long k) {
+		checkDistance(k);
+		if (k >= this.numberOfBits) {
+			this.clear();
+			return;
+		}
+		long words = k >>> 6;
+		int bits = (int) k & (WORD_SIZE - 1);
+		for (long i = this.wordCount - 1; i >= 0; i--) {
+			long src = i - words;
+			long v = 0;
+			if (src >= 0) {
+				v = this.word(src) << bits;
+				if (bits != 0 && src > 0) {
+					v |= this.word(src - 1) >>> (WORD_SIZE - bits);
+				}
+			}
+			this.setWord(i, v);
+		}
+		long last = this.wordCount - 1;
+		this.setWord(last, this.word(last) & this.lastWordMask());
+	}
+
+	/**
+	 * Shifts all of the bits of this binary number {@code k} positions to the
+	 * right. The original {@code k} right-most bits are discarded and the
+	 * {@code k} left-most bits are set to 0. If {@code k} is greater than or
+	 * equal to the number of bits then every bit is set to 0.
+	 *
+	 * @param k
+	 *            the shift distance
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 * @see Binary#shiftRight(int)
+	 */
+	public void shiftRight(long k) {
+		checkDistance(k);
+		if (k >= this.numberOfBits) {
+			this.clear();
+			return;
+		}
+		long words = k >>> 6;
+		int bits = (int) k & (WORD_SIZE - 1);
+		for (long i = 0; i < this.wordCount; i++) {
+			long src = i + words;
+			long v = 0;
+			if (src < this.wordCount) {
+				v = this.word(src) >>> bits;
+				if (bits != 0 && src + 1 < this.wordCount) {
+					v |= this.word(src + 1) << (WORD_SIZE - bits);
+				}
+			}
+			this.setWord(i, v);
+		}
+	}
+
+	/**
+	 * The bulk operations that combine two binary numbers.
+	 */
+	private enum Op {
+		AND, OR, XOR, AND_NOT
+	}
+
+	/**
+	 * Combines every word of this binary number with the corresponding word
+	 * of {@code other}. The words are copied into heap arrays one block at a
+	 * time so that the loops in {@link WordKernels} can be used.
+	 *
+	 * @param other the binary number to combine with this binary number
+	 * @param op the operation
+	 */
+	private void combine(MappedBinary other, Op op) {
+		this.checkSameLength(other);
+		long[] a = new long[BLOCK_WORDS];
+		long[] b = new long[BLOCK_WORDS];
+		for (int c = 0; c < this.words.length; c++) {
+			LongBuffer x = this.words[c];
+			LongBuffer y = other.words[c];
+			for (int i = 0; i < x.limit(); i += BLOCK_WORDS) {
+				int len = Math.min(BLOCK_WORDS, x.limit() - i);
+				x.get(i, a, 0, len);
+				y.get(i, b, 0, len);
+				switch (op) {
+				case AND:
+					WordKernels.and(a, b, 0, len);
+					break;
+				case OR:
+					WordKernels.or(a, b, 0, len);
+					break;
+				case XOR:
+					WordKernels.xor(a, b, 0, len);
+					break;
+				default:
+					WordKernels.andNot(a, b, 0, len);
+				}
+				x.put(i, a, 0, len);
+			}
+		}
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise AND of the bit and
+	 * the corresponding bit of {@code other}.
+	 *
+	 * @param other
+	 *            the binary number to AND with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void and(MappedBinary other) {
+		this.combine(other, Op.AND);
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise OR of the bit and
+	 * the corresponding bit of {@code other}.
+	 *
+	 * @param other
+	 *            the binary number to OR with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void or(MappedBinary other) {
+		this.combine(other, Op.OR);
+	}
+
+	/**
+	 * Sets each bit of this binary number to the bitwise XOR (exclusive or) of
+	 * the bit and the corresponding bit of {@code other}.
+	 *
+	 * @param other
+	 *            the binary number to XOR with this binary number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void xor(MappedBinary other) {
+		this.combine(other, Op.XOR);
+	}
+
+	/**
+	 * Sets to 0 each bit of this binary number whose corresponding bit in
+	 * {@code other} is 1.
+	 *
+	 * @param other
+	 *            the binary number whose 1 bits are cleared from this binary
+	 *            number
+	 * @throws IllegalArgumentException
+	 *             if other does not have the same number of bits as this
+	 *             binary number
+	 */
+	public void andNot(MappedBinary other) {
+		this.combine(other, Op.AND_NOT);
+	}
+
+	/**
+	 * Inverts every bit of this binary number.
+	 */
+	public void not() {
+		long[] a = new long[BLOCK_WORDS];
+		for (LongBuffer x : this.words) {
+			for (int i = 0; i < x.limit(); i += BLOCK_WORDS) {
+				int len = Math.min(BLOCK_WORDS, x.limit() - i);
+				x.get(i, a, 0, len);
+				WordKernels.not(a, 0, len);
+				x.put(i, a, 0, len);
+			}
+		}
+		long last = this.wordCount - 1;
+		this.setWord(last, this.word(last) & this.lastWordMask());
+	}
+
+	/**
+	 * Returns the number of bits of this binary number that are equal to 1.
+	 *
+	 * @return the number of 1 bits in this binary number
+	 */
+	public long bitCount() {
+		long[] a = new long[BLOCK_WORDS];
+		long count = 0;
+		for (LongBuffer x : this.words) {
+			for (int i = 0; i < x.limit(); i += BLOCK_WORDS) {
+				int len = Math.min(BLOCK_WORDS, x.limit() - i);
+				x.get(i, a, 0, len);
+				count += WordKernels.bitCount(a, 0, len);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the index of the first bit equal to {@code value} at or to the
+	 * right of position {@code p}, or -1 if there is no such bit. Positions are
+	 * counted from the right-most bit.
+	 *
+	 * @param p a position of this binary number
+	 * @param value 1 to find a set bit, 0 to find a clear bit
+	 * @return the index of the bit found, or -1 if there is no such bit
+	 */
+	private long nextIndex(long p, int value) {
+		long flip = value == 1 ? 0L : -1L;
+		long i = p >>> 6;
+		// keep only the positions at or below p
+		long word = (this.word(i) ^ flip) & (-1L >>> (WORD_SIZE - 1 - (p & (WORD_SIZE - 1))));
+		while (word == 0) {
+			if (--i < 0) {
+				return -1;
+			}
+			word = this.word(i) ^ flip;
+		}
+		long found = i * WORD_SIZE + WORD_SIZE - 1 - Long.numberOfLeadingZeros(word);
+		return this.position(found);
+	}
+
+	/**
+	 * Returns the index of the first bit that is equal to 1 at or after the
+	 * specified index, or -1 if there is no such bit. Indexes increase from
+	 * the left-most bit (index 0) to the right-most bit.
+	 *
+	 * @param fromIndex
+	 *            the index to start searching from
+	 * @return the index of the next 1 bit, or -1 if there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if fromIndex is negative
+	 */
+	public long nextSetBit(long fromIndex) {
+		if (fromIndex < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (fromIndex >= this.numberOfBits) {
+			return -1;
+		}
+		return this.nextIndex(this.position(fromIndex), 1);
+	}
+
+	/**
+	 * Returns the index of the first bit that is equal to 0 at or after the
+	 * specified index, or -1 if there is no such bit. Indexes increase from
+	 * the left-most bit (index 0) to the right-most bit.
+	 *
+	 * @param fromIndex
+	 *            the index to start searching from
+	 * @return the index of the next 0 bit, or -1 if there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if fromIndex is negative
+	 */
+	public long nextClearBit(long fromIndex) {
+		if (fromIndex < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (fromIndex >= this.numberOfBits) {
+			return -1;
+		}
+		return this.nextIndex(this.position(fromIndex), 0);
+	}
+
+	/**
+	 * Returns the index of the last bit that is equal to 1 at or before the
+	 * specified index, or -1 if there is no such bit. Indexes increase from
+	 * the left-most bit (index 0) to the right-most bit.
+	 *
+	 * @param fromIndex
+	 *            the index to start searching backwards from; indexes greater
+	 *            than the last index of this binary number start the search
+	 *            at the right-most bit
+	 * @return the index of the previous 1 bit, or -1 if there is no such bit
+	 * @throws IllegalArgumentException
+	 *             if fromIndex is less than -1
+	 */
+	public long previousSetBit(long fromIndex) {
+		if (fromIndex < -1) {
+			throw new IllegalArgumentException();
+		}
+		if (fromIndex == -1) {
+			return -1;
+		}
+		long p = this.position(Math.min(fromIndex, this.numberOfBits - 1));
+		long i = p >>> 6;
+		// keep only the positions at or above p
+		long word = this.word(i) & (-1L << p);
+		while (word == 0) {
+			if (++i == this.wordCount) {
+				return -1;
+			}
+			word = this.word(i);
+		}
+		return this.position(i * WORD_SIZE + Long.numberOfTrailingZeros(word));
+	}
+
+	/**
+	 * Waits until every change to this binary number has been written to the
+	 * file.
+	 */
+	public void force() {
+		for (MappedByteBuffer b : this.chunks) {
+			b.force();
+		}
+	}
+
+	/**
+	 * Writes every change to the file and closes it. The memory used by the
+	 * mapping is released when this object is garbage collected; this binary
+	 * number must not be used after it is closed.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.channel == null) {
+			return;
+		}
+		this.force();
+		this.channel.close();
+		this.channel = null;
+		this.chunks = null;
+		this.words = null;
+	}
+}
@@ -0,0 +1,162 @@
+package lectures.arrays;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Compares random and sequential bit access of {@link MappedBinary} with the
+ * heap-based {@link Binary} for 1, 8, and 32 gigabit numbers, and checks that
+ * the bits of a {@code MappedBinary} survive closing and reopening its file.
+ *
+ * <p>
+ * The sizes in gigabits can be given as command line arguments. The files
+ * are created in the default temporary directory and deleted afterwards; the
+ * 32 gigabit number needs a 4 GiB file. A {@code Binary} cannot hold more
+ * than 2^31 - 1 bits, so only the 1 gigabit size is measured for both
+ * classes (it needs a heap of at least 256 MB).
+ *
+ */
+public class MappedBinaryBenchmark {
+
+	/**
+	 * The number of random accesses that are timed.
+	 */
+	private static final int RANDOM_OPS = 1 << 22;
+
+	/**
+	 * The number of bits that are read one at a time by the sequential test.
+	 */
+	private static final long SEQUENTIAL_BITS = 1L << 28;
+
+	/**
+	 * Prints the number of operations per second.
+	 */
+	private static void report(String label, String op, long ops, double seconds) {
+		System.out.printf("  %-8s %-16s %10.1f Mops/s%n", label, op, ops / seconds / 1e6);
+	}
+
+	/**
+	 * Returns random indexes less than {@code n}.
+	 */
+	private static long[] randomIndexes(long n, Random rng) {
+		long[] idx = new long[RANDOM_OPS];
+		for (int i = 0; i < idx.length; i++) {
+			idx[i] = Math.floorMod(rng.nextLong(), n);
+		}
+		return idx;
+	}
+
+	/**
+	 * Times the mapped binary number having {@code n} bits.
+	 */
+	private static void runMapped(long n, long[] idx, Stopwatch w) throws IOException {
+		Path file = Files.createTempFile("mapped-binary", ".bin");
+		try {
+			long ones;
+			try (MappedBinary b = MappedBinary.create(file, n)) {
+				w.start();
+				for (long i : idx) {
+					b.setBit(i, 1);
+				}
+				report("mapped", "random set", idx.length, w.stop());
+
+				int sum = 0;
+				w.start();
+				for (long i : idx) {
+					sum += b.getBit(i);
+				}
+				report("mapped", "random get", idx.length, w.stop());
+
+				long m = Math.min(n, SEQUENTIAL_BITS);
+				w.start();
+				for (long i = 0; i < m; i++) {
+					sum += b.getBit(i);
+				}
+				report("mapped", "sequential get", m, w.stop());
+
+				w.start();
+				ones = b.bitCount();
+				report("mapped", "bitCount", n, w.stop());
+				if (sum == 42) {
+					System.out.println();
+				}
+			}
+			try (MappedBinary b = MappedBinary.open(file)) {
+				boolean same = b.numberOfBits() == n && b.bitCount() == ones;
+				for (int i = 0; same && i < 1000; i++) {
+					same = b.getBit(idx[i]) == 1;
+				}
+				System.out.println("  reopened file has the same bits: " + same);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Times the heap binary number having {@code n} bits.
+	 */
+	private static void runHeap(int n, long[] idx, Stopwatch w) {
+		// an n-bit number with every bit 0; new Binary(new int[n]) would need
+		// a temporary array of n ints
+		Binary b = Binary.valueOf(BigInteger.ONE.shiftLeft(n - 1));
+		b.setBit(0, 0);
+		int[] ix = new int[idx.length];
+		for (int i = 0; i < ix.length; i++) {
+			ix[i] = (int) idx[i];
+		}
+
+		w.start();
+		for (int i : ix) {
+			b.setBit(i, 1);
+		}
+		report("heap", "random set", ix.length, w.stop());
+
+		int sum = 0;
+		w.start();
+		for (int i : ix) {
+			sum += b.getBit(i);
+		}
+		report("heap", "random get", ix.length, w.stop());
+
+		int m = (int) Math.min(n, SEQUENTIAL_BITS);
+		w.start();
+		for (int i = 0; i < m; i++) {
+			sum += b.getBit(i);
+		}
+		report("heap", "sequential get", m, w.stop());
+
+		w.start();
+		sum += b.bitCount();
+		report("heap", "bitCount", n, w.stop());
+		if (sum == 42) {
+			System.out.println();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		long[] gigabits = { 1, 8, 32 };
+		if (args.length > 0) {
+			gigabits = new long[args.length];
+			for (int i = 0; i < args.length; i++) {
+				gigabits[i] = Long.parseLong(args[i]);
+			}
+		}
+		Random rng = new Random(2030);
+		Stopwatch w = new Stopwatch();
+		for (long g : gigabits) {
+			long n = g << 30;
+			System.out.println(g + " Gbit");
+			long[] idx = randomIndexes(n, rng);
+			if (n <= Integer.MAX_VALUE) {
+				runHeap((int) n, idx, w);
+			}
+			runMapped(n, idx, w);
+		}
+	}
+}
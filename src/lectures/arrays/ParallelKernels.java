@@ -0,0 +1,216 @@
+package lectures.arrays;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs the loops of {@link WordKernels} over large word arrays in parallel
+ * using a {@link ForkJoinPool}.
+ *
+ * <p>
+ * Every operation splits its range of words in half until the parts have
+ * at most {@code chunk} words, runs the sequential kernel on each part, and
+ * combines the results. A chunk should be small enough to fit in the cache
+ * of one core yet large enough that the cost of a task (about a microsecond)
+ * is small compared to the work on its words. Ranges of at most
+ * {@code chunk} words are processed by the calling thread without creating
+ * any task.
+ *
+ */
+final class ParallelKernels {
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private ParallelKernels() {
+	}
+
+	/**
+	 * A kernel that combines a range of the words of {@code b} into the words
+	 * of {@code a}, such as {@code WordKernels::and}.
+	 */
+	@FunctionalInterface
+	interface RangeOperation {
+		void apply(long[] a, long[] b, int from, int to);
+	}
+
+	/**
+	 * Applies a kernel to a range of words by splitting it into chunks.
+	 */
+	private static final class Apply extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final RangeOperation op;
+		private final long[] a;
+		private final long[] b;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		Apply(RangeOperation op, long[] a, long[] b, int from, int to, int chunk) {
+			this.op = op;
+			this.a = a;
+			this.b = b;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= this.chunk) {
+				this.op.apply(this.a, this.b, this.from, this.to);
+				return;
+			}
+			int mid = (this.from + this.to) >>> 1;
+			invokeAll(new Apply(this.op, this.a, this.b, this.from, mid, this.chunk),
+					new Apply(this.op, this.a, this.b, mid, this.to, this.chunk));
+		}
+	}
+
+	/**
+	 * Counts the 1 bits of a range of words by splitting it into chunks.
+	 */
+	private static final class BitCount extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		private final long[] a;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		BitCount(long[] a, int from, int to, int chunk) {
+			this.a = a;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected Long compute() {
+			if (this.to - this.from <= this.chunk) {
+				return WordKernels.bitCount(this.a, this.from, this.to);
+			}
+			int mid = (this.from + this.to) >>> 1;
+			BitCount low = new BitCount(this.a, this.from, mid, this.chunk);
+			low.fork();
+			long high = new BitCount(this.a, mid, this.to, this.chunk).compute();
+			return high + low.join();
+		}
+	}
+
+	/**
+	 * Finds the greatest index of a non-zero word in a range of words by
+	 * splitting it into chunks. The upper half is searched by the current
+	 * thread while the lower half is forked; if the upper half has a non-zero
+	 * word the lower half is cancelled, or ignored if it has already started.
+	 */
+	private static final class LastNonZero extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+		private final long[] a;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		LastNonZero(long[] a, int from, int to, int chunk) {
+			this.a = a;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected Integer compute() {
+			if (this.to - this.from <= this.chunk) {
+				return WordKernels.lastNonZero(this.a, this.from, this.to);
+			}
+			int mid = (this.from + this.to) >>> 1;
+			LastNonZero low = new LastNonZero(this.a, this.from, mid, this.chunk);
+			low.fork();
+			int high = new LastNonZero(this.a, mid, this.to, this.chunk).compute();
+			if (high >= 0) {
+				low.cancel(false);
+				return high;
+			}
+			return low.join();
+		}
+	}
+
+	/**
+	 * Compares two ranges of words by splitting them into chunks.
+	 */
+	private static final class Equal extends RecursiveTask<Boolean> {
+		private static final long serialVersionUID = 1L;
+		private final long[] a;
+		private final long[] b;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		Equal(long[] a, long[] b, int from, int to, int chunk) {
+			this.a = a;
+			this.b = b;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected Boolean compute() {
+			if (this.to - this.from <= this.chunk) {
+				return WordKernels.equal(this.a, this.b, this.from, this.to);
+			}
+			int mid = (this.from + this.to) >>> 1;
+			Equal low = new Equal(this.a, this.b, this.from, mid, this.chunk);
+			low.fork();
+			if (!new Equal(this.a, this.b, mid, this.to, this.chunk).compute()) {
+				low.cancel(false);
+				return false;
+			}
+			return low.join();
+		}
+	}
+
+	/**
+	 * Applies {@code op} to the words of {@code a} and {@code b} having
+	 * indexes {@code 0} to {@code a.length - 1}.
+	 */
+	static void apply(ForkJoinPool pool, RangeOperation op, long[] a, long[] b, int chunk) {
+		if (a.length <= chunk) {
+			op.apply(a, b, 0, a.length);
+		} else {
+			pool.invoke(new Apply(op, a, b, 0, a.length, chunk));
+		}
+	}
+
+	/**
+	 * Returns the number of 1 bits in the words of {@code a}.
+	 */
+	static long bitCount(ForkJoinPool pool, long[] a, int chunk) {
+		if (a.length <= chunk) {
+			return WordKernels.bitCount(a, 0, a.length);
+		}
+		return pool.invoke(new BitCount(a, 0, a.length, chunk));
+	}
+
+	/**
+	 * Returns the greatest index less than {@code to} of a word of {@code a}
+	 * that is not 0, or -1 if there is no such word.
+	 */
+	static int lastNonZero(ForkJoinPool pool, long[] a, int to, int chunk) {
+		if (to <= chunk) {
+			return WordKernels.lastNonZero(a, 0, to);
+		}
+		return pool.invoke(new LastNonZero(a, 0, to, chunk));
+	}
+
+	/**
+	 * Returns true if {@code a} and {@code b}, which have the same length,
+	 * have the same words.
+	 */
+	static boolean equal(ForkJoinPool pool, long[] a, long[] b, int chunk) {
+		if (a.length <= chunk) {
+			return WordKernels.equal(a, b, 0, a.length);
+		}
+		return pool.invoke(new Equal(a, b, 0, a.length, chunk));
+	}
+}
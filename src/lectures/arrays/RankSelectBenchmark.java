@@ -0,0 +1,140 @@
+package lectures.arrays;
+
+import java.util.Random;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Compares {@link Binary#rank1(int)} and {@link Binary#select1(int)} with
+ * answering the same queries by scanning the bits using
+ * {@link Binary#nextSetBit(int)}, for 2^28-bit numbers having 1% and 50% of
+ * their bits equal to 1. Also measures the time to build the directory and
+ * to keep it up to date while bits are set, alone and alternating with
+ * queries.
+ *
+ */
+public class RankSelectBenchmark {
+
+	/**
+	 * The number of bits of the numbers.
+	 */
+	private static final int N = 1 << 28;
+
+	/**
+	 * Returns a binary number whose bits are 1 with probability
+	 * {@code density}.
+	 */
+	private static Binary random(double density, Random rng) {
+		long[] w = new long[N / 64];
+		for (long k = (long) (N * density); k > 0; k--) {
+			int p = rng.nextInt(N);
+			w[p >>> 6] |= 1L << p;
+		}
+		return Binary.wrap(w, N);
+	}
+
+	/**
+	 * Returns the number of 1 bits to the left of {@code index} by scanning.
+	 */
+	private static int scanRank(Binary b, int index) {
+		int count = 0;
+		for (int i = b.nextSetBit(0); i >= 0 && i < index; i = b.nextSetBit(i + 1)) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the index of the 1 bit having {@code k} 1 bits to its left by
+	 * scanning.
+	 */
+	private static int scanSelect(Binary b, int k) {
+		int i = b.nextSetBit(0);
+		for (; i >= 0 && k > 0; k--) {
+			i = b.nextSetBit(i + 1);
+		}
+		return i;
+	}
+
+	public static void main(String[] args) {
+		Random rng = new Random(2030);
+		Stopwatch w = new Stopwatch();
+		for (double density : new double[] { 0.01, 0.5 }) {
+			Binary b = random(density, rng);
+			int ones = b.bitCount();
+			System.out.printf("density %.0f%%, %d bits%n", density * 100, N);
+
+			w.start();
+			b.rank1(0);
+			System.out.printf("  build directory     %10.1f ms%n", w.stop() * 1e3);
+
+			int scans = 20;
+			long check = 0;
+			boolean same = true;
+			w.start();
+			for (int i = 0; i < scans; i++) {
+				int index = rng.nextInt(N);
+				int r = scanRank(b, index);
+				same &= r == b.rank1(index);
+				check += r;
+			}
+			System.out.printf("  rank1 by scanning   %10.3f us/query%n", w.stop() * 1e6 / scans);
+			w.start();
+			for (int i = 0; i < scans; i++) {
+				int k = rng.nextInt(ones);
+				int s = scanSelect(b, k);
+				same &= s == b.select1(k);
+				check += s;
+			}
+			System.out.printf("  select1 by scanning %10.3f us/query%n", w.stop() * 1e6 / scans);
+
+			int queries = 10_000_000;
+			int[] idx = new int[queries];
+			int[] ks = new int[queries];
+			for (int i = 0; i < queries; i++) {
+				idx[i] = rng.nextInt(N);
+				ks[i] = rng.nextInt(ones);
+			}
+			for (int round = 0; round < 2; round++) {
+				w.start();
+				for (int i : idx) {
+					check += b.rank1(i);
+				}
+				double tRank = w.stop();
+				w.start();
+				for (int k : ks) {
+					check += b.select1(k);
+				}
+				double tSelect = w.stop();
+				if (round == 1) {
+					System.out.printf("  rank1               %10.3f us/query%n", tRank * 1e6 / queries);
+					System.out.printf("  select1             %10.3f us/query%n", tSelect * 1e6 / queries);
+				}
+			}
+
+			int sets = 100_000;
+			w.start();
+			for (int i = 0; i < sets; i++) {
+				b.setBit(idx[i], i & 1);
+			}
+			System.out.printf("  setBit with update  %10.3f us/call%n", w.stop() * 1e6 / sets);
+			// each rank1 after a change adds up the superblock counts again
+			w.start();
+			for (int i = 0; i < sets; i++) {
+				b.setBit(idx[i], 1 - (i & 1));
+				check += b.rank1(idx[sets + i]);
+			}
+			System.out.printf("  setBit, then rank1  %10.3f us/pair%n", w.stop() * 1e6 / sets);
+			// the updated directory must answer as one built from scratch
+			Binary fresh = Binary.wrap(b.words().clone(), N);
+			ones = fresh.bitCount();
+			same &= b.rank1(N) == ones;
+			for (int i = 0; i < 100_000; i++) {
+				int index = rng.nextInt(N);
+				int k = rng.nextInt(ones);
+				same &= b.rank1(index) == fresh.rank1(index) && b.select1(k) == fresh.select1(k);
+			}
+			System.out.println("  same answers: " + same + (check == 42 ? " " : ""));
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package lectures.arrays;
+
+/**
+ * A directory of cumulative bit counts over the words of a {@link Binary}
+ * that answers rank and select queries without scanning the whole number.
+ *
+ * <p>
+ * The words are grouped into blocks of 512 bits and superblocks of 65536
+ * bits. For every superblock the directory stores the number of 1 bits
+ * before it and the number of 1 bits in it as {@code int}s, and for every
+ * block the number of 1 bits between the start of its superblock and the
+ * start of the block as a {@code char}. This uses 16 bits per 512 bits plus
+ * 64 bits per 65536 bits, an overhead of about 3.2%. A rank query reads one
+ * entry of each level and counts the bits of at most 8 words; a select query
+ * binary searches the two levels and then the words of one block.
+ *
+ * <p>
+ * Changing one bit updates the later blocks of its superblock (at most 127)
+ * and the count of its superblock, and only marks the counts before the
+ * later superblocks as stale. The first query after one or more changes
+ * adds up the superblock counts again from the first stale one, one
+ * {@code int} per 65536 bits, so a sequence of changes costs one such pass
+ * however many bits it changes, and every other query takes constant time.
+ *
+ * <p>
+ * Positions are counted from the right-most bit of the number, as in the
+ * word layout of {@code Binary}; {@code Binary} converts them to and from
+ * indexes.
+ *
+ */
+final class RankSelectIndex {
+
+	/**
+	 * The base 2 logarithm of the number of words in a block.
+	 */
+	private static final int BLOCK_SHIFT = 3;
+
+	/**
+	 * The base 2 logarithm of the number of words in a superblock.
+	 */
+	private static final int SUPER_SHIFT = 10;
+
+	/**
+	 * The number of 1 bits before each superblock; the entries from
+	 * {@code stale} on may be out of date.
+	 */
+	private final int[] superCounts;
+
+	/**
+	 * The number of 1 bits in each superblock.
+	 */
+	private final int[] superOwn;
+
+	/**
+	 * The first superblock whose entry of {@code superCounts} may be out of
+	 * date, or the number of superblocks if none is.
+	 */
+	private int stale;
+
+	/**
+	 * The number of 1 bits between the start of the superblock of each block
+	 * and the start of the block.
+	 */
+	private final char[] blockCounts;
+
+	/**
+	 * The number of 1 bits of the number.
+	 */
+	private int total;
+
+	/**
+	 * Builds the directory for the specified words.
+	 *
+	 * @param w the words of a binary number
+	 */
+	RankSelectIndex(long[] w) {
+		int blocks = ((w.length - 1) >>> BLOCK_SHIFT) + 1;
+		int supers = ((w.length - 1) >>> SUPER_SHIFT) + 1;
+		this.superCounts = new int[supers];
+		this.superOwn = new int[supers];
+		this.blockCounts = new char[blocks];
+		int count = 0;
+		int inSuper = 0;
+		for (int b = 0; b < blocks; b++) {
+			if ((b & ((1 << (SUPER_SHIFT - BLOCK_SHIFT)) - 1)) == 0) {
+				this.superCounts[b >>> (SUPER_SHIFT - BLOCK_SHIFT)] = count;
+				inSuper = 0;
+			}
+			this.blockCounts[b] = (char) inSuper;
+			int from = b << BLOCK_SHIFT;
+			int c = (int) WordKernels.bitCount(w, from, Math.min(w.length, from + (1 << BLOCK_SHIFT)));
+			count += c;
+			inSuper += c;
+			this.superOwn[b >>> (SUPER_SHIFT - BLOCK_SHIFT)] += c;
+		}
+		this.stale = supers;
+		this.total = count;
+	}
+
+	/**
+	 * Adds up the counts before the superblocks that are out of date.
+	 */
+	private void refresh() {
+		int[] counts = this.superCounts;
+		for (int i = this.stale; i < counts.length; i++) {
+			counts[i] = counts[i - 1] + this.superOwn[i - 1];
+		}
+		this.stale = counts.length;
+	}
+
+	/**
+	 * Returns the number of 1 bits of the number.
+	 */
+	int total() {
+		return this.total;
+	}
+
+	/**
+	 * Returns the number of 1 bits at positions less than {@code q}.
+	 *
+	 * @param w the words of the binary number
+	 * @param q a position of the number, or the number of bits
+	 */
+	int rank(long[] w, int q) {
+		int i = q >>> 6;
+		if (i == w.length) {
+			return this.total;
+		}
+		if (this.stale < this.superCounts.length) {
+			this.refresh();
+		}
+		int r = this.superCounts[i >>> SUPER_SHIFT] + this.blockCounts[i >>> BLOCK_SHIFT];
+		for (int j = i & -(1 << BLOCK_SHIFT); j < i; j++) {
+			r += Long.bitCount(w[j]);
+		}
+		return r + Long.bitCount(w[i] & ((1L << q) - 1));
+	}
+
+	/**
+	 * Returns the position of the 1 bit having rank {@code k}, that is, the
+	 * position {@code p} of a 1 bit such that {@code rank(w, p) == k}.
+	 *
+	 * @param w the words of the binary number
+	 * @param k a rank less than {@code total()}
+	 */
+	int select(long[] w, int k) {
+		if (this.stale < this.superCounts.length) {
+			this.refresh();
+		}
+		// the last superblock and the last block before which there are at
+		// most k 1 bits
+		int lo = 0;
+		int hi = this.superCounts.length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (this.superCounts[mid] <= k) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		int s = lo;
+		k -= this.superCounts[s];
+		lo = s << (SUPER_SHIFT - BLOCK_SHIFT);
+		hi = Math.min(this.blockCounts.length, (s + 1) << (SUPER_SHIFT - BLOCK_SHIFT)) - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (this.blockCounts[mid] <= k) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		k -= this.blockCounts[lo];
+		int i = lo << BLOCK_SHIFT;
+		int c = Long.bitCount(w[i]);
+		while (c <= k) {
+			k -= c;
+			c = Long.bitCount(w[++i]);
+		}
+		return (i << 6) + selectInWord(w[i], k);
+	}
+
+	/**
+	 * Returns the position within {@code word} of its 1 bit having rank
+	 * {@code k}; {@code word} must have more than {@code k} 1 bits.
+	 */
+	private static int selectInWord(long word, int k) {
+		int p = 0;
+		for (int half = 32; half > 0; half >>>= 1) {
+			int c = Long.bitCount(word & ((1L << half) - 1));
+			if (c <= k) {
+				k -= c;
+				word >>>= half;
+				p += half;
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Updates the directory after the bit at position {@code p} has changed.
+	 * The counts of the later blocks of the same superblock and the count of
+	 * the superblock change by {@code delta}, and the counts before the later
+	 * superblocks are marked as out of date.
+	 *
+	 * @param p the position of the bit that changed
+	 * @param delta 1 if the bit changed to 1, -1 if it changed to 0
+	 */
+	void update(int p, int delta) {
+		int b = p >>> (6 + BLOCK_SHIFT);
+		int s = p >>> (6 + SUPER_SHIFT);
+		int end = Math.min(this.blockCounts.length, (s + 1) << (SUPER_SHIFT - BLOCK_SHIFT));
+		for (int j = b + 1; j < end; j++) {
+			this.blockCounts[j] += delta;
+		}
+		this.superOwn[s] += delta;
+		if (s + 1 < this.stale) {
+			this.stale = s + 1;
+		}
+		this.total += delta;
+	}
+}
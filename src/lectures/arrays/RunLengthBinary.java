@@ -0,0 +1,364 @@
+package lectures.arrays;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An immutable binary number stored as the lengths of its runs of equal
+ * bits, suited to archiving numbers whose 1 bits are clustered.
+ *
+ * <p>
+ * Reading the number from its left-most bit, the lengths of its runs of 0
+ * bits and of 1 bits are stored alternately, starting with a run of 0 bits
+ * (which has length 0 if the left-most bit is 1). Each length is stored as
+ * a variable-length integer of 7 bits per byte, the high bit of each byte
+ * telling whether another byte follows, so runs shorter than 128 bits take
+ * one byte. A number whose 1 bits form a few long runs is stored in a few
+ * bytes however many 1 bits it has; a number whose 1 bits are isolated
+ * uses about two bytes per 1 bit, for which {@link EliasFanoBinary} is
+ * usually smaller.
+ *
+ * <p>
+ * The indexes of the 1 bits can be decoded one after another with
+ * {@link #iterator()}; there is no random access. {@link #toBinary()} sets
+ * each run of 1 bits a word at a time. The encoding can be written to and
+ * read from a {@code ByteBuffer}.
+ *
+ * <p>
+ * As in {@code Binary}, index 0 is the index of the left-most bit.
+ *
+ */
+public final class RunLengthBinary {
+
+	/**
+	 * The number of bits of the binary number.
+	 */
+	private final int numberOfBits;
+
+	/**
+	 * The number of 1 bits of the binary number.
+	 */
+	private final int count;
+
+	/**
+	 * The lengths of the runs as variable-length integers.
+	 */
+	private final byte[] data;
+
+	/**
+	 * Initializes this encoding from its parts.
+	 *
+	 * @param numberOfBits the number of bits of the binary number
+	 * @param count the number of 1 bits of the binary number
+	 * @param data the lengths of the runs
+	 */
+	private RunLengthBinary(int numberOfBits, int count, byte[] data) {
+		this.numberOfBits = numberOfBits;
+		this.count = count;
+		this.data = data;
+	}
+
+	/**
+	 * Encodes the runs of the specified binary number.
+	 *
+	 * @param b
+	 *            the binary number to encode
+	 */
+	public RunLengthBinary(Binary b) {
+		int n = b.numberOfBits();
+		byte[] out = new byte[16];
+		int size = 0;
+		int count = 0;
+		int i = 0;
+		while (i < n) {
+			int one = b.nextSetBit(i);
+			if (one < 0) {
+				one = n;
+			}
+			int zero = one < n ? b.nextClearBit(one) : n;
+			if (zero < 0) {
+				zero = n;
+			}
+			// at most two lengths of at most 5 bytes each
+			if (size + 10 > out.length) {
+				out = Arrays.copyOf(out, Math.max(out.length * 2, size + 10));
+			}
+			size = putLength(out, size, one - i);
+			if (zero > one) {
+				size = putLength(out, size, zero - one);
+			}
+			count += zero - one;
+			i = zero;
+		}
+		this.numberOfBits = n;
+		this.count = count;
+		this.data = Arrays.copyOf(out, size);
+	}
+
+	/**
+	 * Stores a length as a variable-length integer.
+	 *
+	 * @param out the array to store the length in
+	 * @param at the index of the first byte to store
+	 * @param length the non-negative length to store
+	 * @return the index after the last stored byte
+	 */
+	private static int putLength(byte[] out, int at, int length) {
+		while (length >= 0x80) {
+			out[at++] = (byte) (length | 0x80);
+			length >>>= 7;
+		}
+		out[at++] = (byte) length;
+		return at;
+	}
+
+	/**
+	 * Decodes the runs of this encoding one after another.
+	 */
+	private final class Runs {
+
+		/**
+		 * The index of the next byte of {@code data} to read.
+		 */
+		private int at;
+
+		/**
+		 * Reads the next length. A length is at most 5 bytes long, and the
+		 * fifth byte holds at most the 3 high bits of a non-negative
+		 * {@code int}.
+		 *
+		 * @return the length, or -1 if the bytes read are not a valid length
+		 */
+		int next() {
+			int length = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = RunLengthBinary.this.data[this.at++];
+				if (shift == 28 && (b & 0xff) > 0x07) {
+					return -1;
+				}
+				length |= (b & 0x7f) << shift;
+				if (b >= 0) {
+					return length;
+				}
+			}
+		}
+
+		/**
+		 * Returns true if there are more lengths to read.
+		 *
+		 * @return true if there are more lengths
+		 */
+		boolean hasNext() {
+			return this.at < RunLengthBinary.this.data.length;
+		}
+	}
+
+	/**
+	 * Returns the number of bits of the encoded binary number.
+	 *
+	 * @return the number of bits of the binary number
+	 */
+	public int numberOfBits() {
+		return this.numberOfBits;
+	}
+
+	/**
+	 * Returns the number of 1 bits of the encoded binary number.
+	 *
+	 * @return the number of 1 bits of the binary number
+	 */
+	public int bitCount() {
+		return this.count;
+	}
+
+	/**
+	 * Returns an iterator over the indexes of the 1 bits of the encoded
+	 * binary number in increasing order. The iterator decodes the runs as it
+	 * goes and does not allocate.
+	 *
+	 * @return an iterator over the indexes of the 1 bits
+	 */
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+			private final Runs runs = new Runs();
+			private int next;
+			private int left;
+			private int returned;
+
+			@Override
+			public boolean hasNext() {
+				return this.returned < RunLengthBinary.this.count;
+			}
+
+			@Override
+			public int nextInt() {
+				if (this.returned >= RunLengthBinary.this.count) {
+					throw new NoSuchElementException();
+				}
+				if (this.left == 0) {
+					this.next += this.runs.next();
+					this.left = this.runs.next();
+				}
+				this.left--;
+				this.returned++;
+				return this.next++;
+			}
+		};
+	}
+
+	/**
+	 * Sets the bits of {@code w} at positions {@code from} (inclusive) to
+	 * {@code to} (exclusive), counted from the right-most bit.
+	 *
+	 * @param w the words to change
+	 * @param from the first position to set
+	 * @param to the position after the last position to set
+	 */
+	private static void setRange(long[] w, int from, int to) {
+		int i = from >>> 6;
+		int j = (to - 1) >>> 6;
+		long first = -1L << from;
+		long last = -1L >>> -to;
+		if (i == j) {
+			w[i] |= first & last;
+			return;
+		}
+		w[i] |= first;
+		Arrays.fill(w, i + 1, j, -1L);
+		w[j] |= last;
+	}
+
+	/**
+	 * Returns the binary number that was encoded.
+	 *
+	 * @return the decoded binary number
+	 */
+	public Binary toBinary() {
+		int n = this.numberOfBits;
+		long[] w = new long[((n - 1) >>> 6) + 1];
+		Runs runs = new Runs();
+		int i = 0;
+		while (runs.hasNext()) {
+			i += runs.next();
+			if (!runs.hasNext()) {
+				break;
+			}
+			int length = runs.next();
+			setRange(w, n - i - length, n - i);
+			i += length;
+		}
+		return Binary.wrap(w, n);
+	}
+
+	/**
+	 * Returns the number of bytes written by {@link #writeTo(ByteBuffer)}.
+	 *
+	 * @return the serialized size of this encoding in bytes
+	 */
+	public int serializedSize() {
+		return 3 * Integer.BYTES + this.data.length;
+	}
+
+	/**
+	 * Writes this encoding to a buffer: the number of bits, the number of 1
+	 * bits, and the number of bytes of run lengths as little-endian
+	 * {@code int}s, followed by the run lengths. The order of the buffer
+	 * does not matter. The position of the buffer is advanced past the
+	 * written bytes.
+	 *
+	 * @param buffer
+	 *            the buffer to write to
+	 * @throws BufferOverflowException
+	 *             if the buffer has fewer than {@code serializedSize()} bytes
+	 *             remaining; nothing is written in that case
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		if (buffer.remaining() < this.serializedSize()) {
+			throw new BufferOverflowException();
+		}
+		boolean swap = buffer.order() != ByteOrder.LITTLE_ENDIAN;
+		buffer.putInt(swap ? Integer.reverseBytes(this.numberOfBits) : this.numberOfBits);
+		buffer.putInt(swap ? Integer.reverseBytes(this.count) : this.count);
+		buffer.putInt(swap ? Integer.reverseBytes(this.data.length) : this.data.length);
+		buffer.put(this.data);
+	}
+
+	/**
+	 * Reads an encoding written by {@link #writeTo(ByteBuffer)} from a
+	 * buffer. The position of the buffer is advanced past the read bytes.
+	 *
+	 * @param buffer
+	 *            the buffer to read from
+	 * @return the encoding read from the buffer
+	 * @throws BufferUnderflowException
+	 *             if the buffer does not hold a complete encoding; the
+	 *             position of the buffer is not changed in that case
+	 * @throws IllegalArgumentException
+	 *             if the bytes read are not a valid encoding
+	 */
+	public static RunLengthBinary readFrom(ByteBuffer buffer) {
+		if (buffer.remaining() < 3 * Integer.BYTES) {
+			throw new BufferUnderflowException();
+		}
+		boolean swap = buffer.order() != ByteOrder.LITTLE_ENDIAN;
+		int start = buffer.position();
+		int n = buffer.getInt(start);
+		int m = buffer.getInt(start + Integer.BYTES);
+		int size = buffer.getInt(start + 2 * Integer.BYTES);
+		if (swap) {
+			n = Integer.reverseBytes(n);
+			m = Integer.reverseBytes(m);
+			size = Integer.reverseBytes(size);
+		}
+		if (n < 1 || m < 0 || m > n || size < 0) {
+			throw new IllegalArgumentException("invalid encoding");
+		}
+		if (buffer.remaining() - 3 * Integer.BYTES < size) {
+			throw new BufferUnderflowException();
+		}
+		byte[] data = new byte[size];
+		buffer.position(start + 3 * Integer.BYTES);
+		buffer.get(data);
+		RunLengthBinary result = new RunLengthBinary(n, m, data);
+		if (!result.isValid()) {
+			buffer.position(start);
+			throw new IllegalArgumentException("invalid encoding");
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if the run lengths of this encoding are complete, add up
+	 * to the number of bits, and have as many 1 bits as the stored count, and
+	 * if every run except the first run of 0 bits is at least 1 bit long, as
+	 * written by the constructor. The iterator relies on the last condition.
+	 *
+	 * @return true if this encoding is valid
+	 */
+	private boolean isValid() {
+		if (this.data.length > 0 && this.data[this.data.length - 1] < 0) {
+			return false;
+		}
+		Runs runs = new Runs();
+		long total = 0;
+		long ones = 0;
+		boolean first = true;
+		for (boolean zeros = true; runs.hasNext(); zeros = !zeros) {
+			int length = runs.next();
+			if (length < 0 || length == 0 && !first) {
+				return false;
+			}
+			first = false;
+			total += length;
+			if (!zeros) {
+				ones += length;
+			}
+		}
+		return total == this.numberOfBits && ones == this.count;
+	}
+}
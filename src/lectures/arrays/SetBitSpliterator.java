@@ -0,0 +1,170 @@
+package lectures.arrays;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A spliterator over the indexes of the 1 bits of the words of a
+ * {@link Binary}, in increasing order.
+ *
+ * <p>
+ * Index 0 is the left-most bit, which is the highest bit of the last word,
+ * so the words are read from the last to the first, and the bits of a word
+ * from its highest to its lowest. A word that is 0 is skipped with a single
+ * comparison, and the next 1 bit of a word is found with
+ * {@link Long#numberOfLeadingZeros(long)}.
+ *
+ * <p>
+ * The spliterator covers a range of words, which {@link #trySplit()} cuts
+ * in half: the returned spliterator takes the upper half of the words,
+ * which holds the lower indexes, so that the encounter order is kept.
+ *
+ * <p>
+ * A spliterator created for a {@code Binary} reads its words in place.
+ * The first time it is split it marks the binary number as shared, as
+ * {@link Binary#Binary(Binary)} does, so that the parts, which may be read
+ * by other threads, keep seeing the words as they were even if the number
+ * is changed; a spliterator that is never split costs nothing more.
+ *
+ */
+final class SetBitSpliterator implements Spliterator.OfInt {
+
+	/**
+	 * The words of the binary number.
+	 */
+	private final long[] words;
+
+	/**
+	 * The binary number to mark as shared when this spliterator is split, or
+	 * null if it has already been marked or the words belong to no binary
+	 * number.
+	 */
+	private Binary owner;
+
+	/**
+	 * The number of bits of the binary number.
+	 */
+	private final int numberOfBits;
+
+	/**
+	 * The index of the lowest word of the range.
+	 */
+	private final int low;
+
+	/**
+	 * The index of the word held in {@code current}; the words from
+	 * {@code low} to {@code high - 1} have not been read yet.
+	 */
+	private int high;
+
+	/**
+	 * The bits of word {@code high} that have not been returned yet.
+	 */
+	private long current;
+
+	/**
+	 * Initializes a spliterator over all the words of a binary number, which
+	 * marks the number as shared when it is first split.
+	 *
+	 * @param owner the binary number
+	 */
+	SetBitSpliterator(Binary owner) {
+		this(owner.words(), owner.numberOfBits(), 0, owner.words().length, 0);
+		this.owner = owner;
+	}
+
+	/**
+	 * Initializes a spliterator over the words {@code low} to
+	 * {@code high - 1}, after the bits of {@code current}, which are those
+	 * of word {@code high}.
+	 *
+	 * @param words the words of the binary number
+	 * @param numberOfBits the number of bits of the binary number
+	 * @param low the index of the lowest word of the range
+	 * @param high the index of the word after the highest word of the range
+	 * @param current the bits of word {@code high} to return first
+	 */
+	SetBitSpliterator(long[] words, int numberOfBits, int low, int high, long current) {
+		this.words = words;
+		this.numberOfBits = numberOfBits;
+		this.low = low;
+		this.high = high;
+		this.current = current;
+	}
+
+	@Override
+	public boolean tryAdvance(IntConsumer action) {
+		long word = this.current;
+		while (word == 0) {
+			if (this.high == this.low) {
+				return false;
+			}
+			word = this.words[--this.high];
+		}
+		int z = Long.numberOfLeadingZeros(word);
+		this.current = word & ~(Long.MIN_VALUE >>> z);
+		action.accept(this.numberOfBits - 64 - this.high * 64 + z);
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(IntConsumer action) {
+		long[] w = this.words;
+		// index of the highest bit of word i is base - 64 * i
+		int base = this.numberOfBits - 64;
+		long word = this.current;
+		int i = this.high;
+		int low = this.low;
+		this.current = 0;
+		this.high = low;
+		while (true) {
+			while (word != 0) {
+				int z = Long.numberOfLeadingZeros(word);
+				word &= ~(Long.MIN_VALUE >>> z);
+				action.accept(base - i * 64 + z);
+			}
+			if (i == low) {
+				return;
+			}
+			word = w[--i];
+		}
+	}
+
+	@Override
+	public Spliterator.OfInt trySplit() {
+		int mid = (this.low + this.high) >>> 1;
+		if (mid == this.low) {
+			return null;
+		}
+		if (this.owner != null) {
+			// from now on the words may be read by other threads
+			this.owner.markShared();
+			this.owner = null;
+		}
+		SetBitSpliterator prefix = new SetBitSpliterator(this.words, this.numberOfBits, mid, this.high,
+				this.current);
+		this.high = mid;
+		this.current = 0;
+		return prefix;
+	}
+
+	/**
+	 * Returns the number of bits left to read, which is an upper bound of
+	 * the number of 1 bits left.
+	 */
+	@Override
+	public long estimateSize() {
+		return (long) (this.high - this.low) * 64 + Long.bitCount(this.current);
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | DISTINCT | SORTED | NONNULL;
+	}
+
+	@Override
+	public Comparator<? super Integer> getComparator() {
+		return null;
+	}
+}
@@ -0,0 +1,490 @@
+package lectures.arrays;
+
+import java.util.Arrays;
+
+/**
+ * Multi-word unsigned arithmetic used by {@link Binary}.
+ *
+ * <p>
+ * Numbers are stored in {@code long} arrays with the least significant word
+ * first, as in {@code Binary}. Every word is treated as an unsigned 64-bit
+ * digit.
+ *
+ */
+final class WordArithmetic {
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private WordArithmetic() {
+	}
+
+	/**
+	 * Divisors of up to this many words have their reciprocal computed by
+	 * long division rather than by Newton's iteration.
+	 */
+	private static final int NEWTON_WORDS = 32;
+
+	/**
+	 * Returns the number of words of {@code a} that remain after removing the
+	 * most significant zero words from the first {@code len} words.
+	 */
+	static int length(long[] a, int len) {
+		while (len > 0 && a[len - 1] == 0) {
+			len--;
+		}
+		return len;
+	}
+
+	/**
+	 * Returns the number of words that remain after removing the most
+	 * significant zero words from the {@code len} words of {@code a} starting
+	 * at word {@code off}.
+	 */
+	static int length(long[] a, int off, int len) {
+		while (len > 0 && a[off + len - 1] == 0) {
+			len--;
+		}
+		return len;
+	}
+
+	/**
+	 * Returns the high 64 bits of the unsigned 128-bit product of {@code x}
+	 * and {@code y}.
+	 */
+	static long unsignedMultiplyHigh(long x, long y) {
+		return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+	}
+
+	/**
+	 * Adds the first {@code alen} words of {@code a} into {@code r} starting
+	 * at word {@code offset} of {@code r}, propagating the carry. Returns the
+	 * carry out of the last word of {@code r}.
+	 */
+	static long addInto(long[] r, int offset, long[] a, int alen) {
+		long carry = 0;
+		int i = 0;
+		for (; i < alen; i++) {
+			long x = r[offset + i];
+			long s = x + a[i];
+			long c1 = Long.compareUnsigned(s, x) < 0 ? 1 : 0;
+			long t = s + carry;
+			long c2 = Long.compareUnsigned(t, s) < 0 ? 1 : 0;
+			r[offset + i] = t;
+			carry = c1 + c2;
+		}
+		for (int j = offset + i; carry != 0 && j < r.length; j++) {
+			r[j]++;
+			carry = r[j] == 0 ? 1 : 0;
+		}
+		return carry;
+	}
+
+	/**
+	 * Subtracts the first {@code alen} words of {@code a} from {@code r},
+	 * propagating the borrow. Returns the borrow out of the last word of
+	 * {@code r}.
+	 */
+	static long subtractFrom(long[] r, long[] a, int alen) {
+		long borrow = 0;
+		int i = 0;
+		for (; i < alen; i++) {
+			long x = r[i];
+			long d = x - a[i];
+			long b1 = Long.compareUnsigned(x, a[i]) < 0 ? 1 : 0;
+			long t = d - borrow;
+			long b2 = Long.compareUnsigned(d, borrow) < 0 ? 1 : 0;
+			r[i] = t;
+			borrow = b1 + b2;
+		}
+		for (int j = i; borrow != 0 && j < r.length; j++) {
+			borrow = r[j] == 0 ? 1 : 0;
+			r[j]--;
+		}
+		return borrow;
+	}
+
+	/**
+	 * Compares the first {@code alen} words of {@code a} with the first
+	 * {@code blen} words of {@code b} as unsigned numbers.
+	 */
+	static int compare(long[] a, int alen, long[] b, int blen) {
+		for (int i = Math.max(alen, blen) - 1; i >= 0; i--) {
+			long x = i < alen ? a[i] : 0;
+			long y = i < blen ? b[i] : 0;
+			if (x != y) {
+				return Long.compareUnsigned(x, y);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the product of the first {@code xlen} words of {@code x} and
+	 * the first {@code ylen} words of {@code y} using the schoolbook method.
+	 * The product has {@code xlen + ylen} words.
+	 */
+	static long[] schoolbook(long[] x, int xlen, long[] y, int ylen) {
+		long[] r = new long[xlen + ylen];
+		for (int i = 0; i < xlen; i++) {
+			long xi = x[i];
+			if (xi == 0) {
+				continue;
+			}
+			long carry = 0;
+			for (int j = 0; j < ylen; j++) {
+				long lo = xi * y[j];
+				long hi = unsignedMultiplyHigh(xi, y[j]);
+				long s = lo + carry;
+				if (Long.compareUnsigned(s, lo) < 0) {
+					hi++;
+				}
+				long t = r[i + j] + s;
+				if (Long.compareUnsigned(t, s) < 0) {
+					hi++;
+				}
+				r[i + j] = t;
+				carry = hi;
+			}
+			r[i + ylen] = carry;
+		}
+		return r;
+	}
+
+	/**
+	 * Returns the product of the first {@code xlen} words of {@code x} and
+	 * the first {@code ylen} words of {@code y}. Karatsuba multiplication is
+	 * used while both operands have at least {@code threshold} words, and
+	 * schoolbook multiplication below that. The product has
+	 * {@code xlen + ylen} words.
+	 */
+	static long[] multiply(long[] x, int xlen, long[] y, int ylen, int threshold) {
+		// below four words (x0 + x1) would be as long as x and the recursion
+		// would not terminate
+		if (Math.min(xlen, ylen) < Math.max(threshold, 4)) {
+			return schoolbook(x, xlen, y, ylen);
+		}
+		long[] r = new long[xlen + ylen];
+		int h = (Math.max(xlen, ylen) + 1) / 2;
+		if (xlen <= h || ylen <= h) {
+			// unbalanced operands: split only the longer one
+			if (xlen < ylen) {
+				long[] t = x;
+				x = y;
+				y = t;
+				int tl = xlen;
+				xlen = ylen;
+				ylen = tl;
+			}
+			long[] low = multiply(x, h, y, ylen, threshold);
+			long[] high = multiply(Arrays.copyOfRange(x, h, xlen), xlen - h, y, ylen, threshold);
+			addInto(r, 0, low, low.length);
+			addInto(r, h, high, high.length);
+			return r;
+		}
+		long[] x1 = Arrays.copyOfRange(x, h, xlen);
+		long[] y1 = Arrays.copyOfRange(y, h, ylen);
+		long[] z0 = multiply(x, h, y, h, threshold);
+		long[] z2 = multiply(x1, xlen - h, y1, ylen - h, threshold);
+
+		// (x0 + x1) and (y0 + y1) have at most h + 1 words
+		long[] sx = new long[h + 1];
+		System.arraycopy(x, 0, sx, 0, h);
+		addInto(sx, 0, x1, x1.length);
+		long[] sy = new long[h + 1];
+		System.arraycopy(y, 0, sy, 0, h);
+		addInto(sy, 0, y1, y1.length);
+		long[] z1 = multiply(sx, length(sx, h + 1), sy, length(sy, h + 1), threshold);
+		subtractFrom(z1, z0, length(z0, z0.length));
+		subtractFrom(z1, z2, length(z2, z2.length));
+
+		addInto(r, 0, z0, length(z0, z0.length));
+		addInto(r, h, z1, length(z1, z1.length));
+		addInto(r, 2 * h, z2, length(z2, z2.length));
+		return r;
+	}
+
+	/**
+	 * Returns the unsigned quotient of the 128-bit number whose high word is
+	 * {@code u1} and whose low word is {@code u0} divided by {@code v}. The
+	 * highest bit of {@code v} must be set and {@code u1} must be less than
+	 * {@code v}, so that the quotient fits in one word. The division is done
+	 * in two steps of 32 bits (Knuth's Algorithm D with 32-bit digits).
+	 */
+	static long divideUnsigned128(long u1, long u0, long v) {
+		long b = 1L << 32;
+		long vn1 = v >>> 32;
+		long vn0 = v & 0xFFFFFFFFL;
+		long un1 = u0 >>> 32;
+		long un0 = u0 & 0xFFFFFFFFL;
+		long q1 = Long.divideUnsigned(u1, vn1);
+		long rhat = u1 - q1 * vn1;
+		while (Long.compareUnsigned(q1, b) >= 0
+				|| Long.compareUnsigned(q1 * vn0, (rhat << 32) | un1) > 0) {
+			q1--;
+			rhat += vn1;
+			if (rhat >= b) {
+				break;
+			}
+		}
+		long un21 = (u1 << 32) + un1 - q1 * v;
+		long q0 = Long.divideUnsigned(un21, vn1);
+		rhat = un21 - q0 * vn1;
+		while (Long.compareUnsigned(q0, b) >= 0
+				|| Long.compareUnsigned(q0 * vn0, (rhat << 32) | un0) > 0) {
+			q0--;
+			rhat += vn1;
+			if (rhat >= b) {
+				break;
+			}
+		}
+		return (q1 << 32) + q0;
+	}
+
+	/**
+	 * Returns word {@code k} of {@code a} shifted left by {@code s} bits, with
+	 * the high bits of word {@code k - 1} shifted in.
+	 */
+	private static long shifted(long[] a, int off, int k, int s) {
+		if (s == 0) {
+			return a[off + k];
+		}
+		return (a[off + k] << s) | (k > 0 ? a[off + k - 1] >>> -s : 0);
+	}
+
+	/**
+	 * Divides the {@code ulen + 1} words of {@code u} starting at word
+	 * {@code off}, whose most significant word must be 0, by the first
+	 * {@code vlen} words of {@code v}, in place, using Knuth's Algorithm D.
+	 * The most significant word of the divisor must not be 0, and
+	 * {@code vlen} must be at least 2 and at most {@code ulen}.
+	 *
+	 * <p>
+	 * Afterwards the remainder is in words {@code off} to
+	 * {@code off + vlen - 1}, and the quotient in words {@code off + vlen} to
+	 * {@code off + ulen}: every quotient word is stored in the word of the
+	 * dividend that its step has just cleared. Nothing is allocated; instead
+	 * of shifting both numbers so that the divisor has its highest bit set,
+	 * only the top words used to estimate each quotient word are shifted.
+	 */
+	static void divide(long[] u, int off, int ulen, long[] v, int vlen) {
+		int s = Long.numberOfLeadingZeros(v[vlen - 1]);
+		long vTop = shifted(v, 0, vlen - 1, s);
+		long vNext = shifted(v, 0, vlen - 2, s);
+		for (int j = ulen - vlen; j >= 0; j--) {
+			long u2 = shifted(u, off, j + vlen, s);
+			long u1 = shifted(u, off, j + vlen - 1, s);
+			long u0 = shifted(u, off, j + vlen - 2, s);
+			// estimate the quotient word from the top words; it is at most 2
+			// too large
+			long qhat;
+			long rhat;
+			boolean rhatFits;
+			if (u2 == vTop) {
+				qhat = -1L;
+				rhat = u1 + vTop;
+				rhatFits = Long.compareUnsigned(rhat, vTop) >= 0;
+			} else {
+				qhat = divideUnsigned128(u2, u1, vTop);
+				rhat = u1 - qhat * vTop;
+				rhatFits = true;
+			}
+			while (rhatFits) {
+				long hi = unsignedMultiplyHigh(qhat, vNext);
+				long lo = qhat * vNext;
+				int c = Long.compareUnsigned(hi, rhat);
+				if (c < 0 || c == 0 && Long.compareUnsigned(lo, u0) <= 0) {
+					break;
+				}
+				qhat--;
+				rhat += vTop;
+				rhatFits = Long.compareUnsigned(rhat, vTop) >= 0;
+			}
+			// subtract qhat times the divisor from words j to j + vlen
+			long carry = 0;
+			for (int i = 0; i < vlen; i++) {
+				long lo = qhat * v[i];
+				long hi = unsignedMultiplyHigh(qhat, v[i]);
+				lo += carry;
+				if (Long.compareUnsigned(lo, carry) < 0) {
+					hi++;
+				}
+				long x = u[off + j + i];
+				if (Long.compareUnsigned(x, lo) < 0) {
+					hi++;
+				}
+				u[off + j + i] = x - lo;
+				carry = hi;
+			}
+			long top = u[off + j + vlen];
+			if (Long.compareUnsigned(top, carry) < 0) {
+				// qhat was one too large: add the divisor back
+				qhat--;
+				long c = 0;
+				for (int i = 0; i < vlen; i++) {
+					long x = u[off + j + i];
+					long t = x + v[i];
+					long c1 = Long.compareUnsigned(t, x) < 0 ? 1 : 0;
+					long r = t + c;
+					long c2 = Long.compareUnsigned(r, t) < 0 ? 1 : 0;
+					u[off + j + i] = r;
+					c = c1 + c2;
+				}
+			}
+			u[off + j + vlen] = qhat;
+		}
+	}
+
+	/**
+	 * Adds 1 to the number held in {@code a}. The number must be less than
+	 * the largest number that {@code a} can hold.
+	 */
+	private static void increment(long[] a) {
+		for (int i = 0; ++a[i] == 0; i++) {
+		}
+	}
+
+	/**
+	 * Subtracts 1 from the number held in {@code a}, which must not be 0.
+	 */
+	private static void decrement(long[] a) {
+		for (int i = 0; a[i]-- == 0; i++) {
+		}
+	}
+
+	/**
+	 * Returns {@code floor(B^(2 * vlen) / v)}, where {@code B} is 2^64, by
+	 * dividing {@code B^(2 * vlen)} by the first {@code vlen} words of
+	 * {@code v} with {@link #divide(long[], int, int, long[], int)}. The
+	 * result has {@code vlen + 2} words.
+	 */
+	private static long[] reciprocalByDivision(long[] v, int vlen) {
+		long[] u = new long[2 * vlen + 2];
+		u[2 * vlen] = 1;
+		divide(u, 0, 2 * vlen + 1, v, vlen);
+		return Arrays.copyOfRange(u, vlen, 2 * vlen + 2);
+	}
+
+	/**
+	 * Returns {@code floor(B^(2 * vlen) / v)}, where {@code B} is 2^64, for
+	 * the first {@code vlen} words of {@code v}. The most significant word
+	 * of the divisor must not be 0, and {@code vlen} must be at least 2. The
+	 * result has {@code vlen + 2} words, of which the last is 0, and is the
+	 * reciprocal used by
+	 * {@link #divide(long[], int, int, long[], int, long[], int)}.
+	 *
+	 * <p>
+	 * Divisors of up to {@value #NEWTON_WORDS} words are handled by long
+	 * division. Longer divisors use one step of Newton's iteration
+	 * {@code r + r * (B^(2k) - v * r) / B^(2k)} from the reciprocal of their
+	 * top {@code h = (k + 5) / 2} words plus 1, which is never too large and
+	 * is accurate to about {@code h} words; the step doubles the accuracy,
+	 * and the last one or two units are corrected by comparing
+	 * {@code v * r} with {@code B^(2k)}. Computing the reciprocal therefore
+	 * costs a few multiplications of {@code vlen} words, using Karatsuba
+	 * multiplication from {@code threshold} words.
+	 */
+	static long[] reciprocal(long[] v, int vlen, int threshold) {
+		int k = vlen;
+		if (k <= NEWTON_WORDS) {
+			return reciprocalByDivision(v, k);
+		}
+		int h = (k + 5) / 2;
+		long[] top = new long[h + 1];
+		System.arraycopy(v, k - h, top, 0, h);
+		increment(top);
+		if (top[h] != 0) {
+			// the top h words are all ones
+			return reciprocalByDivision(v, k);
+		}
+		long[] r = reciprocal(top, h, threshold);
+		int rlen = length(r, r.length);
+		// e = B^(k + h) - v * r, which is not negative because r is not
+		// larger than B^(2h) / (top words of v)
+		long[] t = multiply(v, k, r, rlen, threshold);
+		long[] e = new long[k + h + 1];
+		e[k + h] = 1;
+		subtractFrom(e, t, length(t, t.length));
+		// q = r * B^(k - h) + floor(r * e / B^(2h)), which is still not
+		// larger than B^(2k) / v
+		long[] q = new long[k + 2];
+		System.arraycopy(r, 0, q, k - h, rlen);
+		int elen = length(e, e.length);
+		if (elen > 0) {
+			long[] f = multiply(r, rlen, e, elen, threshold);
+			int flen = length(f, f.length);
+			if (flen > 2 * h) {
+				addInto(q, 0, Arrays.copyOfRange(f, 2 * h, flen), flen - 2 * h);
+			}
+		}
+		// correct the last units: the remainder B^(2k) - v * q must be
+		// between 0 and v - 1
+		long[] p = multiply(v, k, q, length(q, q.length), threshold);
+		long[] rem = new long[Math.max(2 * k + 1, p.length)];
+		rem[2 * k] = 1;
+		long borrow = subtractFrom(rem, p, length(p, p.length));
+		while (borrow != 0) {
+			decrement(q);
+			borrow -= addInto(rem, 0, v, k);
+		}
+		while (compare(rem, rem.length, v, k) >= 0) {
+			subtractFrom(rem, v, k);
+			increment(q);
+		}
+		return q;
+	}
+
+	/**
+	 * Divides the {@code ulen + 1} words of {@code u} starting at word
+	 * {@code off}, whose most significant word must be 0, by the first
+	 * {@code vlen} words of {@code v}, like
+	 * {@link #divide(long[], int, int, long[], int)}, but using the
+	 * {@code reciprocal} of {@code v} returned by
+	 * {@link #reciprocal(long[], int, int)} (Barrett reduction). The dividend
+	 * must be less than {@code B^(2 * vlen)}, where {@code B} is 2^64, which
+	 * holds if {@code ulen} is at most {@code 2 * vlen}, and {@code vlen}
+	 * must be at most {@code ulen}.
+	 *
+	 * <p>
+	 * Afterwards the remainder is in words {@code off} to
+	 * {@code off + vlen - 1}, and the quotient in words {@code off + vlen} to
+	 * {@code off + ulen}. The quotient has {@code m = ulen - vlen + 1} words,
+	 * and is estimated from the product of the top {@code m} words of the
+	 * dividend and of the reciprocal; dropping the other words makes the
+	 * estimate at most 4 too small, which is corrected by comparing the
+	 * remainder with the divisor. The division therefore costs one
+	 * multiplication of {@code m} by {@code m} words and one of {@code m} by
+	 * {@code vlen} words, which use Karatsuba multiplication from
+	 * {@code threshold} words; unlike the long division, it allocates its
+	 * intermediate results.
+	 */
+	static void divide(long[] u, int off, int ulen, long[] v, int vlen, long[] reciprocal, int threshold) {
+		int m = ulen - vlen + 1;
+		long[] x = Arrays.copyOfRange(u, off, off + ulen);
+		long[] q = new long[m + 1];
+		// q = floor(floor(u / B^(vlen - 1)) * floor(reciprocal / B^(2 * vlen
+		// - ulen)) / B^m)
+		long[] uTop = Arrays.copyOfRange(x, vlen - 1, ulen);
+		long[] rTop = Arrays.copyOfRange(reciprocal, 2 * vlen - ulen, vlen + 1);
+		int utlen = length(uTop, m);
+		int rtlen = length(rTop, m);
+		if (utlen > 0 && rtlen > 0) {
+			long[] e = multiply(uTop, utlen, rTop, rtlen, threshold);
+			int elen = length(e, e.length);
+			if (elen > m) {
+				System.arraycopy(e, m, q, 0, elen - m);
+			}
+			int qlen = length(q, q.length);
+			if (qlen > 0) {
+				long[] t = multiply(q, qlen, v, vlen, threshold);
+				subtractFrom(x, t, length(t, t.length));
+			}
+		}
+		while (compare(x, ulen, v, vlen) >= 0) {
+			subtractFrom(x, v, vlen);
+			increment(q);
+		}
+		System.arraycopy(x, 0, u, off, vlen);
+		System.arraycopy(q, 0, u, off + vlen, m);
+	}
+}
@@ -0,0 +1,225 @@
+package lectures.arrays;
+
+import java.util.Arrays;
+
+/**
+ * The loops that implement the bulk operations of {@link Binary} over ranges
+ * of packed words.
+ *
+ * <p>
+ * The loops are kept in this form on purpose: each one is a simple counted
+ * loop over arrays with no dependence between iterations, which is the form
+ * that the HotSpot C2 compiler vectorizes into SIMD instructions. The
+ * population count keeps four independent partial sums so that consecutive
+ * {@code POPCNT} instructions do not wait for each other.
+ *
+ * <p>
+ * The auto-vectorizer does not always catch these loops, so the and, or,
+ * xor, and-not, not, and population count operations can instead use
+ * explicit SIMD code written with the incubating Vector API. That code is in
+ * the class {@code VectorWordKernels} in the separate source root
+ * {@code src-vector}, because it can only be compiled and run with
+ * {@code --add-modules jdk.incubator.vector}:
+ *
+ * <pre>
+ * javac -d out src/lectures/arrays/*.java ...
+ * javac --add-modules jdk.incubator.vector -cp out -d out src-vector/lectures/arrays/*.java
+ * java --add-modules jdk.incubator.vector -cp out ...
+ * </pre>
+ *
+ * <p>
+ * When this class is initialized it loads {@code VectorWordKernels}
+ * reflectively if the {@code jdk.incubator.vector} module is in the boot
+ * layer, and otherwise (or if the class is missing, or the system property
+ * {@code lectures.arrays.vector} is {@code false}) uses its own loops. The
+ * choice is held in a {@code static final} field, so the JIT compiler
+ * removes the test and inlines the chosen code. Ranges of fewer than
+ * {@value #VECTOR_MIN_WORDS} words always use the loops of this class.
+ *
+ * <p>
+ * Every method operates on the words having indexes {@code from} (inclusive)
+ * to {@code to} (exclusive) so that the same loops can be used to process
+ * parts of a word array in parallel.
+ *
+ */
+final class WordKernels {
+
+	/**
+	 * The operations that can be replaced by a SIMD implementation. Each
+	 * method has the same contract as the method of {@code WordKernels} with
+	 * the same name.
+	 */
+	interface Backend {
+		void and(long[] a, long[] b, int from, int to);
+
+		void or(long[] a, long[] b, int from, int to);
+
+		void xor(long[] a, long[] b, int from, int to);
+
+		void andNot(long[] a, long[] b, int from, int to);
+
+		void not(long[] a, int from, int to);
+
+		long bitCount(long[] a, int from, int to);
+	}
+
+	/**
+	 * The name of the class that implements the operations with the Vector
+	 * API.
+	 */
+	private static final String VECTOR_CLASS = "lectures.arrays.VectorWordKernels";
+
+	/**
+	 * The smallest range of words processed by the Vector API
+	 * implementation. Below this the setup of the vector loops costs more
+	 * than it saves: on 16 words the vector {@code not} and population count
+	 * ran at half the speed of the loops of this class.
+	 */
+	private static final int VECTOR_MIN_WORDS = 64;
+
+	/**
+	 * The Vector API implementation, or {@code null} if the loops of this
+	 * class are used.
+	 */
+	private static final Backend VECTOR = loadVectorBackend();
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private WordKernels() {
+	}
+
+	/**
+	 * Returns the Vector API implementation if the incubator module is
+	 * present and the implementation can be loaded, or {@code null}
+	 * otherwise.
+	 */
+	private static Backend loadVectorBackend() {
+		if (!Boolean.parseBoolean(System.getProperty("lectures.arrays.vector", "true"))
+				|| ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			return null;
+		}
+		try {
+			return (Backend) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError | ClassCastException x) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a description of the implementation of the bulk operations
+	 * chosen at startup.
+	 */
+	static String backend() {
+		return VECTOR == null ? "scalar loops" : VECTOR.toString();
+	}
+
+	/**
+	 * Sets {@code a[i] = a[i] & b[i]} for every index in the range.
+	 */
+	static void and(long[] a, long[] b, int from, int to) {
+		if (VECTOR != null && to - from >= VECTOR_MIN_WORDS) {
+			VECTOR.and(a, b, from, to);
+			return;
+		}
+		for (int i = from; i < to; i++) {
+			a[i] &= b[i];
+		}
+	}
+
+	/**
+	 * Sets {@code a[i] = a[i] | b[i]} for every index in the range.
+	 */
+	static void or(long[] a, long[] b, int from, int to) {
+		if (VECTOR != null && to - from >= VECTOR_MIN_WORDS) {
+			VECTOR.or(a, b, from, to);
+			return;
+		}
+		for (int i = from; i < to; i++) {
+			a[i] |= b[i];
+		}
+	}
+
+	/**
+	 * Sets {@code a[i] = a[i] ^ b[i]} for every index in the range.
+	 */
+	static void xor(long[] a, long[] b, int from, int to) {
+		if (VECTOR != null && to - from >= VECTOR_MIN_WORDS) {
+			VECTOR.xor(a, b, from, to);
+			return;
+		}
+		for (int i = from; i < to; i++) {
+			a[i] ^= b[i];
+		}
+	}
+
+	/**
+	 * Sets {@code a[i] = a[i] & ~b[i]} for every index in the range.
+	 */
+	static void andNot(long[] a, long[] b, int from, int to) {
+		if (VECTOR != null && to - from >= VECTOR_MIN_WORDS) {
+			VECTOR.andNot(a, b, from, to);
+			return;
+		}
+		for (int i = from; i < to; i++) {
+			a[i] &= ~b[i];
+		}
+	}
+
+	/**
+	 * Sets {@code a[i] = ~a[i]} for every index in the range.
+	 */
+	static void not(long[] a, int from, int to) {
+		if (VECTOR != null && to - from >= VECTOR_MIN_WORDS) {
+			VECTOR.not(a, from, to);
+			return;
+		}
+		for (int i = from; i < to; i++) {
+			a[i] = ~a[i];
+		}
+	}
+
+	/**
+	 * Returns the number of 1 bits in the words in the range.
+	 */
+	static long bitCount(long[] a, int from, int to) {
+		if (VECTOR != null && to - from >= VECTOR_MIN_WORDS) {
+			return VECTOR.bitCount(a, from, to);
+		}
+		long c0 = 0;
+		long c1 = 0;
+		long c2 = 0;
+		long c3 = 0;
+		int i = from;
+		for (; i + 3 < to; i += 4) {
+			c0 += Long.bitCount(a[i]);
+			c1 += Long.bitCount(a[i + 1]);
+			c2 += Long.bitCount(a[i + 2]);
+			c3 += Long.bitCount(a[i + 3]);
+		}
+		for (; i < to; i++) {
+			c0 += Long.bitCount(a[i]);
+		}
+		return c0 + c1 + c2 + c3;
+	}
+
+	/**
+	 * Returns the greatest index in the range of a word that is not 0, or -1
+	 * if every word in the range is 0.
+	 */
+	static int lastNonZero(long[] a, int from, int to) {
+		for (int i = to - 1; i >= from; i--) {
+			if (a[i] != 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true if {@code a[i] == b[i]} for every index in the range.
+	 */
+	static boolean equal(long[] a, long[] b, int from, int to) {
+		return Arrays.equals(a, from, to, b, from, to);
+	}
+}
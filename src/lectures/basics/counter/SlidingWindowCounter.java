@@ -0,0 +1,210 @@
+package lectures.basics.counter;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The {@code SlidingWindowCounter} class counts events that happened within a
+ * fixed-length window of time ending now (e.g., the number of requests in the
+ * last 10 seconds).
+ *
+ * <p>
+ * The window is divided into a fixed number of equal-length buckets arranged
+ * in a ring; a {@link RangeCounter} holds the index of the bucket for the
+ * current time. Advancing the counter adds one to the current bucket. When
+ * time moves past the end of the current bucket the counter moves to the next
+ * bucket in the ring and discards the count of the oldest bucket. Buckets are
+ * only discarded when the counter is used, so advancing the counter and
+ * computing the sum of the window both take constant amortized time.
+ *
+ * <p>
+ * The count is exact at bucket granularity: an event is counted for as long
+ * as its bucket is one of the most recent {@code buckets} buckets, so the
+ * effective window is between {@code window - window / buckets} and
+ * {@code window} nanoseconds long.
+ *
+ * <p>
+ * Instances of this class are not safe for use by multiple threads; see
+ * {@link StripedSlidingWindowCounter}.
+ *
+ */
+public class SlidingWindowCounter {
+
+	/**
+	 * The number of events in each bucket.
+	 */
+	private long[] counts;
+
+	/**
+	 * The index of the bucket for the current time.
+	 */
+	private RangeCounter head;
+
+	/**
+	 * The number of the time interval of the current bucket, counted in
+	 * bucket lengths since the counter was created.
+	 */
+	private long headInterval;
+
+	/**
+	 * The sum of the counts of all of the buckets.
+	 */
+	private long total;
+
+	/**
+	 * The length of one bucket in nanoseconds.
+	 */
+	private long bucketNanos;
+
+	/**
+	 * The source of the current time in nanoseconds.
+	 */
+	private LongSupplier clock;
+
+	/**
+	 * The time when this counter was created.
+	 */
+	private long origin;
+
+	/**
+	 * Initializes this counter so that it counts the events in the last
+	 * {@code windowNanos} nanoseconds using {@code buckets} buckets. The
+	 * current time is read using {@code System.nanoTime}.
+	 * 
+	 * @param windowNanos
+	 *            the length of the window in nanoseconds
+	 * @param buckets
+	 *            the number of buckets in the window
+	 * @throws IllegalArgumentException
+	 *             if buckets is less than 1
+	 * @throws IllegalArgumentException
+	 *             if windowNanos is less than buckets
+	 */
+	public SlidingWindowCounter(long windowNanos, int buckets) {
+		this(windowNanos, buckets, System::nanoTime);
+	}
+
+	/**
+	 * Initializes this counter so that it counts the events in the last
+	 * {@code windowNanos} nanoseconds using {@code buckets} buckets. The
+	 * current time in nanoseconds is read from {@code clock}.
+	 * 
+	 * @param windowNanos
+	 *            the length of the window in nanoseconds
+	 * @param buckets
+	 *            the number of buckets in the window
+	 * @param clock
+	 *            the source of the current time in nanoseconds
+	 * @throws IllegalArgumentException
+	 *             if buckets is less than 1
+	 * @throws IllegalArgumentException
+	 *             if windowNanos is less than buckets
+	 */
+	public SlidingWindowCounter(long windowNanos, int buckets, LongSupplier clock) {
+		if (buckets < 1) {
+			throw new IllegalArgumentException("buckets must be positive");
+		}
+		if (windowNanos < buckets) {
+			throw new IllegalArgumentException("windowNanos must be at least buckets");
+		}
+		this.counts = new long[buckets];
+		this.head = new RangeCounter(0, buckets - 1, 0);
+		this.headInterval = 0;
+		this.total = 0;
+		this.bucketNanos = windowNanos / buckets;
+		this.clock = clock;
+		this.origin = clock.getAsLong();
+	}
+
+	/**
+	 * Returns the length of the window of this counter in nanoseconds.
+	 * 
+	 * @return the length of the window of this counter in nanoseconds
+	 */
+	public long windowNanos() {
+		return this.bucketNanos * this.counts.length;
+	}
+
+	/**
+	 * Moves the head of the ring to the bucket for the current time,
+	 * discarding the counts of the buckets that have left the window.
+	 */
+	private void expire() {
+		long interval = (this.clock.getAsLong() - this.origin) / this.bucketNanos;
+		long steps = interval - this.headInterval;
+		if (steps <= 0) {
+			return;
+		}
+		if (steps >= this.counts.length) {
+			// every bucket has left the window
+			for (int i = 0; i < this.counts.length; i++) {
+				this.counts[i] = 0;
+			}
+			this.total = 0;
+		} else {
+			for (long i = 0; i < steps; i++) {
+				this.head.advance();
+				int h = this.head.value();
+				this.total -= this.counts[h];
+				this.counts[h] = 0;
+			}
+		}
+		this.headInterval = interval;
+	}
+
+	/**
+	 * Records one event at the current time.
+	 */
+	public void advance() {
+		this.advance(1);
+	}
+
+	/**
+	 * Records {@code n} events at the current time.
+	 * 
+	 * @param n
+	 *            the number of events
+	 * @throws IllegalArgumentException
+	 *             if n is negative
+	 */
+	public void advance(long n) {
+		if (n < 0) {
+			throw new IllegalArgumentException("n must be non-negative");
+		}
+		this.expire();
+		this.counts[this.head.value()] += n;
+		this.total += n;
+	}
+
+	/**
+	 * Returns the number of events recorded within the window ending at the
+	 * current time.
+	 * 
+	 * @return the number of events within the window
+	 */
+	public long sum() {
+		this.expire();
+		return this.total;
+	}
+
+	/**
+	 * Returns the average number of events per second within the window
+	 * ending at the current time.
+	 * 
+	 * @return the average number of events per second within the window
+	 */
+	public double rate() {
+		return this.sum() / (this.windowNanos() / 1e9);
+	}
+
+	/**
+	 * Returns a string representation of this counter. The string
+	 * representation is the string {@code "count: "} followed by the number
+	 * of events within the window ending at the current time.
+	 * 
+	 * @return a string representation of this counter
+	 */
+	@Override
+	public String toString() {
+		return "count: " + this.sum();
+	}
+}
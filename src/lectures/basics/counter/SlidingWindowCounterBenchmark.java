@@ -0,0 +1,83 @@
+package lectures.basics.counter;
+
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Measures the throughput of {@link SlidingWindowCounter} and
+ * {@link StripedSlidingWindowCounter}, and checks the window sum of a
+ * counter driven by a simulated clock at 10 million events per second.
+ *
+ */
+public class SlidingWindowCounterBenchmark {
+
+	/**
+	 * One second in nanoseconds.
+	 */
+	private static final long SECOND = 1_000_000_000L;
+
+	/**
+	 * The number of events recorded per measurement and thread.
+	 */
+	private static final int EVENTS = 50_000_000;
+
+	/**
+	 * A clock that moves forward by a fixed amount every time it is read.
+	 */
+	private static class SimulatedClock {
+		private long now;
+		private long tick;
+
+		SimulatedClock(long tick) {
+			this.tick = tick;
+		}
+
+		long read() {
+			this.now += this.tick;
+			return this.now;
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		// 10 million events per second is one event every 100 ns; the clock
+		// is read once by the constructor and once per advance
+		SimulatedClock clock = new SimulatedClock(100);
+		SlidingWindowCounter simulated = new SlidingWindowCounter(SECOND, 100, clock::read);
+		for (int i = 0; i < 3 * 10_000_000; i++) {
+			simulated.advance();
+		}
+		// sum reads the clock once more
+		System.out.println("simulated 10M events/s, 1 s window: " + simulated.sum() + " events");
+
+		Stopwatch w = new Stopwatch();
+		for (int round = 0; round < 3; round++) {
+			SlidingWindowCounter c = new SlidingWindowCounter(SECOND, 100);
+			w.start();
+			for (int i = 0; i < EVENTS; i++) {
+				c.advance();
+			}
+			double t = w.stop();
+			System.out.printf("single thread : %.1f M events/s (window sum %d)%n", EVENTS / t / 1e6, c.sum());
+
+			int threads = Runtime.getRuntime().availableProcessors();
+			StripedSlidingWindowCounter s = new StripedSlidingWindowCounter(10 * SECOND, 100);
+			Thread[] ts = new Thread[threads];
+			for (int i = 0; i < threads; i++) {
+				ts[i] = new Thread(() -> {
+					for (int j = 0; j < EVENTS; j++) {
+						s.advance();
+					}
+				});
+			}
+			w.start();
+			for (Thread th : ts) {
+				th.start();
+			}
+			for (Thread th : ts) {
+				th.join();
+			}
+			t = w.stop();
+			System.out.printf("%2d threads    : %.1f M events/s (window sum %d)%n", threads,
+					(double) EVENTS * threads / t / 1e6, s.sum());
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package lectures.basics.counter;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link SlidingWindowCounter} that can be safely used by multiple threads.
+ *
+ * <p>
+ * The counter is made up of several independent sliding window counters
+ * called stripes. A thread records its events in a stripe selected by its
+ * thread id, so threads running on different cores rarely contend for the
+ * same stripe. The sum of the window is the sum of the stripes; it is exact
+ * when no events are being recorded concurrently.
+ *
+ */
+public class StripedSlidingWindowCounter {
+
+	/**
+	 * The stripes of this counter.
+	 */
+	private SlidingWindowCounter[] stripes;
+
+	/**
+	 * Initializes this counter so that it counts the events in the last
+	 * {@code windowNanos} nanoseconds using {@code buckets} buckets per
+	 * stripe. The number of stripes is chosen based on the number of
+	 * available processors.
+	 * 
+	 * @param windowNanos
+	 *            the length of the window in nanoseconds
+	 * @param buckets
+	 *            the number of buckets in the window
+	 * @throws IllegalArgumentException
+	 *             if buckets is less than 1
+	 * @throws IllegalArgumentException
+	 *             if windowNanos is less than buckets
+	 */
+	public StripedSlidingWindowCounter(long windowNanos, int buckets) {
+		this(windowNanos, buckets, System::nanoTime);
+	}
+
+	/**
+	 * Initializes this counter so that it counts the events in the last
+	 * {@code windowNanos} nanoseconds using {@code buckets} buckets per
+	 * stripe. The current time in nanoseconds is read from {@code clock}.
+	 * 
+	 * @param windowNanos
+	 *            the length of the window in nanoseconds
+	 * @param buckets
+	 *            the number of buckets in the window
+	 * @param clock
+	 *            the source of the current time in nanoseconds
+	 * @throws IllegalArgumentException
+	 *             if buckets is less than 1
+	 * @throws IllegalArgumentException
+	 *             if windowNanos is less than buckets
+	 */
+	public StripedSlidingWindowCounter(long windowNanos, int buckets, LongSupplier clock) {
+		int n = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+		this.stripes = new SlidingWindowCounter[n];
+		for (int i = 0; i < n; i++) {
+			this.stripes[i] = new SlidingWindowCounter(windowNanos, buckets, clock);
+		}
+	}
+
+	/**
+	 * Returns the stripe used by the current thread.
+	 */
+	private SlidingWindowCounter stripe() {
+		long id = Thread.currentThread().getId();
+		return this.stripes[(int) (id ^ (id >>> 16)) & (this.stripes.length - 1)];
+	}
+
+	/**
+	 * Records one event at the current time.
+	 */
+	public void advance() {
+		this.advance(1);
+	}
+
+	/**
+	 * Records {@code n} events at the current time.
+	 * 
+	 * @param n
+	 *            the number of events
+	 * @throws IllegalArgumentException
+	 *             if n is negative
+	 */
+	public void advance(long n) {
+		SlidingWindowCounter s = this.stripe();
+		synchronized (s) {
+			s.advance(n);
+		}
+	}
+
+	/**
+	 * Returns the number of events recorded within the window ending at the
+	 * current time.
+	 * 
+	 * @return the number of events within the window
+	 */
+	public long sum() {
+		long sum = 0;
+		for (SlidingWindowCounter s : this.stripes) {
+			synchronized (s) {
+				sum += s.sum();
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the average number of events per second within the window
+	 * ending at the current time.
+	 * 
+	 * @return the average number of events per second within the window
+	 */
+	public double rate() {
+		return this.sum() / (this.stripes[0].windowNanos() / 1e9);
+	}
+
+	/**
+	 * Returns a string representation of this counter. The string
+	 * representation is the string {@code "count: "} followed by the number
+	 * of events within the window ending at the current time.
+	 * 
+	 * @return a string representation of this counter
+	 */
+	@Override
+	public String toString() {
+		return "count: " + this.sum();
+	}
+}
@@ -0,0 +1,169 @@
+package lectures.interfaces;
+
+import jdk.jfr.Recording;
+import lectures.basics.stopwatch.Stopwatch;
+
+/**
+ * Measures the cost of {@link Counter#advance()} with Java Flight Recorder
+ * off and on, compared to a copy of {@code Counter} that has no monitoring
+ * hook. The {@link CounterMonitor} is installed first so that the hook
+ * records events while the recording is running.
+ *
+ * <p>
+ * Two workloads are measured. In the fast path workload every advance
+ * increments a counter whose value is less than {@code Integer.MAX_VALUE}. In
+ * the policy workload every advance is of a counter whose value is
+ * {@code Integer.MAX_VALUE} and that uses a {@code MaxValueStopPolicy}, so
+ * every advance applies the max value policy. Both paths of {@code advance}
+ * are exercised before measuring so that the JIT compiler cannot remove
+ * either of them.
+ *
+ */
+public class CounterAdvanceBenchmark {
+
+	/**
+	 * The number of counters that are advanced in turn.
+	 */
+	private static final int COUNTERS = 1024;
+
+	/**
+	 * The number of advances per measurement.
+	 */
+	private static final int ADVANCES = 100_000_000;
+
+	/**
+	 * The number of times each measurement is repeated.
+	 */
+	private static final int ROUNDS = 5;
+
+	/**
+	 * {@code Counter.advance} without the call to the max value hook.
+	 */
+	private static class UnmonitoredCounter {
+		private int value;
+		private MaxValuePolicy maxPolicy;
+
+		UnmonitoredCounter(int value, MaxValuePolicy maxPolicy) {
+			this.value = value;
+			this.maxPolicy = maxPolicy;
+		}
+
+		int value() {
+			return this.value;
+		}
+
+		void advance() {
+			if (this.value != Integer.MAX_VALUE) {
+				this.value++;
+			} else {
+				this.value = this.maxPolicy.advance();
+			}
+		}
+	}
+
+	/**
+	 * Advances the counters in turn and returns a value computed from the
+	 * counter values so that the loop cannot be eliminated.
+	 */
+	private static int run(Counter[] cs, int advances) {
+		int sum = 0;
+		for (int i = 0; i < advances; i++) {
+			Counter c = cs[i & (COUNTERS - 1)];
+			c.advance();
+			sum ^= c.value();
+		}
+		return sum;
+	}
+
+	/**
+	 * Advances the counters in turn and returns a value computed from the
+	 * counter values so that the loop cannot be eliminated.
+	 */
+	private static int run(UnmonitoredCounter[] cs, int advances) {
+		int sum = 0;
+		for (int i = 0; i < advances; i++) {
+			UnmonitoredCounter c = cs[i & (COUNTERS - 1)];
+			c.advance();
+			sum ^= c.value();
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns counters starting at the specified value that use a stop
+	 * policy.
+	 */
+	private static Counter[] counters(int value) {
+		Counter[] cs = new Counter[COUNTERS];
+		for (int i = 0; i < COUNTERS; i++) {
+			cs[i] = new Counter(value, new MaxValueStopPolicy());
+		}
+		return cs;
+	}
+
+	/**
+	 * Returns unmonitored counters starting at the specified value that use a
+	 * stop policy.
+	 */
+	private static UnmonitoredCounter[] unmonitoredCounters(int value) {
+		UnmonitoredCounter[] cs = new UnmonitoredCounter[COUNTERS];
+		for (int i = 0; i < COUNTERS; i++) {
+			cs[i] = new UnmonitoredCounter(value, new MaxValueStopPolicy());
+		}
+		return cs;
+	}
+
+	/**
+	 * Returns the average time in nanoseconds of one advance of the specified
+	 * counters.
+	 */
+	private static double time(Counter[] cs) {
+		Stopwatch w = new Stopwatch();
+		w.start();
+		int sink = run(cs, ADVANCES);
+		double t = w.stop();
+		if (sink == 42) {
+			System.out.print("");
+		}
+		return t * 1e9 / ADVANCES;
+	}
+
+	/**
+	 * Returns the average time in nanoseconds of one advance of the specified
+	 * counters.
+	 */
+	private static double time(UnmonitoredCounter[] cs) {
+		Stopwatch w = new Stopwatch();
+		w.start();
+		int sink = run(cs, ADVANCES);
+		double t = w.stop();
+		if (sink == 42) {
+			System.out.print("");
+		}
+		return t * 1e9 / ADVANCES;
+	}
+
+	public static void main(String[] args) {
+		CounterMonitor.install();
+		// exercise both paths of advance before anything is compiled
+		for (int i = 0; i < 20; i++) {
+			run(counters(0), 100_000);
+			run(counters(Integer.MAX_VALUE), 100_000);
+			run(unmonitoredCounters(0), 100_000);
+			run(unmonitoredCounters(Integer.MAX_VALUE), 100_000);
+		}
+		for (int i = 0; i < ROUNDS; i++) {
+			System.out.printf("fast path, no hook : %.3f ns/advance%n", time(unmonitoredCounters(0)));
+			System.out.printf("fast path, JFR off : %.3f ns/advance%n", time(counters(0)));
+			System.out.printf("policy, no hook    : %.3f ns/advance%n",
+					time(unmonitoredCounters(Integer.MAX_VALUE)));
+			System.out.printf("policy, JFR off    : %.3f ns/advance%n", time(counters(Integer.MAX_VALUE)));
+			try (Recording r = new Recording()) {
+				r.enable(MaxValuePolicyEvent.class);
+				r.start();
+				System.out.printf("fast path, JFR on  : %.3f ns/advance%n", time(counters(0)));
+			}
+			System.out.println();
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package lectures.interfaces;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Low-overhead monitoring for {@link Counter} objects.
+ *
+ * <p>
+ * Nothing is monitored until the monitor is installed, either explicitly
+ * with {@link #install()} or by registering the first counter; until then
+ * counters do not use this class at all. Installing the monitor registers
+ * it with the platform MBean server, which starts JMX if it was not
+ * running, and listens to Java Flight Recorder.
+ *
+ * <p>
+ * Counters can be registered by name with the monitor which exposes their
+ * current values and advance rates through JMX as the MBean named
+ * {@code lectures.interfaces:type=CounterMonitor}. Rates are computed by
+ * sampling the values of the registered counters when the rate is requested;
+ * registering a counter adds no work to {@link Counter#advance()}.
+ *
+ * <p>
+ * Once the monitor is installed, every time that a counter applies its
+ * {@link MaxValuePolicy} the monitor records a {@code MaxValuePolicyEvent}
+ * if a Java Flight Recorder recording is running. The recording hook is set
+ * in {@code MaxValueHook} only while a recording is running; at all other
+ * times the hook is a no-op that the JIT compiler removes completely, so
+ * {@code advance} costs the same as it would without monitoring.
+ *
+ */
+public class CounterMonitor implements CounterMonitorMBean {
+
+	/**
+	 * The name under which the monitor is registered with the platform MBean
+	 * server.
+	 */
+	public static final String OBJECT_NAME = "lectures.interfaces:type=CounterMonitor";
+
+	/**
+	 * The hook used while a flight recording is running.
+	 */
+	private static final MethodHandle RECORDING_HOOK;
+
+	static {
+		try {
+			RECORDING_HOOK = MethodHandles.lookup().findStatic(CounterMonitor.class, "record", MaxValueHook.TYPE);
+		} catch (ReflectiveOperationException x) {
+			throw new ExceptionInInitializerError(x);
+		}
+	}
+
+	/**
+	 * The installed monitor, or null until {@link #install()} is called.
+	 */
+	private static CounterMonitor monitor;
+
+	/**
+	 * The registered counters and their most recent samples.
+	 */
+	private final Map<String, Sample> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * The most recent value and sampling time of a registered counter.
+	 */
+	private static class Sample {
+		final Counter counter;
+		long value;
+		long nanoTime;
+
+		Sample(Counter counter) {
+			this.counter = counter;
+			this.value = counter.value();
+			this.nanoTime = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Only the monitor itself can create a monitor.
+	 */
+	private CounterMonitor() {
+	}
+
+	/**
+	 * Installs the monitor if it is not installed yet: registers it with the
+	 * platform MBean server and starts recording max value policy events
+	 * whenever a flight recording is running. Calling this method again has
+	 * no effect.
+	 * 
+	 * @return the installed monitor
+	 */
+	public static synchronized CounterMonitor install() {
+		if (monitor == null) {
+			monitor = new CounterMonitor();
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(monitor, new ObjectName(OBJECT_NAME));
+			} catch (JMException x) {
+				// monitoring is unavailable but counters continue to work
+			}
+			FlightRecorder.addListener(new FlightRecorderListener() {
+				@Override
+				public void recorderInitialized(FlightRecorder recorder) {
+					updateHook();
+				}
+
+				@Override
+				public void recordingStateChanged(Recording recording) {
+					updateHook();
+				}
+			});
+			updateHook();
+		}
+		return monitor;
+	}
+
+	/**
+	 * Registers a counter with the monitor under the specified name,
+	 * installing the monitor first if necessary. A counter already
+	 * registered under the same name is replaced.
+	 * 
+	 * @param name
+	 *            the name of the counter
+	 * @param c
+	 *            the counter to monitor
+	 */
+	public static void register(String name, Counter c) {
+		install().counters.put(name, new Sample(c));
+	}
+
+	/**
+	 * Removes the counter having the specified name from the monitor. Does
+	 * nothing if no counter is registered under the name.
+	 * 
+	 * @param name
+	 *            the name of the counter
+	 */
+	public static synchronized void unregister(String name) {
+		if (monitor != null) {
+			monitor.counters.remove(name);
+		}
+	}
+
+	/**
+	 * Sets the recording hook if any flight recording is running, and the
+	 * no-op hook otherwise.
+	 */
+	private static synchronized void updateHook() {
+		boolean running = false;
+		if (FlightRecorder.isInitialized()) {
+			for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+				running = running || r.getState() == RecordingState.RUNNING;
+			}
+		}
+		MaxValueHook.set(running ? RECORDING_HOOK : MaxValueHook.NO_OP);
+	}
+
+	/**
+	 * Records a max value policy event if the event is enabled.
+	 */
+	@SuppressWarnings("unused")
+	private static void record(Counter c, MaxValuePolicy policy) {
+		MaxValuePolicyEvent event = new MaxValuePolicyEvent();
+		if (event.shouldCommit()) {
+			event.policy = policy.getClass().getName();
+			event.counter = System.identityHashCode(c);
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns the sample of the counter registered with the specified name.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if no counter is registered with the specified name
+	 */
+	private Sample sample(String name) {
+		Sample s = this.counters.get(name);
+		if (s == null) {
+			throw new IllegalArgumentException("no counter named " + name);
+		}
+		return s;
+	}
+
+	@Override
+	public String[] getCounterNames() {
+		return this.counters.keySet().toArray(new String[0]);
+	}
+
+	@Override
+	public int getValue(String name) {
+		return this.sample(name).counter.value();
+	}
+
+	@Override
+	public double getRate(String name) {
+		Sample s = this.sample(name);
+		synchronized (s) {
+			long now = System.nanoTime();
+			long value = s.counter.value();
+			long delta = value - s.value;
+			if (delta < 0) {
+				// the counter wrapped around to zero since the last sample
+				delta += (long) Integer.MAX_VALUE + 1;
+			}
+			double seconds = (now - s.nanoTime) / 1e9;
+			s.value = value;
+			s.nanoTime = now;
+			return seconds > 0 ? delta / seconds : 0.0;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package lectures.interfaces;
+
+/**
+ * The management interface of {@link CounterMonitor}.
+ *
+ */
+public interface CounterMonitorMBean {
+
+	/**
+	 * Returns the names of the registered counters.
+	 * 
+	 * @return the names of the registered counters
+	 */
+	public String[] getCounterNames();
+
+	/**
+	 * Returns the current value of the registered counter having the
+	 * specified name.
+	 * 
+	 * @param name
+	 *            the name of a registered counter
+	 * @return the current value of the counter
+	 * @throws IllegalArgumentException
+	 *             if no counter is registered with the specified name
+	 */
+	public int getValue(String name);
+
+	/**
+	 * Returns the average number of times per second that the registered
+	 * counter having the specified name was advanced since the previous call
+	 * to this method for the same counter (or since the counter was registered
+	 * for the first call).
+	 * 
+	 * @param name
+	 *            the name of a registered counter
+	 * @return the advance rate of the counter in advances per second
+	 * @throws IllegalArgumentException
+	 *             if no counter is registered with the specified name
+	 */
+	public double getRate(String name);
+}
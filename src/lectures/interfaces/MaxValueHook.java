@@ -0,0 +1,78 @@
+package lectures.interfaces;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+/**
+ * The hook that {@link Counter#advance()} calls immediately before a counter
+ * applies its {@link MaxValuePolicy}.
+ *
+ * <p>
+ * The hook is held in a {@code MutableCallSite} whose target is a no-op
+ * until {@link CounterMonitor#install()} replaces it, so counters do not
+ * depend on the monitoring classes and cost the same as they would without
+ * monitoring: the JIT compiler removes the call to a no-op target completely.
+ * This class only uses {@code java.lang.invoke} and has no side effects when
+ * it is initialized.
+ *
+ */
+final class MaxValueHook {
+
+	/**
+	 * The type of the hook: it is given the counter and its policy.
+	 */
+	static final MethodType TYPE = MethodType.methodType(void.class, Counter.class, MaxValuePolicy.class);
+
+	/**
+	 * The hook that does nothing.
+	 */
+	static final MethodHandle NO_OP = MethodHandles.empty(TYPE);
+
+	/**
+	 * The call site holding the current hook.
+	 */
+	private static final MutableCallSite SITE = new MutableCallSite(NO_OP);
+
+	/**
+	 * Invokes the current target of {@code SITE}.
+	 */
+	private static final MethodHandle INVOKER = SITE.dynamicInvoker();
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private MaxValueHook() {
+	}
+
+	/**
+	 * Calls the current hook for a counter that is about to apply its max
+	 * value policy.
+	 *
+	 * @param c
+	 *            the counter that reached its maximum value
+	 * @param policy
+	 *            the policy that the counter is about to apply
+	 */
+	static void maxValueReached(Counter c, MaxValuePolicy policy) {
+		try {
+			INVOKER.invokeExact(c, policy);
+		} catch (Throwable x) {
+			throw new AssertionError(x);
+		}
+	}
+
+	/**
+	 * Replaces the hook, making the change visible to all threads.
+	 *
+	 * @param target
+	 *            the new hook, of type {@link #TYPE}
+	 */
+	static synchronized void set(MethodHandle target) {
+		if (SITE.getTarget() != target) {
+			SITE.setTarget(target);
+			MutableCallSite.syncAll(new MutableCallSite[] { SITE });
+		}
+	}
+}
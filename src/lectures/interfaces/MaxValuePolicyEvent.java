@@ -0,0 +1,37 @@
+package lectures.interfaces;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event that is recorded when a counter is advanced
+ * while its current value is {@code Integer.MAX_VALUE} and the counter
+ * hands control to its {@link MaxValuePolicy}.
+ *
+ * <p>
+ * The event is only recorded after {@link CounterMonitor#install()}, and is
+ * disabled unless a flight recording that enables it is running (e.g.,
+ * {@code -XX:StartFlightRecording}).
+ *
+ */
+@Name("lectures.interfaces.MaxValuePolicy")
+@Label("Counter Max Value Policy")
+@Category("Counters")
+@Description("A counter reached Integer.MAX_VALUE and applied its max value policy")
+class MaxValuePolicyEvent extends Event {
+
+	/**
+	 * The name of the class of the policy that was applied.
+	 */
+	@Label("Policy")
+	String policy;
+
+	/**
+	 * The identity hash code of the counter that reached its maximum value.
+	 */
+	@Label("Counter")
+	int counter;
+}